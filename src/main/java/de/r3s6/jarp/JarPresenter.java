@@ -12,7 +12,9 @@ import java.util.Collections;
 import java.util.List;
 
 import de.r3s6.jarp.build.BuildCommand;
+import de.r3s6.jarp.build.RebuildCommand;
 import de.r3s6.jarp.extract.ExtractCommand;
+import de.r3s6.jarp.inspect.InspectCommand;
 import de.r3s6.jarp.server.ServerCommand;
 
 /**
@@ -25,6 +27,9 @@ public final class JarPresenter {
     /** Resource folder of the presentation. */
     public static final String PRESENTATION_DIR = "presentation";
 
+    /** Prefix of the full paths of the files in {@link #PRESENTATION_DIR}. */
+    public static final String PRESENTATION_PREFIX = PRESENTATION_DIR + "/";
+
     /**
      * Name of the file that contains the presentation metadata.
      */
@@ -33,7 +38,42 @@ public final class JarPresenter {
     /**
      * Full path to metadata file. See {@link #METADATA_BASENAME}.
      */
-    public static final String METADATA_PATH = JarPresenter.PRESENTATION_DIR + "/" + METADATA_BASENAME;
+    public static final String METADATA_PATH = PRESENTATION_PREFIX + METADATA_BASENAME;
+
+    /**
+     * Name of the file that maps paths of duplicate files to the path of the
+     * identical file actually stored in the jar. Written by the build command
+     * when deduplicating.
+     */
+    public static final String ALIASES_BASENAME = "jarp-aliases.properties";
+
+    /**
+     * Full path to aliases file. See {@link #ALIASES_BASENAME}.
+     */
+    public static final String ALIASES_PATH = PRESENTATION_PREFIX + ALIASES_BASENAME;
+
+    /**
+     * Name of the file that lists all resources of the presentation with content
+     * type, size and ETag. Written by the build command.
+     */
+    public static final String RESOURCES_BASENAME = "jarp-resources.properties";
+
+    /**
+     * Full path to resource manifest. See {@link #RESOURCES_BASENAME}.
+     */
+    public static final String RESOURCES_PATH = PRESENTATION_PREFIX + RESOURCES_BASENAME;
+
+    /**
+     * Name of the file that maps the content hash of minified files to the entry
+     * holding the minified content. Written by the build command when minifying,
+     * to reuse the results in the next build.
+     */
+    public static final String MINIFIED_BASENAME = "jarp-minified.properties";
+
+    /**
+     * Full path to the minification cache. See {@link #MINIFIED_BASENAME}.
+     */
+    public static final String MINIFIED_PATH = PRESENTATION_PREFIX + MINIFIED_BASENAME;
 
     /**
      * Property in jarp-metadata.properties for the presentation title.
@@ -45,6 +85,14 @@ public final class JarPresenter {
      */
     public static final String PROP_STARTPAGE = "start-page";
 
+    /**
+     * Property in jarp-metadata.properties for the comma separated names of the
+     * presentations, if the jar contains several presentations. Every
+     * presentation is stored in the sub-directory with its name and has its own
+     * metadata.
+     */
+    public static final String PROP_DECKS = "decks";
+
     private JarPresenter() {
     }
 
@@ -74,9 +122,15 @@ public final class JarPresenter {
                 case "extract":
                     ExtractCommand.create().execute(argList);
                     break;
+                case "inspect":
+                    InspectCommand.create().execute(argList);
+                    break;
                 case "build":
                     BuildCommand.create().execute(argList);
                     break;
+                case "rebuild":
+                    RebuildCommand.create().execute(argList);
+                    break;
                 case "help":
                     showHelp();
                     System.exit(0);
@@ -102,8 +156,12 @@ public final class JarPresenter {
         System.out.println();
         ExtractCommand.showHelp();
         System.out.println();
+        InspectCommand.showHelp();
+        System.out.println();
         BuildCommand.showHelp();
         System.out.println();
+        RebuildCommand.showHelp();
+        System.out.println();
         System.out.println("If no command is given, \"server\" is assumed.");
         System.out.println();
 
@@ -6,12 +6,25 @@
  */
 package de.r3s6.jarp;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Utility functions.
@@ -36,7 +49,33 @@ public final class Utilities {
      */
     public static Map<String, String> readPropertyMapResource(final String resourceName, final ClassLoader classLoader)
             throws IOException {
-        try (InputStream in = classLoader.getResourceAsStream(resourceName)) {
+        return readPropertyMap(classLoader.getResourceAsStream(resourceName));
+    }
+
+    /**
+     * Loads a properties file via classloader into a Map.
+     *
+     * If the file is not found, a empty map is returned.
+     *
+     * @param resourceName the name of the classpath resource
+     * @return A Map with the properties
+     * @throws IOException if reading fails
+     */
+    public static Map<String, String> readPropertyMapResource(final String resourceName) throws IOException {
+        return readPropertyMapResource(resourceName, Utilities.class.getClassLoader());
+    }
+
+    /**
+     * Loads properties from the given stream into a Map. The stream is closed.
+     *
+     * If the stream is {@code null}, a empty map is returned.
+     *
+     * @param input the stream to read or {@code null}
+     * @return A Map with the properties
+     * @throws IOException if reading fails
+     */
+    public static Map<String, String> readPropertyMap(final InputStream input) throws IOException {
+        try (InputStream in = input) {
             if (in != null) {
                 final Properties props = new Properties();
                 props.load(in);
@@ -52,15 +91,191 @@ public final class Utilities {
     }
 
     /**
-     * Loads a properties file via classloader into a Map.
+     * Writes properties like {@link Properties#store(OutputStream, String)}, but
+     * sorted by key and without the date comment. So the same properties always
+     * result in the same bytes.
      *
-     * If the file is not found, a empty map is returned.
+     * @param props the properties
+     * @param out   the stream to write to
+     * @throws IOException if writing fails
+     */
+    public static void storeProperties(final Properties props, final OutputStream out) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        props.store(bos, null);
+        // store() escapes line breaks in keys and values, so every line is a property
+        final String lines = StandardCharsets.ISO_8859_1.decode(ByteBuffer.wrap(bos.toByteArray())).toString()
+                .lines()
+                .filter(l -> !l.startsWith("#"))
+                .sorted()
+                .collect(Collectors.joining("\n", "", "\n"));
+        out.write(lines.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Compresses the given data with gzip.
      *
-     * @param resourceName the name of the classpath resource
-     * @return A Map with the properties
-     * @throws IOException if reading fails
+     * @param data  the data to compress
+     * @param level the compression level (0-9). See
+     *              {@link java.util.zip.Deflater#setLevel(int)}.
+     * @return the gzip compressed data
      */
-    public static Map<String, String> readPropertyMapResource(final String resourceName) throws IOException {
-        return readPropertyMapResource(resourceName, Utilities.class.getClassLoader());
+    public static byte[] gzip(final byte[] data, final int level) {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2 + 64); // NOCS: MagicNumber
+        try (GZIPOutputStream gz = new LeveledGZIPOutputStream(bos, level)) {
+            gz.write(data);
+        } catch (final IOException e) {
+            // Should never happen with a ByteArrayOutputStream
+            throw new IllegalStateException("Unexpected exception: " + e, e);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Calculates the CRC-32 checksum of the given file.
+     *
+     * @param file the file
+     * @return the CRC-32 value
+     * @throws IOException if reading the file fails
+     */
+    public static long crc32(final Path file) throws IOException {
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[64 * 1024]; // NOCS: MagicNumber
+        try (InputStream in = Files.newInputStream(file)) {
+            int cnt;
+            while ((cnt = in.read(buffer)) >= 0) {
+                crc.update(buffer, 0, cnt);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the given file.
+     *
+     * @param file the file
+     * @return the digest as hex string
+     * @throws IOException if reading the file fails
+     */
+    public static String sha256(final Path file) throws IOException {
+        final MessageDigest md = sha256Digest();
+        final byte[] buffer = new byte[64 * 1024]; // NOCS: MagicNumber
+        try (InputStream in = Files.newInputStream(file)) {
+            int cnt;
+            while ((cnt = in.read(buffer)) >= 0) {
+                md.update(buffer, 0, cnt);
+            }
+        }
+        return toHex(md.digest());
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the given data.
+     *
+     * @param data the data
+     * @return the digest as hex string
+     */
+    public static String sha256(final byte[] data) {
+        return toHex(sha256Digest().digest(data));
+    }
+
+    /**
+     * Creates a SHA-256 message digest.
+     *
+     * @return the message digest
+     */
+    public static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException("Unexpected exception: " + e, e);
+        }
+    }
+
+    /**
+     * Converts bytes (like a digest) to a hex string.
+     *
+     * @param bytes the bytes
+     * @return the lower case hex string
+     */
+    public static String toHex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (final byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Converts a glob pattern to a regular expression.
+     * <p>
+     * Supported are "*" (any characters except "/"), "**" (any characters
+     * including "/"), "?" (a single character except "/"). A "**&#47;" also
+     * matches no directory at all, so "**&#47;*.css" matches "a.css" and
+     * "dist/a.css".
+     *
+     * @param glob the glob pattern
+     * @return the regular expression
+     */
+    public static String globToRegex(final String glob) {
+        final StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < glob.length()) {
+            final char c = glob.charAt(i);
+            if (glob.startsWith("**/", i)) {
+                sb.append("(?:.*/)?");
+                i += 3; // NOCS: MagicNumber
+                continue;
+            } else if (glob.startsWith("**", i)) {
+                sb.append(".*");
+                i += 2;
+                continue;
+            } else if (c == '*') {
+                sb.append("[^/]*");
+            } else if (c == '?') {
+                sb.append("[^/]");
+            } else if ("\\.[]{}()<>+-=!^$|".indexOf(c) >= 0) {
+                sb.append('\\').append(c);
+            } else {
+                sb.append(c);
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Splits a comma separated list. Whitespace around the elements is removed.
+     *
+     * @param list the list or {@code null}
+     * @return the elements, empty if the list is {@code null} or blank
+     */
+    public static List<String> splitList(final String list) {
+        if (list == null || list.isBlank()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(list.trim().split("\\s*,\\s*"));
+    }
+
+    /**
+     * Converts a file name to a presentation name that can be used in URLs
+     * without encoding. All characters except letters, digits, '_', '.' and '-'
+     * are replaced with '-'.
+     *
+     * @param fileName the file name without extension
+     * @return the presentation name
+     */
+    public static String toUrlName(final String fileName) {
+        return fileName.replaceAll("[^\\w.-]", "-");
+    }
+
+    /**
+     * GZIPOutputStream with configurable compression level.
+     */
+    private static final class LeveledGZIPOutputStream extends GZIPOutputStream {
+        private LeveledGZIPOutputStream(final OutputStream out, final int level) throws IOException {
+            super(out);
+            def.setLevel(level);
+        }
     }
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.build;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+
+import de.r3s6.jarp.zip.ZipIndex;
+import de.r3s6.jarp.zip.ZipWriter;
+
+/**
+ * A presentation in a zip, tar or tar.gz archive (or read from stdin). The
+ * archive is accessed via the zip file system of the JDK, so the presentation
+ * doesn't need to be extracted.
+ * <p>
+ * A tar archive is usually packed straight into the new jar by the
+ * {@link JarpBuilder}, see {@link #tar(InputStream)}. Only if the build needs
+ * random access to the files, it is converted to a temporary zip file, as the
+ * JDK has no tar file system. The files are compressed while reading the tar
+ * stream, so they can be copied raw into the new jar. A zip read from stdin is
+ * always stored in a temporary file, as a zip file needs random access.
+ * <p>
+ * If the archive only contains a single directory, this directory is the
+ * presentation root.
+ *
+ * @author Ralf Schandl
+ */
+final class ArchiveSource implements Closeable {
+
+    /** Name of the source to read the archive from stdin. */
+    static final String STDIN = "-";
+
+    // CSOFF: MagicNumber
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final int ZIP_MAGIC = 0x504b;
+    // CSON: MagicNumber
+
+    private final Path mTempFile;
+    private final ZipIndex mZip;
+    private final FileSystem mFileSystem;
+    private final Path mRoot;
+
+    private ArchiveSource(final Path zipFile, final Path tempFile) throws IOException {
+        mTempFile = tempFile;
+        mZip = ZipIndex.open(zipFile);
+        mFileSystem = FileSystems.newFileSystem(zipFile, (ClassLoader) null);
+        Path root = mFileSystem.getPath("/");
+        try (Stream<Path> stream = Files.list(root)) {
+            final List<Path> children = stream.collect(Collectors.toList());
+            if (children.size() == 1 && Files.isDirectory(children.get(0))) {
+                root = children.get(0);
+            }
+        }
+        mRoot = root;
+    }
+
+    /**
+     * Whether the given source of a presentation is a archive (or stdin) and not
+     * a directory.
+     *
+     * @param source the presentation source given on the command line
+     * @return whether the source is a archive
+     */
+    static boolean isArchive(final String source) {
+        return STDIN.equals(source) || Files.isRegularFile(Path.of(source));
+    }
+
+    /**
+     * Opens the stream of a archive.
+     *
+     * @param source the archive file or {@value #STDIN}
+     * @return the buffered stream
+     * @throws IOException if the file can't be opened
+     */
+    static InputStream openStream(final String source) throws IOException {
+        return new BufferedInputStream(STDIN.equals(source) ? System.in : Files.newInputStream(Path.of(source)));
+    }
+
+    /**
+     * Whether the archive is a zip archive. Else it is a tar or tar.gz archive.
+     *
+     * @param in the stream returned by {@link #openStream(String)}. Not
+     *           consumed.
+     * @return whether it is a zip archive
+     * @throws IOException if reading fails
+     */
+    static boolean isZip(final InputStream in) throws IOException {
+        return magic(in) == ZIP_MAGIC;
+    }
+
+    /**
+     * Gets a reader for a tar or tar.gz archive.
+     *
+     * @param in the stream returned by {@link #openStream(String)}
+     * @return the reader
+     * @throws IOException if reading fails
+     */
+    static TarReader tar(final InputStream in) throws IOException {
+        return new TarReader(magic(in) == GZIP_MAGIC ? new GZIPInputStream(in) : in);
+    }
+
+    /**
+     * Opens a archive.
+     *
+     * @param source  the archive file or {@value #STDIN}
+     * @param tempDir directory for temporary files
+     * @return the opened archive
+     * @throws IOException if reading the archive fails
+     */
+    static ArchiveSource open(final String source, final Path tempDir) throws IOException {
+        final InputStream in = openStream(source);
+        try {
+            if (isZip(in) && !STDIN.equals(source)) {
+                in.close();
+                return new ArchiveSource(Path.of(source), null);
+            }
+
+            final Path tempFile = Files.createTempFile(tempDir, ".jarp-src-", ".zip");
+            try {
+                if (isZip(in)) {
+                    Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    tarToZip(tar(in), tempFile);
+                }
+                return new ArchiveSource(tempFile, tempFile);
+            } catch (final IOException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+        } finally {
+            if (!STDIN.equals(source)) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Gets the root directory of the presentation.
+     *
+     * @return the root directory
+     */
+    Path getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * Gets the zip entry of the given file, if its data can be copied raw into
+     * the new jar.
+     *
+     * @param file a file of the presentation
+     * @return the entry or {@code null}
+     */
+    ZipIndex.Entry rawEntry(final Path file) {
+        // paths in the zip file system start with "/"
+        final ZipIndex.Entry entry = mZip.getEntry(file.toString().substring(1));
+        return entry != null && entry.getMethod() == ZipEntry.DEFLATED ? entry : null;
+    }
+
+    /**
+     * Gets the index of the zip file, needed to copy raw entries.
+     *
+     * @return the zip index
+     */
+    ZipIndex getZip() {
+        return mZip;
+    }
+
+    private static int magic(final InputStream in) throws IOException {
+        in.mark(2);
+        final int magic = in.read() << 8 | in.read(); // NOCS: MagicNumber
+        in.reset();
+        return magic;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            mFileSystem.close();
+            mZip.close();
+        } finally {
+            if (mTempFile != null) {
+                Files.deleteIfExists(mTempFile);
+            }
+        }
+    }
+
+    /**
+     * Converts a tar stream to a zip file.
+     */
+    private static void tarToZip(final TarReader tar, final Path zipFile) throws IOException {
+        try (ZipWriter zip = new ZipWriter(zipFile)) {
+            TarReader.Entry entry;
+            while ((entry = tar.next()) != null) {
+                if (entry.isDirectory()) {
+                    if (!entry.getName().isEmpty()) {
+                        zip.addDirectory(entry.getName(), entry.getTime());
+                    }
+                } else {
+                    zip.addEntry(entry.getName(), entry.getTime(), tar.getInputStream(), ZipEntry.DEFLATED);
+                }
+            }
+        }
+    }
+}
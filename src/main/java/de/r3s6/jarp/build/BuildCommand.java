@@ -7,6 +7,9 @@
 package de.r3s6.jarp.build;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import de.r3s6.jarp.args.ArgsParser;
@@ -24,11 +27,28 @@ import de.r3s6.jarp.args.ArgsParser.ValueOption;
 public final class BuildCommand {
 
     private String mTargetJarName;
-    private String mSrcDir;
+    /** The presentation directories, more than one for several presentations. */
+    private final List<String> mSrcDirs = new ArrayList<>();
     private String mTitle;
     private String mIndexFile;
     /** Whether to overwrite an existing jar. */
     private boolean mForce;
+    /** Whether to add gzip compressed variants of compressible files. */
+    private boolean mPrecompress;
+    /** Whether to update an existing jar. */
+    private boolean mUpdate;
+    /** Whether to store identical files only once. */
+    private boolean mDeduplicate;
+    /** Whether to minify HTML, CSS and JavaScript. */
+    private boolean mMinify;
+    /** Whether to add content hashes to the names of static assets. */
+    private boolean mFingerprint;
+    /** Whether to build a reproducible jar. */
+    private boolean mReproducible;
+    /** Whether to leave out unreferenced files. */
+    private boolean mPrune;
+    /** Glob patterns of files to keep when pruning. */
+    private List<String> mKeepGlobs = Collections.emptyList();
 
     private BuildCommand() {
     }
@@ -48,18 +68,38 @@ public final class BuildCommand {
     public static void showHelp() {
 
         System.out.println("build - build a NEW presentation jar for given presentation");
-        System.out.println("      USAGE: java -jar jar-presenter.jar build [-f] [-s <start-page>] [-t <title>] "
-                + "<new-jar-name> <presentation-dir>");
+        System.out.println("      USAGE: java -jar jar-presenter.jar build [-f|-u] [-d] [-m] [-i] [-z] [-r] [-p [-k <globs>]] [-s <start-page>] [-t <title>] "
+                + "<new-jar-name> <presentation-dir>...");
         System.out.println("        -f       overwrite existing jar");
+        System.out.println("        -u       update existing jar. Only new or changed files are");
+        System.out.println("                 compressed, unchanged entries are copied.");
+        System.out.println("        -d       store files with identical content only once");
+        System.out.println("        -m       minify HTML, CSS and JavaScript files");
+        System.out.println("        -i       add content hash to names of static assets, so browsers");
+        System.out.println("                 can cache them forever (immutable)");
+        System.out.println("        -z       add gzip compressed variants of compressible files");
+        System.out.println("                 (like HTML, CSS or JavaScript)");
+        System.out.println("        -r       reproducible build: sorted entries with fixed timestamps");
+        System.out.println("                 (from SOURCE_DATE_EPOCH, if set)");
+        System.out.println("        -p       leave out files not referenced from the start page (directly");
+        System.out.println("                 or indirectly via HTML, CSS, JavaScript ...)");
+        System.out.println("        -k <globs>");
+        System.out.println("                 comma separated glob patterns of files to keep when");
+        System.out.println("                 pruning, even if not referenced (e.g. 'dist/theme/*.css')");
         System.out.println("        -s <start-page>");
         System.out.println("                 defines the start page of the presentation. Only needed");
         System.out.println("                 when presentation-dir contains more than one html file.");
         System.out.println("        -t <title>");
         System.out.println("                 title of presentation. Used e.g. in server popup.");
+        System.out.println("                 With several presentations the title of the jar.");
         System.out.println("        new-jar-name");
         System.out.println("                 name of the new jar to create");
         System.out.println("        presentation-dir");
-        System.out.println("                 directory of the presentation to include in new jar");
+        System.out.println("                 directory of the presentation to include in new jar.");
+        System.out.println("                 Might also be a zip, tar or tar.gz file or '-' to read");
+        System.out.println("                 a archive from stdin.");
+        System.out.println("                 With several directories, every presentation is stored");
+        System.out.println("                 under the directory name and the server shows a index.");
     }
 
     /**
@@ -70,7 +110,9 @@ public final class BuildCommand {
     public void execute(final List<String> argList) {
         handleArgs(argList);
         try {
-            new JarpBuilder().build(mTargetJarName, mSrcDir, mTitle, mIndexFile, mForce);
+            new JarpBuilder().precompress(mPrecompress).update(mUpdate).deduplicate(mDeduplicate).minify(mMinify)
+                    .fingerprint(mFingerprint).reproducible(mReproducible).prune(mPrune).keep(mKeepGlobs)
+                    .build(mTargetJarName, mSrcDirs, mTitle, mIndexFile, mForce);
         } catch (final IOException | IllegalArgumentException e) {
             System.err.println("ERROR: Creating jar failed: " + e);
             System.exit(1);
@@ -90,17 +132,42 @@ public final class BuildCommand {
             final ValueOption titleOpt = ah.addValueOption('t');
             final ValueOption idxOpt = ah.addValueOption('s');
             final Flag forceOpt = ah.addFlag('f');
+            final Flag updateOpt = ah.addFlag('u');
+            final Flag dedupOpt = ah.addFlag('d');
+            final Flag minifyOpt = ah.addFlag('m');
+            final Flag fingerprintOpt = ah.addFlag('i');
+            final Flag gzipOpt = ah.addFlag('z');
+            final Flag reproducibleOpt = ah.addFlag('r');
+            final Flag pruneOpt = ah.addFlag('p');
+            final ValueOption keepOpt = ah.addValueOption('k');
             final Argument jarOpt = ah.addRequiredArgument("new-jar-name");
             final Argument dirOpt = ah.addRequiredArgument("presentation-dir");
+            final List<String> moreDirs = new ArrayList<>();
+            ah.optionalArgumentList(moreDirs);
 
             ah.parse(argList);
 
             mTitle = titleOpt.getValue();
             mIndexFile = cleanIndexName(idxOpt.getValue());
             mTargetJarName = jarOpt.getValue();
-            mSrcDir = dirOpt.getValue();
+            mSrcDirs.add(dirOpt.getValue());
+            mSrcDirs.addAll(moreDirs);
             mForce = forceOpt.getValue();
+            mPrecompress = gzipOpt.getValue();
+            mUpdate = updateOpt.getValue();
+            mDeduplicate = dedupOpt.getValue();
+            mMinify = minifyOpt.getValue();
+            mFingerprint = fingerprintOpt.getValue();
+            mReproducible = reproducibleOpt.getValue();
+            mPrune = pruneOpt.getValue();
+            if (keepOpt.getValue() != null) {
+                mKeepGlobs = Arrays.asList(keepOpt.getValue().split(","));
+            }
 
+            if (mIndexFile != null && mSrcDirs.size() > 1) {
+                System.err.println("ERROR: Option '-s' is only supported for a single presentation.");
+                System.exit(1);
+            }
             if (mIndexFile != null && mIndexFile.indexOf('/', 1) >= 0) {
                 System.err.println("ERROR: index file must be in presentation root directory.");
                 System.exit(1);
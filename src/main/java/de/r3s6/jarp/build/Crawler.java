@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.build;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.r3s6.jarp.server.ContentTypes;
+
+/**
+ * Follows the references between the files of a presentation.
+ * <p>
+ * Starting with given files (typically the start page), all text files (HTML,
+ * CSS, JavaScript, Markdown, SVG ...) are scanned for references to other files
+ * of the presentation. As JavaScript can't really be parsed here, every quoted
+ * string is taken as a possible reference. It is resolved relative to the
+ * referencing file and relative to the presentation root. So rather too many
+ * files are found than too few.
+ * <p>
+ * The files are returned in the order a browser would request them: breadth
+ * first and the references of a file in document order.
+ *
+ * @author Ralf Schandl
+ */
+final class Crawler {
+
+    /** Quoted strings in any text file. */
+    private static final Pattern STRING_REF = Pattern.compile("\"([^\"\\n]*)\"|'([^'\\n]*)'|`([^`$]*)`");
+
+    /** Links and images in Markdown. */
+    private static final Pattern MARKDOWN_REF = Pattern.compile("\\]\\(\\s*<?([^)\\s>]+)");
+
+    private final Path mRoot;
+
+    private final Set<Path> mFiles;
+
+    /** File to the referenced files. */
+    private final Map<Path, List<Path>> mReferences = new HashMap<>();
+
+    /**
+     * Constructs a Crawler.
+     *
+     * @param root  the presentation directory
+     * @param files all files of the presentation
+     */
+    Crawler(final Path root, final List<Path> files) {
+        mRoot = root;
+        mFiles = new HashSet<>(files);
+    }
+
+    /**
+     * Determines the files reachable from the given files.
+     *
+     * @param startFiles the files to start with
+     * @return the reachable files (including the start files) in access order
+     * @throws IOException if reading a file fails
+     */
+    Set<Path> crawl(final Collection<Path> startFiles) throws IOException {
+        final Set<Path> reachable = new LinkedHashSet<>();
+        final Deque<Path> queue = new ArrayDeque<>(startFiles);
+
+        while (!queue.isEmpty()) {
+            final Path file = queue.poll();
+            if (!reachable.add(file)) {
+                continue;
+            }
+            // a precompressed variant belongs to its file
+            final Path gzFile = file.resolveSibling(file.getFileName() + ".gz");
+            if (mFiles.contains(gzFile)) {
+                reachable.add(gzFile);
+            }
+            queue.addAll(references(file));
+        }
+        return reachable;
+    }
+
+    /**
+     * Gets the files referenced by the given file in document order.
+     */
+    private List<Path> references(final Path file) throws IOException {
+        List<Path> refs = mReferences.get(file);
+        if (refs == null) {
+            refs = new ArrayList<>();
+            if (ContentTypes.instance().isCompressible(file.getFileName().toString())) {
+                for (final String ref : scan(file)) {
+                    final String refPath = ref.substring(0, Fingerprinter.pathEnd(ref)).trim();
+                    addIfExists(refs, Fingerprinter.resolve(mRoot, file.getParent(), refPath));
+                    addIfExists(refs, Fingerprinter.resolve(mRoot, mRoot, refPath));
+                }
+            }
+            mReferences.put(file, refs);
+        }
+        return refs;
+    }
+
+    private void addIfExists(final List<Path> refs, final Path file) {
+        if (file != null && mFiles.contains(file)) {
+            refs.add(file);
+        }
+    }
+
+    /**
+     * Gets all possible references in the given text file in document order.
+     */
+    private static Collection<String> scan(final Path file) throws IOException {
+        final String text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(file))).toString();
+        } catch (final CharacterCodingException e) {
+            System.err.println("WARNING: Not UTF-8 encoded -- references ignored: " + file);
+            return List.of();
+        }
+
+        // position to reference
+        final Map<Integer, String> refs = new TreeMap<>();
+        for (final Pattern pattern : List.of(STRING_REF, Fingerprinter.CSS_REF, MARKDOWN_REF)) {
+            final Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                for (int group = 1; group <= matcher.groupCount(); group++) {
+                    if (matcher.group(group) != null) {
+                        refs.putIfAbsent(matcher.start(group), matcher.group(group));
+                    }
+                }
+            }
+        }
+        return refs.values();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.build;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.r3s6.jarp.Utilities;
+import de.r3s6.jarp.server.ContentTypes;
+
+/**
+ * Gives static assets names containing a hash of their content (like
+ * "reveal.3f2a9c1b.css") and rewrites the references in HTML and CSS files
+ * accordingly.
+ * <p>
+ * Only files referenced from HTML or CSS files are renamed. HTML files are
+ * never renamed, as their names are visible to the user. As the content of a
+ * CSS file changes when its references are rewritten, the referenced files are
+ * processed first.
+ * <p>
+ * The builder keeps the original names as aliases, so references that can't be
+ * rewritten (e.g. in JavaScript) still work.
+ *
+ * @author Ralf Schandl
+ */
+final class Fingerprinter {
+
+    /** Quoted attribute values in HTML. */
+    static final Pattern HTML_REF = Pattern.compile("[\\w-]+\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+
+    /** "url(...)" and "@import '...'" in CSS. */
+    static final Pattern CSS_REF = Pattern
+            .compile("url\\(\\s*(?:\"([^\"]*)\"|'([^']*)'|([^'\")\\s]+))\\s*\\)|@import\\s+(?:\"([^\"]*)\"|'([^']*)')");
+
+    /** Number of hex digits of the content hash used in the file name. */
+    private static final int HASH_LENGTH = 8;
+
+    private static final String TYPE_HTML = "text/html";
+    private static final String TYPE_CSS = "text/css";
+
+    private final Path mRoot;
+
+    /** Transformed content of files. Updated with the rewritten HTML and CSS. */
+    private final Map<Path, byte[]> mContents;
+
+    private final Set<Path> mFiles;
+
+    /** File to new file name. */
+    private final Map<Path, String> mNames = new HashMap<>();
+
+    /** Files currently processed. Detects cyclic references. */
+    private final Set<Path> mInProgress = new HashSet<>();
+
+    /**
+     * Constructs a Fingerprinter.
+     *
+     * @param root     the presentation directory
+     * @param files    all files of the presentation
+     * @param contents the transformed (e.g. minified) content of files. The
+     *                 rewritten content of HTML and CSS files is put into this map.
+     */
+    Fingerprinter(final Path root, final List<Path> files, final Map<Path, byte[]> contents) {
+        mRoot = root;
+        mFiles = new HashSet<>(files);
+        mContents = contents;
+    }
+
+    /**
+     * Renames the assets referenced by all HTML files.
+     *
+     * @return map of file to its new file name
+     * @throws IOException if reading a file fails
+     */
+    Map<Path, String> run() throws IOException {
+        for (final Path file : mFiles) {
+            if (TYPE_HTML.equals(type(file))) {
+                rewrite(file);
+            }
+        }
+        return mNames;
+    }
+
+    /**
+     * Gets the new name of the given file. Renames it, if not done yet.
+     *
+     * @return the new file name or {@code null} if the file is not renamed
+     */
+    private String fingerprint(final Path file) throws IOException {
+        if (mNames.containsKey(file)) {
+            return mNames.get(file);
+        }
+        if (!mInProgress.add(file)) {
+            // cyclic reference
+            return null;
+        }
+        if (TYPE_CSS.equals(type(file))) {
+            rewrite(file);
+        }
+        final String hash = Utilities.sha256(content(file)).substring(0, HASH_LENGTH);
+        final String name = file.getFileName().toString();
+        final int dot = name.lastIndexOf('.');
+        final String newName = dot > 0 ? name.substring(0, dot) + '.' + hash + name.substring(dot)
+                : name + '.' + hash;
+        mNames.put(file, newName);
+        mInProgress.remove(file);
+        return newName;
+    }
+
+    /**
+     * Rewrites the references in the given HTML or CSS file.
+     */
+    private void rewrite(final Path file) throws IOException {
+        final String text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(content(file))).toString();
+        } catch (final CharacterCodingException e) {
+            System.err.println("WARNING: Not UTF-8 encoded -- references not rewritten: " + file);
+            return;
+        }
+
+        final Matcher matcher = (TYPE_HTML.equals(type(file)) ? HTML_REF : CSS_REF).matcher(text);
+        final StringBuilder sb = new StringBuilder(text.length());
+        int last = 0;
+        boolean changed = false;
+        while (matcher.find()) {
+            for (int group = 1; group <= matcher.groupCount(); group++) {
+                final String ref = matcher.group(group);
+                if (ref == null) {
+                    continue;
+                }
+                final String newRef = rewriteReference(file, ref);
+                if (newRef != null) {
+                    sb.append(text, last, matcher.start(group)).append(newRef);
+                    last = matcher.end(group);
+                    changed = true;
+                }
+            }
+        }
+        if (changed) {
+            sb.append(text, last, text.length());
+            mContents.put(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Rewrites a reference to a file of the presentation.
+     *
+     * @return the new reference or {@code null} if the reference is not changed
+     */
+    private String rewriteReference(final Path file, final String ref) throws IOException {
+        final int end = pathEnd(ref);
+        final String refPath = ref.substring(0, end);
+        final Path target = resolve(mRoot, file.getParent(), refPath);
+        if (target == null || !mFiles.contains(target) || TYPE_HTML.equals(type(target))) {
+            return null;
+        }
+        final String newName = fingerprint(target);
+        if (newName == null) {
+            return null;
+        }
+        return refPath.substring(0, refPath.lastIndexOf('/') + 1) + newName + ref.substring(end);
+    }
+
+    /**
+     * Gets the end of the path in a reference, i.e. the index of the query or
+     * fragment.
+     *
+     * @param ref the reference
+     * @return the end of the path
+     */
+    static int pathEnd(final String ref) {
+        int end = ref.length();
+        for (final char c : new char[] { '?', '#' }) {
+            final int idx = ref.indexOf(c);
+            if (idx >= 0 && idx < end) {
+                end = idx;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Resolves the path of a reference to a local file.
+     *
+     * @param root    the presentation directory, used for absolute paths
+     * @param dir     the directory relative paths are resolved against
+     * @param refPath the path of the reference without query and fragment
+     * @return the file or {@code null} if the reference is external, a data URL
+     *         or a directory
+     */
+    static Path resolve(final Path root, final Path dir, final String refPath) {
+        if (refPath.isEmpty() || refPath.contains(":") || refPath.startsWith("//") || refPath.endsWith("/")) {
+            return null;
+        }
+        try {
+            return (refPath.startsWith("/") ? root.resolve(refPath.substring(1)) : dir.resolve(refPath)).normalize();
+        } catch (final InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private byte[] content(final Path file) throws IOException {
+        final byte[] content = mContents.get(file);
+        return content != null ? content : Files.readAllBytes(file);
+    }
+
+    private static String type(final Path file) {
+        return ContentTypes.instance().guess(file.getFileName().toString())[0];
+    }
+}
@@ -6,47 +6,258 @@
  */
 package de.r3s6.jarp.build;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.util.Enumeration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
 
 import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.Utilities;
+import de.r3s6.jarp.server.CacheRules;
+import de.r3s6.jarp.server.ContentTypes;
+import de.r3s6.jarp.server.ResourceManifest;
+import de.r3s6.jarp.zip.ZipIndex;
+import de.r3s6.jarp.zip.ZipWriter;
 
 /**
  * Builder to create a new jar-presenter file with the classes from the current
  * jar file and a given presentation.
+ * <p>
+ * A jar can also contain several presentations. Then every presentation is
+ * stored in its own sub-directory of {@value JarPresenter#PRESENTATION_DIR}
+ * with its own metadata and resource manifest, and the metadata in the root
+ * lists their names (see {@link JarPresenter#PROP_DECKS}). When deduplicating,
+ * files shared by the presentations are only stored once.
  *
  * @author Ralf Schandl
  */
 public class JarpBuilder {
 
+    /** Suffix of precompressed variants of a file. */
+    private static final String GZIP_SUFFIX = ".gz";
+
+    /** Environment variable with the timestamp for reproducible builds. */
+    private static final String SOURCE_DATE_EPOCH = "SOURCE_DATE_EPOCH";
+
+    /** Default timestamp for reproducible builds: 1980-01-01 00:00, the smallest zip time. */
+    private static final long DEFAULT_EPOCH = 315_532_800L;
+
+    /** Marks that the modification times of the files are used. */
+    private static final long NO_FIXED_TIME = -1;
+
+    /** Whether to add gzip compressed variants of compressible files. */
+    private boolean mPrecompress;
+
+    /** Whether to update a existing jar. */
+    private boolean mUpdate;
+
+    /** Whether to store files with identical content only once. */
+    private boolean mDeduplicate;
+
+    /** Whether to minify HTML, CSS and JavaScript files. */
+    private boolean mMinify;
+
+    /** Whether to add a content hash to the names of static assets. */
+    private boolean mFingerprint;
+
+    /** Whether to leave out files not reachable from the start page. */
+    private boolean mPrune;
+
+    /** Glob patterns of files to keep when pruning. */
+    private List<String> mKeepGlobs = Collections.emptyList();
+
+    /** Timestamp used for all entries or {@link #NO_FIXED_TIME}. */
+    private long mFixedTime = NO_FIXED_TIME;
+
+    /** Build date written to the manifest. */
+    private OffsetDateTime mBuildDate = OffsetDateTime.now();
+
+    /** Jar to copy the jar-presenter classes from. {@code null} for the running jar. */
+    private Path mJarpJar;
+
+    /**
+     * Enables adding gzip compressed variants ("file.js.gz") of compressible
+     * files. The server sends them to clients that accept gzip.
+     *
+     * @param precompress whether to add compressed variants
+     * @return this JarpBuilder
+     */
+    public JarpBuilder precompress(final boolean precompress) {
+        mPrecompress = precompress;
+        return this;
+    }
+
+    /**
+     * Enables updating an existing target jar. Entries of unchanged files (same
+     * size, modification time and CRC) are copied from the existing jar without
+     * compressing them again.
+     *
+     * @param update whether to update an existing jar
+     * @return this JarpBuilder
+     */
+    public JarpBuilder update(final boolean update) {
+        mUpdate = update;
+        return this;
+    }
+
+    /**
+     * Enables deduplication. Files with identical content are only stored once.
+     * The paths of the duplicates are mapped to the stored file in the file
+     * {@value JarPresenter#ALIASES_BASENAME}.
+     *
+     * @param deduplicate whether to deduplicate files
+     * @return this JarpBuilder
+     */
+    public JarpBuilder deduplicate(final boolean deduplicate) {
+        mDeduplicate = deduplicate;
+        return this;
+    }
+
+    /**
+     * Enables minification of HTML, CSS and JavaScript files. See
+     * {@link Minifier}.
+     *
+     * @param minify whether to minify files
+     * @return this JarpBuilder
+     */
+    public JarpBuilder minify(final boolean minify) {
+        mMinify = minify;
+        return this;
+    }
+
+    /**
+     * Enables fingerprinting. Static assets referenced from HTML or CSS files
+     * get a name containing a hash of their content and the references are
+     * rewritten. The server sends such files with a Cache-Control header that
+     * allows browsers to cache them forever. See {@link Fingerprinter}.
+     *
+     * @param fingerprint whether to fingerprint static assets
+     * @return this JarpBuilder
+     */
+    public JarpBuilder fingerprint(final boolean fingerprint) {
+        mFingerprint = fingerprint;
+        return this;
+    }
+
+    /**
+     * Enables pruning. Files that are not reachable from the start page are not
+     * added to the jar. See {@link Crawler}.
+     *
+     * @param prune whether to leave out unreachable files
+     * @return this JarpBuilder
+     */
+    public JarpBuilder prune(final boolean prune) {
+        mPrune = prune;
+        return this;
+    }
+
+    /**
+     * Sets the glob patterns of files to keep when pruning, even if they are not
+     * reachable from the start page.
+     *
+     * @param keepGlobs the glob patterns, relative to the presentation directory
+     * @return this JarpBuilder
+     */
+    public JarpBuilder keep(final List<String> keepGlobs) {
+        mKeepGlobs = keepGlobs;
+        return this;
+    }
+
+    /**
+     * Enables reproducible builds. All entries get the same timestamp, taken
+     * from the environment variable {@value #SOURCE_DATE_EPOCH} (seconds since
+     * the epoch) or 1980-01-01 if not set. Together with the sorted entries and
+     * the stable order of the properties files, building the same presentation
+     * twice creates identical jars.
+     *
+     * @param reproducible whether to build a reproducible jar
+     * @return this JarpBuilder
+     * @throws IllegalArgumentException if {@value #SOURCE_DATE_EPOCH} is invalid
+     */
+    public JarpBuilder reproducible(final boolean reproducible) {
+        if (reproducible) {
+            return reproducible(System.getenv(SOURCE_DATE_EPOCH));
+        }
+        mBuildDate = OffsetDateTime.now();
+        mFixedTime = NO_FIXED_TIME;
+        return this;
+    }
+
+    /**
+     * Enables reproducible builds with the given timestamp.
+     *
+     * @param sourceDateEpoch the seconds since the epoch or {@code null} for
+     *                        1980-01-01
+     * @return this JarpBuilder
+     * @throws IllegalArgumentException if the timestamp is invalid
+     */
+    JarpBuilder reproducible(final String sourceDateEpoch) {
+        final long epoch;
+        try {
+            epoch = sourceDateEpoch != null ? Long.parseLong(sourceDateEpoch.trim()) : DEFAULT_EPOCH;
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + SOURCE_DATE_EPOCH + ": " + sourceDateEpoch, e);
+        }
+        mBuildDate = OffsetDateTime.ofInstant(Instant.ofEpochSecond(epoch), ZoneOffset.UTC);
+        // zip files store the local time, use the UTC time to be independent of the time zone
+        mFixedTime = mBuildDate.toLocalDateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return this;
+    }
+
+    /**
+     * Sets the jar to copy the jar-presenter classes from. Defaults to the jar
+     * containing this class.
+     *
+     * @param jarpJar the jar-presenter jar
+     * @return this JarpBuilder
+     */
+    JarpBuilder jarpJar(final Path jarpJar) {
+        mJarpJar = jarpJar;
+        return this;
+    }
+
     /**
      * Build a new jar-presenter jar.
      *
      * @param targetJar       the new jar to create.
-     * @param presentationDir directory with presentation to include in the jar
+     * @param presentationDir directory with presentation to include in the jar.
+     *                        Might also be a zip, tar or tar.gz archive or "-" to
+     *                        read a archive from stdin.
      * @param title           title of the presentation
      * @param initialHtml     name of the initial page to open (instead of
      *                        index.html)
@@ -57,48 +268,243 @@ public class JarpBuilder {
     public void build(final String targetJar, final String presentationDir, final String title,
             final String initialHtml, final boolean force)
             throws IOException {
+        build(targetJar, List.of(presentationDir), title, initialHtml, force);
+    }
 
-        final File targetFile = new File(targetJar);
-        if (targetFile.exists()) {
-            if (!force) {
-                throw new IllegalArgumentException("Target JAR already exists: " + targetJar);
-            } else {
-                targetFile.delete();
-            }
+    /**
+     * Build a new jar-presenter jar. If more than one presentation is given, they
+     * are stored under their names, derived from the directory or archive name.
+     *
+     * @param targetJar        the new jar to create.
+     * @param presentationDirs directories with the presentations to include in
+     *                         the jar. Might also be zip, tar or tar.gz archives
+     *                         or "-" to read a archive from stdin (only for a
+     *                         single presentation).
+     * @param title            title of the presentation or of the whole jar
+     * @param initialHtml      name of the initial page to open (instead of
+     *                         index.html). Only for a single presentation.
+     * @param force            overwrite a existing jar
+     * @throws IOException              on IO problems
+     * @throws IllegalArgumentException if expected files don't exist
+     */
+    public void build(final String targetJar, final List<String> presentationDirs, final String title,
+            final String initialHtml, final boolean force)
+            throws IOException {
+
+        final Path targetFile = Path.of(targetJar).toAbsolutePath();
+        if (Files.exists(targetFile) && !force && !mUpdate) {
+            throw new IllegalArgumentException("Target JAR already exists: " + targetJar);
+        }
+        final boolean named = presentationDirs.size() > 1;
+        if (named && initialHtml != null) {
+            throw new IllegalArgumentException("A start page can only be given for a single presentation.");
         }
 
-        if (targetFile.toPath().startsWith(Path.of(presentationDir))) {
-            throw new IllegalArgumentException("Target JAR and presentation locations overlap.");
+        final List<DeckSource> sources = new ArrayList<>();
+        try {
+            final Set<String> names = new HashSet<>();
+            for (final String presentationDir : presentationDirs) {
+                final DeckSource source = openSource(presentationDir, targetFile, named, !needsRandomAccess());
+                sources.add(source);
+                if (named && !names.add(source.mName)) {
+                    throw new IllegalArgumentException("Duplicate presentation name: " + source.mName);
+                }
+            }
+            build(targetFile, sources, title, initialHtml);
+        } finally {
+            for (final DeckSource source : sources) {
+                if (source.mArchive != null) {
+                    source.mArchive.close();
+                }
+                if (source.mTar != null) {
+                    source.mTar.close();
+                }
+            }
         }
+    }
 
-        final Properties metadata = createMetaData(presentationDir, title, initialHtml);
+    private void build(final Path targetFile, final List<DeckSource> sources, final String title,
+            final String initialHtml) throws IOException {
+
+        final boolean named = sources.get(0).mName != null;
+        final Properties hubMetadata = new Properties();
+        final List<Properties> deckMetadata = new ArrayList<>();
+        if (named) {
+            if (title != null) {
+                hubMetadata.setProperty(JarPresenter.PROP_TITLE, title);
+            }
+            hubMetadata.setProperty(JarPresenter.PROP_DECKS,
+                    sources.stream().map(s -> s.mName).collect(Collectors.joining(",")));
+        }
+        for (final DeckSource source : sources) {
+            if (named) {
+                System.out.println("Presentation: " + source.mName);
+            }
+            // the metadata of a tar archive is only known after reading it
+            deckMetadata.add(source.mTar == null
+                    ? createMetaData(source.mRoot, named ? null : title, named ? null : initialHtml)
+                    : null);
+        }
 
         final Manifest manifest = createManifest();
 
-        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(targetFile), manifest)) {
+        ZipIndex oldJar = null;
+        if (mUpdate && Files.exists(targetFile)) {
+            try {
+                oldJar = ZipIndex.open(targetFile);
+            } catch (final IOException e) {
+                System.err.println("WARNING: Can't read existing jar -- building from scratch: " + e);
+            }
+        }
+
+        // Write to a temporary file, so a existing jar is only replaced on success.
+        final Path tmpFile = Files.createTempFile(targetFile.getParent(), ".jarp-", ".tmp");
+        try {
+            try (ZipIndex old = oldJar; ZipWriter jar = new ZipWriter(tmpFile)) {
 
-            // copy classes
-            copyJarpClasses(jar);
+                writeManifest(jar, manifest);
 
-            // copy presentation
-            copyPresentation(jar, presentationDir, JarPresenter.PRESENTATION_DIR);
+                // copy classes
+                copyJarpClasses(jar);
 
-            final JarEntry tgtEntry = new JarEntry(JarPresenter.METADATA_PATH);
-            jar.putNextEntry(tgtEntry);
-            final PrintWriter prt = new PrintWriter(jar);
-            metadata.store(prt, null);
-            prt.flush();
-            jar.closeEntry();
+                // copy presentations
+                final PackingState state = new PackingState(mDeduplicate);
+                if (named) {
+                    jar.addDirectory(JarPresenter.PRESENTATION_DIR + '/', entryTime(System.currentTimeMillis()));
+                }
+                for (int i = 0; i < sources.size(); i++) {
+                    final DeckSource source = sources.get(i);
+                    final String prefix = named ? '/' + source.mName : "";
+                    if (source.mTar != null) {
+                        deckMetadata.set(i, streamPresentation(jar, source, prefix, named ? null : title,
+                                named ? null : initialHtml, state));
+                    } else {
+                        copyPresentation(jar, source, old,
+                                deckMetadata.get(i).getProperty(JarPresenter.PROP_STARTPAGE), prefix, state);
+                    }
+                    if (named) {
+                        addProperties(jar, JarPresenter.PRESENTATION_DIR + prefix + '/' + JarPresenter.METADATA_BASENAME,
+                                deckMetadata.get(i));
+                    }
+                }
+
+                if (old != null) {
+                    System.out.println("Reused " + state.mReused + " unchanged entries, compressed "
+                            + state.mCompressed + " new or changed files");
+                }
+                if (mDeduplicate) {
+                    System.out.println("Deduplicated " + state.mDuplicates + " files");
+                }
+                if (!state.mAliases.isEmpty()) {
+                    addProperties(jar, JarPresenter.ALIASES_PATH, state.mAliases);
+                }
+                addProperties(jar, JarPresenter.METADATA_PATH, named ? hubMetadata : deckMetadata.get(0));
+            }
+            Files.move(tmpFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
 
             System.out.println("New Jar created: " + targetFile);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+
+    }
 
-        } catch (final IOException e) {
-            if (targetFile.exists()) {
-                targetFile.delete();
+    /**
+     * Opens the source of a presentation.
+     *
+     * @param named     whether the presentation needs a name
+     * @param streamTar whether a tar archive is packed straight into the jar.
+     *                  Else it is converted to a temporary zip file.
+     */
+    private static DeckSource openSource(final String presentationDir, final Path targetFile, final boolean named,
+            final boolean streamTar) throws IOException {
+        if (named && ArchiveSource.STDIN.equals(presentationDir)) {
+            throw new IllegalArgumentException("Reading from stdin is only supported for a single presentation.");
+        }
+        if (ArchiveSource.isArchive(presentationDir)) {
+            final String name = named
+                    ? Path.of(presentationDir).getFileName().toString().replaceFirst("(\\.tar)?\\.[^.]*$", "")
+                    : null;
+            if (streamTar) {
+                final InputStream in = ArchiveSource.openStream(presentationDir);
+                if (!ArchiveSource.isZip(in)) {
+                    return new DeckSource(name, null, null, ArchiveSource.tar(in), presentationDir);
+                }
+                in.close();
             }
-            throw e;
+            final ArchiveSource archive = ArchiveSource.open(presentationDir, targetFile.getParent());
+            return new DeckSource(name, archive.getRoot(), archive, null, presentationDir);
+        }
+        final Path sourceRoot = Path.of(presentationDir).toAbsolutePath().normalize();
+        if (targetFile.startsWith(sourceRoot)) {
+            throw new IllegalArgumentException("Target JAR and presentation locations overlap.");
         }
+        return new DeckSource(named ? sourceRoot.getFileName().toString() : null, sourceRoot, null, null,
+                presentationDir);
+    }
 
+    /**
+     * Whether the build needs to read the files of a presentation more than
+     * once or in a different order than stored in a archive.
+     */
+    private boolean needsRandomAccess() {
+        return mPrune || mMinify || mFingerprint || mDeduplicate;
+    }
+
+    /**
+     * Rebuilds a existing jar-presenter jar with the classes of the current jar.
+     * The presentation is copied as is from the existing jar, without inflating
+     * and deflating it again. Used to upgrade a presentation jar to a new version
+     * of jar-presenter.
+     *
+     * @param jarName the jar to rebuild
+     * @throws IOException              on IO problems
+     * @throws IllegalArgumentException if the jar is not a jar-presenter jar or is
+     *                                  the current jar
+     */
+    public void rebuild(final String jarName) throws IOException {
+        final Path jarFile = Path.of(jarName).toAbsolutePath();
+        if (Files.isSameFile(jarFile, jarpJarFile())) {
+            throw new IllegalArgumentException("Can't rebuild the running jar: " + jarName);
+        }
+
+        final Path tmpFile = Files.createTempFile(jarFile.getParent(), ".jarp-", ".tmp");
+        try {
+            try (ZipIndex oldJar = ZipIndex.open(jarFile); ZipWriter jar = new ZipWriter(tmpFile)) {
+                if (oldJar.getEntry(JarPresenter.METADATA_PATH) == null) {
+                    throw new IllegalArgumentException("Not a jar-presenter jar: " + jarName);
+                }
+
+                writeManifest(jar, createManifest());
+                copyJarpClasses(jar);
+
+                System.out.println("Copying presentation ...");
+                for (final ZipIndex.Entry entry : oldJar.entries()) {
+                    if (entry.getName().startsWith(JarPresenter.PRESENTATION_DIR + '/')) {
+                        jar.copyEntry(oldJar, entry, entry.getName(), entryTime(entry.getTime()));
+                    }
+                }
+            }
+            Files.move(tmpFile, jarFile, StandardCopyOption.REPLACE_EXISTING);
+
+            System.out.println("Jar rebuilt: " + jarFile);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private void addProperties(final ZipWriter jar, final String name, final Properties props) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utilities.storeProperties(props, bytes);
+        jar.addEntry(name, entryTime(System.currentTimeMillis()), bytes.toByteArray(), ZipEntry.DEFLATED);
+    }
+
+    private void writeManifest(final ZipWriter jar, final Manifest manifest) throws IOException {
+        final long now = entryTime(System.currentTimeMillis());
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        manifest.write(bos);
+        jar.addDirectory("META-INF/", now);
+        jar.addEntry(JarFile.MANIFEST_NAME, now, bos.toByteArray(), ZipEntry.DEFLATED);
     }
 
     private Manifest createManifest() {
@@ -111,15 +517,15 @@ public class JarpBuilder {
         attr.put(Attributes.Name.MAIN_CLASS, JarPresenter.class.getName());
 
         attr.put(new Name("Created-By"), "jar-presenter");
-        attr.put(new Name("Jarp-Build-Date"), OffsetDateTime.now().toString());
+        attr.put(new Name("Jarp-Build-Date"), mBuildDate.toString());
 
         return mf;
     }
 
-    private Properties createMetaData(final String presentationDir, final String title, final String initialHtml)
+    private Properties createMetaData(final Path presentationDir, final String title, final String initialHtml)
             throws IOException {
 
-        final Path metadataFile = Paths.get(presentationDir, JarPresenter.METADATA_BASENAME);
+        final Path metadataFile = presentationDir.resolve(JarPresenter.METADATA_BASENAME);
 
         final Properties props;
         if (Files.exists(metadataFile)) {
@@ -129,13 +535,35 @@ public class JarpBuilder {
             props = new Properties();
         }
 
+        final List<String> files;
+        try (Stream<Path> stream = Files.list(presentationDir)) {
+            files = stream.filter(Files::isRegularFile)
+                    .map(f -> f.getFileName().toString())
+                    .collect(Collectors.toList());
+        }
+        return completeMetaData(props, title, initialHtml, files, presentationDir.toString(),
+                page -> Files.exists(presentationDir.resolve(page)));
+    }
+
+    /**
+     * Adds the title and start page to the metadata and checks it.
+     *
+     * @param files    the names of the files in the top-level directory of the
+     *                 presentation
+     * @param location the location of the presentation, for messages
+     * @param exists   checks whether a file (relative to the presentation
+     *                 directory) exists
+     */
+    private Properties completeMetaData(final Properties props, final String title, final String initialHtml,
+            final List<String> files, final String location, final Predicate<String> exists)
+            throws IOException {
         if (title != null) {
             props.setProperty(JarPresenter.PROP_TITLE, title);
         }
         if (initialHtml != null) {
             props.setProperty(JarPresenter.PROP_STARTPAGE, initialHtml);
         } else if (!props.containsKey(JarPresenter.PROP_STARTPAGE)) {
-            final String startPage = getStartPage(presentationDir);
+            final String startPage = getStartPage(files, location);
             if (startPage != null) {
                 props.setProperty(JarPresenter.PROP_STARTPAGE, startPage);
             } else {
@@ -143,10 +571,15 @@ public class JarpBuilder {
             }
         }
 
-        final Path startPage = Paths.get(presentationDir, props.getProperty(JarPresenter.PROP_STARTPAGE));
+        for (final String key : props.stringPropertyNames()) {
+            if (key.startsWith(CacheRules.PROP_PREFIX)) {
+                CacheRules.validate(key, props.getProperty(key));
+            }
+        }
 
-        if (!Files.exists(startPage)) {
-            throw new FileNotFoundException(startPage.toString());
+        final String startPage = props.getProperty(JarPresenter.PROP_STARTPAGE).replaceFirst("^/+", "");
+        if (!exists.test(startPage)) {
+            throw new FileNotFoundException(location + File.separatorChar + startPage);
         }
 
         System.out.println("Metadata: " + props);
@@ -154,26 +587,26 @@ public class JarpBuilder {
         return props;
     }
 
-    private String getStartPage(final String presentationDir) {
+    private String getStartPage(final List<String> allFiles, final String location) {
 
-        final File[] files = Paths.get(presentationDir).toFile()
-                .listFiles(f -> f.isFile() && f.getName().toLowerCase().endsWith(".html"));
+        final List<String> files = allFiles.stream()
+                .filter(n -> n.toLowerCase().endsWith(".html"))
+                .sorted()
+                .collect(Collectors.toList());
 
-        if (files.length == 1) {
-            return files[0].getName();
-        } else if (files.length == 0) {
-            System.err.println("No html page found in " + presentationDir);
+        if (files.size() == 1) {
+            return files.get(0);
+        } else if (files.isEmpty()) {
+            System.err.println("No html page found in " + location);
             System.exit(1);
-        } else if (files.length > 1) {
-            for (final File file : files) {
-                if ("index.html".equals(file.getName())) {
-                    return file.getName();
-                }
+        } else if (files.size() > 1) {
+            if (files.contains("index.html")) {
+                return "index.html";
             }
             // No file 'index.html'
             System.err.println("Multiple possible start pages found. Use '-s' to name one");
-            for (final File file : files) {
-                System.err.println(" - " + file.getName());
+            for (final String file : files) {
+                System.err.println(" - " + file);
             }
             System.exit(1);
         }
@@ -181,108 +614,574 @@ public class JarpBuilder {
     }
 
     private Properties loadMetadataProps(final Path metadataFile) throws IOException {
-        try (InputStream in = new FileInputStream(metadataFile.toFile())) {
+        try (InputStream in = Files.newInputStream(metadataFile)) {
             final Properties props = new Properties();
             props.load(in);
             return props;
         }
     }
 
-    private void copyJarpClasses(final JarOutputStream jarx) throws IOException {
+    /**
+     * Copies the jar-presenter classes from the current jar. The compressed data
+     * is copied as is, without inflating and deflating it again.
+     */
+    private void copyJarpClasses(final ZipWriter jarx) throws IOException {
         System.out.println("Copying java classes ...");
 
-        try {
-            final String jarpJarFile = new File(
-                    JarpBuilder.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
-
-            try (JarFile jarpJar = new JarFile(jarpJarFile)) {
-                final Enumeration<JarEntry> enumEntries = jarpJar.entries();
-                while (enumEntries.hasMoreElements()) {
-                    final JarEntry jarEntry = enumEntries.nextElement();
-                    if (jarEntry.getName().startsWith("de/r3s6/jarp")) {
-                        if (jarEntry.isDirectory()) {
-                            // no /-suffix needed, as it is already there
-                            final JarEntry tgtEntry = new JarEntry(jarEntry.getName());
-                            jarx.putNextEntry(tgtEntry);
-                            jarx.closeEntry();
-                        } else {
-                            final JarEntry tgtEntry = new JarEntry(jarEntry.getName());
-                            jarx.putNextEntry(tgtEntry);
-                            try (InputStream in = jarpJar.getInputStream(jarEntry)) {
-                                in.transferTo(jarx);
-                            } finally {
-                                jarx.closeEntry();
-                            }
-                        }
+        try (ZipIndex jarpJar = ZipIndex.open(jarpJarFile())) {
+            for (final ZipIndex.Entry entry : jarpJar.entries()) {
+                if (entry.getName().startsWith("de/r3s6/jarp")) {
+                    if (entry.isDirectory()) {
+                        // no /-suffix needed, as it is already there
+                        jarx.addDirectory(entry.getName(), entryTime(entry.getTime()));
+                    } else {
+                        jarx.copyEntry(jarpJar, entry, entry.getName(), entryTime(entry.getTime()));
                     }
                 }
             }
+        }
+    }
+
+    /**
+     * Gets the jar file containing the jar-presenter classes.
+     */
+    private Path jarpJarFile() {
+        if (mJarpJar != null) {
+            return mJarpJar;
+        }
+        try {
+            return Path.of(JarpBuilder.class.getProtectionDomain().getCodeSource().getLocation().toURI());
         } catch (final URISyntaxException e) {
             // I think that this should never happen.
             throw new RuntimeException("Unexpected exception: " + e, e);
         }
     }
 
-    private void copyPresentation(final JarOutputStream jar, final String sourceDir, final String root)
-            throws IOException {
-        System.out.println("Copying presentation ...");
-        final Path searchRoot = Path.of(sourceDir);
+    /**
+     * Copies a presentation into the jar. Also writes its resource manifest. The
+     * aliases of deduplicated files are collected in the given state.
+     *
+     * @param prefix the path of the presentation in the presentation directory
+     *               (like "/keynote") or "" for a single presentation
+     */
+    private void copyPresentation(final ZipWriter jar, final DeckSource source, final ZipIndex oldJar,
+            final String startPage, final String prefix, final PackingState state) throws IOException {
+        System.out.println("Copying presentation " + (source.mName != null ? source.mName + " " : "") + "...");
+        final Path searchRoot = source.mRoot;
+        final String root = JarPresenter.PRESENTATION_DIR + prefix;
+
+        // sorted, so the order of the entries doesn't depend on the file system
+        final List<Path> paths;
+        try (Stream<Path> stream = Files.walk(searchRoot)) {
+            paths = stream.sorted(Comparator.comparing(p -> p.toString().replace(File.separatorChar, '/')))
+                    .collect(Collectors.toList());
+        }
+        List<Path> files = paths.stream().filter(Files::isRegularFile)
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        final Crawler crawler = new Crawler(searchRoot, files);
+        final Path startFile = searchRoot.resolve(startPage.replaceFirst("^/+", ""));
+        final Set<Path> accessOrder = crawler.crawl(List.of(startFile));
+
+        if (mPrune) {
+            files = pruneFiles(searchRoot, files, crawler, startFile);
+        }
+
+        // order the files like a browser would request them
+        final Map<Path, Integer> position = new HashMap<>();
+        for (final Path file : accessOrder) {
+            position.put(file, position.size());
+        }
+        files.sort(Comparator.comparingInt((final Path f) -> accessRank(f, startFile, position))
+                .thenComparingInt(f -> position.getOrDefault(f, 0)));
+
+        final List<Path> remaining = files;
+        final List<Path> dirs = paths.stream().filter(Files::isDirectory)
+                .filter(d -> !mPrune || remaining.stream().anyMatch(f -> f.startsWith(d)))
+                .collect(Collectors.toList());
+
+        final MinifyCache minifyCache = mMinify ? new MinifyCache(oldJar, root) : null;
+        final Map<Path, byte[]> contents = mMinify ? minifyFiles(files, minifyCache) : new HashMap<>();
+        final Map<Path, byte[]> minified = new HashMap<>(contents);
+        final Map<Path, String> names;
+        if (mFingerprint) {
+            names = new Fingerprinter(searchRoot, files, contents).run();
+            System.out.println("Fingerprinted " + names.size() + " files");
+        } else {
+            names = Collections.emptyMap();
+        }
 
-        final FileVisitor<Path> visitor = new PackingVisitor(jar, searchRoot, root);
+        final PresentationPacker packer = new PresentationPacker(jar, searchRoot, root, prefix, mPrecompress, oldJar,
+                state, contents, names, mFixedTime, source.mArchive);
 
-        Files.walkFileTree(searchRoot, visitor);
+        // directories first, so they exist when extracting the files
+        for (final Path dir : dirs) {
+            packer.addDirectory(dir);
+        }
+        for (final Path file : files) {
+            packer.addFile(file);
+        }
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        packer.mManifest.store(bos);
+        jar.addEntry(root + '/' + JarPresenter.RESOURCES_BASENAME, entryTime(System.currentTimeMillis()),
+                bos.toByteArray(), ZipEntry.DEFLATED);
 
+        if (minifyCache != null) {
+            // only entries with the plain minified content, not rewritten by the fingerprinter
+            for (final Map.Entry<Path, byte[]> e : minified.entrySet()) {
+                final String entryName = packer.mEntries.get(e.getKey());
+                if (entryName != null && contents.get(e.getKey()) == e.getValue()) {
+                    minifyCache.stored(e.getKey(), entryName);
+                }
+            }
+            jar.addEntry(root + '/' + JarPresenter.MINIFIED_BASENAME, entryTime(System.currentTimeMillis()),
+                    minifyCache.toByteArray(), ZipEntry.DEFLATED);
+        }
     }
 
-    private static final class PackingVisitor extends SimpleFileVisitor<Path> {
-        private JarOutputStream mJar;
+    /**
+     * Packs a presentation from a tar archive straight into the jar, without a
+     * temporary file. The files are stored in the order of the archive, as the
+     * stream can only be read once. Also writes the resource manifest.
+     * <p>
+     * If the first entry of the archive is a top-level directory, it is the
+     * root of the presentation and all other entries must be inside of it.
+     *
+     * @param prefix the path of the presentation in the presentation directory
+     *               (like "/keynote") or "" for a single presentation
+     * @return the metadata of the presentation
+     */
+    private Properties streamPresentation(final ZipWriter jar, final DeckSource source, final String prefix,
+            final String title, final String initialHtml, final PackingState state) throws IOException {
+        System.out.println("Copying presentation " + (source.mName != null ? source.mName + " " : "") + "...");
+        final String root = JarPresenter.PRESENTATION_DIR + prefix;
+        final TarReader tar = source.mTar;
+
+        final Properties props = new Properties();
+        // path to SHA-256 hash and size of the stored files
+        final Map<String, String> hashes = new LinkedHashMap<>();
+        final Map<String, Long> sizes = new HashMap<>();
+        final Set<String> gzipVariants = new HashSet<>();
+
+        String top = null;
+        boolean first = true;
+        TarReader.Entry entry;
+        while ((entry = tar.next()) != null) {
+            String name = entry.getName();
+            if (first) {
+                first = false;
+                if (entry.isDirectory() && name.indexOf('/') < 0) {
+                    top = name.isEmpty() ? null : name + '/';
+                    jar.addDirectory(root + '/', entryTime(entry.getTime()));
+                    continue;
+                }
+                jar.addDirectory(root + '/', entryTime(System.currentTimeMillis()));
+            }
+            if (top != null) {
+                if (!name.startsWith(top)) {
+                    throw new IOException("Entry outside of the top-level directory " + top + ": " + name);
+                }
+                name = name.substring(top.length());
+            }
+
+            if (name.isEmpty() || gzipVariants.contains(name)) {
+                // the root again or a variant already created from the file
+                continue;
+            } else if (entry.isDirectory()) {
+                jar.addDirectory(root + '/' + name + '/', entryTime(entry.getTime()));
+            } else if (JarPresenter.METADATA_BASENAME.equals(name)) {
+                props.load(tar.getInputStream());
+                System.out.println("Metadata file found: " + props);
+            } else if (!PresentationPacker.isBuilderFile(name)) {
+                final String entryName = root + '/' + name;
+                final long time = entryTime(entry.getTime());
+                if (mPrecompress && !hashes.containsKey(name + GZIP_SUFFIX)
+                        && ContentTypes.instance().isCompressible(name.substring(name.lastIndexOf('/') + 1))) {
+                    // compressible files are read completely, like in copyPresentation
+                    final byte[] data = tar.getInputStream().readAllBytes();
+                    jar.addEntry(entryName, time, data, ZipEntry.DEFLATED);
+                    final byte[] gzData = Utilities.gzip(data, Deflater.BEST_COMPRESSION);
+                    if (gzData.length < data.length) {
+                        jar.addEntry(entryName + GZIP_SUFFIX, time, gzData, ZipEntry.STORED);
+                        gzipVariants.add(name + GZIP_SUFFIX);
+                    }
+                    hashes.put(name, Utilities.sha256(data));
+                } else {
+                    final MessageDigest digest = Utilities.sha256Digest();
+                    try (InputStream in = new DigestInputStream(tar.getInputStream(), digest)) {
+                        jar.addEntry(entryName, time, in, ZipEntry.DEFLATED);
+                    }
+                    hashes.put(name, Utilities.toHex(digest.digest()));
+                }
+                sizes.put(name, entry.getSize());
+                state.mCompressed++;
+            }
+        }
+
+        final ResourceManifest manifest = new ResourceManifest();
+        for (final Map.Entry<String, String> e : hashes.entrySet()) {
+            final String variant = e.getKey() + GZIP_SUFFIX;
+            manifest.add('/' + e.getKey(), sizes.get(e.getKey()), PresentationPacker.etag(e.getValue()),
+                    hashes.containsKey(variant) || gzipVariants.contains(variant), false);
+        }
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        manifest.store(bos);
+        jar.addEntry(root + '/' + JarPresenter.RESOURCES_BASENAME, entryTime(System.currentTimeMillis()),
+                bos.toByteArray(), ZipEntry.DEFLATED);
+
+        final List<String> files = hashes.keySet().stream().filter(n -> n.indexOf('/') < 0)
+                .collect(Collectors.toList());
+        return completeMetaData(props, title, initialHtml, files, source.mLocation, hashes::containsKey);
+    }
+
+    /**
+     * Leaves out the files that are not reachable from the start page or
+     * matching one of the keep patterns. The pruned files are listed.
+     *
+     * @return the remaining files
+     */
+    private List<Path> pruneFiles(final Path searchRoot, final List<Path> files, final Crawler crawler,
+            final Path startFile) throws IOException {
+        final List<Pattern> keep = mKeepGlobs.stream()
+                .map(g -> Pattern.compile(Utilities.globToRegex(g.trim().replaceFirst("^/+", ""))))
+                .collect(Collectors.toList());
+        final List<Path> startFiles = new ArrayList<>();
+        startFiles.add(startFile);
+        for (final Path file : files) {
+            final String relPath = searchRoot.relativize(file).toString().replace(File.separatorChar, '/');
+            if (keep.stream().anyMatch(p -> p.matcher(relPath).matches())) {
+                startFiles.add(file);
+            }
+        }
+        final Set<Path> reachable = crawler.crawl(startFiles);
+
+        int prunedCount = 0;
+        long prunedSize = 0;
+        for (final Path file : files) {
+            final String relPath = searchRoot.relativize(file).toString();
+            if (!reachable.contains(file) && !PresentationPacker.isBuilderFile(relPath)) {
+                System.out.println("  - " + relPath);
+                prunedCount++;
+                prunedSize += Files.size(file);
+            }
+        }
+        System.out.println("Pruned " + prunedCount + " unreferenced files (" + prunedSize / 1024 // NOCS: MagicNumber
+                + " KB)");
+        return files.stream().filter(reachable::contains).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Ranks a file for the order of the entries: The start page, the files
+     * needed to render it (CSS, JavaScript, fonts), other referenced files and
+     * finally unreferenced files.
+     */
+    private static int accessRank(final Path file, final Path startFile, final Map<Path, Integer> position) {
+        if (file.equals(startFile)) {
+            return 0;
+        }
+        if (!position.containsKey(file)) {
+            return 3; // NOCS: MagicNumber
+        }
+        final String type = ContentTypes.instance().guess(file.getFileName().toString())[0];
+        if ("text/css".equals(type) || type.endsWith("/javascript") || type.startsWith("font/")) {
+            return 1;
+        }
+        return 2;
+    }
+
+    /**
+     * Gets the time to use for a entry.
+     */
+    private long entryTime(final long time) {
+        return mFixedTime != NO_FIXED_TIME ? mFixedTime : time;
+    }
+
+    /**
+     * Minifies all supported files in parallel. Files unchanged since the last
+     * build are taken from the old jar.
+     *
+     * @return map of file to minified content. Files that were not reduced in
+     *         size are not contained.
+     */
+    private Map<Path, byte[]> minifyFiles(final List<Path> allFiles, final MinifyCache cache) throws IOException {
+        final List<Path> files = allFiles.stream()
+                .filter(f -> Minifier.supports(f.getFileName().toString()))
+                .collect(Collectors.toList());
+
+        final Map<Path, byte[]> result = new ConcurrentHashMap<>();
+        try {
+            files.parallelStream().forEach(f -> {
+                try {
+                    final byte[] data = cache.minify(f);
+                    if (data != null) {
+                        result.put(f, data);
+                    }
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+        System.out.println("Minified " + result.size() + " of " + files.size() + " HTML, CSS and JavaScript files ("
+                + cache.getReused() + " from previous build)");
+        return result;
+    }
+
+    /**
+     * A presentation to add to the jar.
+     */
+    private static final class DeckSource {
+        /** Name of the presentation. {@code null} for a single presentation. */
+        private final String mName;
+        /** Root directory. {@code null} for a tar archive read as stream. */
+        private final Path mRoot;
+        /** Archive containing the presentation. {@code null} for a directory or tar stream. */
+        private final ArchiveSource mArchive;
+        /** Tar archive packed straight into the jar. */
+        private final TarReader mTar;
+        /** The directory or archive as given by the user. */
+        private final String mLocation;
+
+        private DeckSource(final String name, final Path root, final ArchiveSource archive, final TarReader tar,
+                final String location) {
+            mName = name != null ? Utilities.toUrlName(name) : null;
+            mRoot = root;
+            mArchive = archive;
+            mTar = tar;
+            mLocation = location;
+        }
+    }
+
+    /**
+     * State shared by the PresentationPackers of all presentations in a jar, so
+     * identical files are only stored once, even in different presentations.
+     * All paths are relative to the presentation directory of the jar, including
+     * the name of the presentation (like "/keynote/index.html").
+     */
+    private static final class PackingState {
+        /** SHA-256 digest to path of stored file. {@code null} if not deduplicating. */
+        private final Map<String, String> mDigests;
+        /** Path of duplicate or renamed file to path of the stored file. */
+        private final Properties mAliases = new Properties();
+        /** Path of stored file to whether it has a gzip variant. */
+        private final Map<String, Boolean> mGzipVariants = new HashMap<>();
+        private int mReused;
+        private int mCompressed;
+        private int mDuplicates;
+
+        private PackingState(final boolean deduplicate) {
+            mDigests = deduplicate ? new HashMap<>() : null;
+        }
+    }
+
+    /**
+     * Adds the directories and files of a presentation to the jar.
+     */
+    private static final class PresentationPacker {
+        private ZipWriter mJar;
         private Path mSearchRoot;
         private String mSubdir;
+        /** Path of the presentation in the presentation directory, "" for a single one. */
+        private String mPrefix;
+        private boolean mPrecompress;
+        /** Existing jar to reuse entries from. Might be {@code null}. */
+        private ZipIndex mOldJar;
+        private final PackingState mState;
+        /** Transformed (minified or rewritten) content of files. */
+        private final Map<Path, byte[]> mContents;
+        /** New names of fingerprinted files. */
+        private final Map<Path, String> mNames;
+        /** Names of the entries holding the content of the files. */
+        private final Map<Path, String> mEntries = new HashMap<>();
+        /** Manifest of all resources of the presentation. */
+        private final ResourceManifest mManifest = new ResourceManifest();
+        /** Time used for all entries or {@link #NO_FIXED_TIME}. */
+        private final long mFixedTime;
+        /** Archive containing the presentation. {@code null} for a directory. */
+        private final ArchiveSource mArchive;
 
-        private PackingVisitor(final JarOutputStream jarOut, final Path searchRoot, final String subdir) {
+        // CSOFF: ParameterNumber
+        private PresentationPacker(final ZipWriter jarOut, final Path searchRoot, final String subdir,
+                final String prefix, final boolean precompress, final ZipIndex oldJar, final PackingState state,
+                final Map<Path, byte[]> contents, final Map<Path, String> names, final long fixedTime,
+                final ArchiveSource archive) {
             mJar = jarOut;
             mSearchRoot = searchRoot;
             mSubdir = subdir;
+            mPrefix = prefix;
+            mPrecompress = precompress;
+            mOldJar = oldJar;
+            mState = state;
+            mContents = contents;
+            mNames = names;
+            mFixedTime = fixedTime;
+            mArchive = archive;
         }
+        // CSON: ParameterNumber
 
-        @Override
-        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+        private void addDirectory(final Path dir) throws IOException {
             final String entryPath;
             if (mSearchRoot.equals(dir)) {
                 entryPath = mSubdir + "/";
             } else {
-                final Path jarEntryPath = mSearchRoot.relativize(dir);
-                entryPath = mSubdir + "/" + jarEntryPath + "/";
+                entryPath = mSubdir + "/" + entryPath(dir) + "/";
             }
-            final JarEntry entry = new JarEntry(entryPath);
-            mJar.putNextEntry(entry);
-            mJar.closeEntry();
-
-            return FileVisitResult.CONTINUE;
-        }
-
-        @Override
-        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-            final Path jarEntryPath = mSearchRoot.relativize(file);
-
-            if (!JarPresenter.METADATA_BASENAME.equals(jarEntryPath.toString())) {
-                final JarEntry entry = new JarEntry(mSubdir + '/' + jarEntryPath);
-                mJar.putNextEntry(entry);
-                try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file.toFile()))) {
-                    final byte[] buffer = new byte[1024 * 1024]; // NOCS: MagicNumber
-                    while (true) {
-                        final int count = in.read(buffer);
-                        if (count == -1) {
-                            break;
+            mJar.addDirectory(entryPath, time(dir));
+        }
+
+        private void addFile(final Path file) throws IOException {
+            final String jarEntryPath = entryPath(file);
+
+            if (!isBuilderFile(jarEntryPath)) {
+                final String path = '/' + jarEntryPath;
+                final String newName = mNames.get(file);
+                final boolean renamed = newName != null;
+                final String storedPath = renamed ? path.substring(0, path.lastIndexOf('/') + 1) + newName : path;
+
+                final byte[] content = mContents.get(file);
+                final long size = content != null ? content.length : Files.size(file);
+                final String hash = content != null ? Utilities.sha256(content) : Utilities.sha256(file);
+
+                final String original = mState.mDigests != null
+                        ? mState.mDigests.putIfAbsent(hash, mPrefix + storedPath)
+                        : null;
+                if (original != null) {
+                    // identical content already stored, maybe in another presentation
+                    mState.mDuplicates++;
+                    mEntries.put(file, JarPresenter.PRESENTATION_DIR + original);
+                    addAlias(storedPath, original, size, hash, renamed);
+                    if (renamed) {
+                        addAlias(path, original, size, hash, false);
+                    }
+                    return;
+                }
+
+                final String entryName = mSubdir + storedPath;
+                mEntries.put(file, entryName);
+                final long time = time(file);
+
+                final boolean unchanged = reuseEntry(entryName, file, time, size, content);
+                if (!unchanged) {
+                    final ZipIndex.Entry rawEntry = mArchive != null ? mArchive.rawEntry(file) : null;
+                    if (content != null) {
+                        mJar.addEntry(entryName, time, content, ZipEntry.DEFLATED);
+                    } else if (rawEntry != null) {
+                        // already compressed in the source archive
+                        mJar.copyEntry(mArchive.getZip(), rawEntry, entryName, time);
+                    } else {
+                        try (InputStream in = Files.newInputStream(file)) {
+                            mJar.addEntry(entryName, time, in, ZipEntry.DEFLATED);
                         }
-                        mJar.write(buffer, 0, count);
                     }
-                } finally {
-                    mJar.closeEntry();
+                    mState.mCompressed++;
+                }
+
+                // a existing variant is not renamed, so it is only used with the original name
+                final boolean gzipVariant = !renamed
+                        && Files.exists(file.resolveSibling(file.getFileName() + GZIP_SUFFIX))
+                        || mPrecompress && addGzipVariant(file, entryName + GZIP_SUFFIX, time, unchanged);
+                mManifest.add(storedPath, size, etag(hash), gzipVariant, renamed);
+                mState.mGzipVariants.put(mPrefix + storedPath, gzipVariant);
+                if (renamed) {
+                    addAlias(path, mPrefix + storedPath, size, hash, false);
                 }
             }
+        }
+
+        /**
+         * Whether the file is created by the builder. Such files are not copied from
+         * the presentation directory.
+         */
+        private static boolean isBuilderFile(final String jarEntryPath) {
+            return JarPresenter.METADATA_BASENAME.equals(jarEntryPath)
+                    || JarPresenter.ALIASES_BASENAME.equals(jarEntryPath)
+                    || JarPresenter.RESOURCES_BASENAME.equals(jarEntryPath)
+                    || JarPresenter.MINIFIED_BASENAME.equals(jarEntryPath);
+        }
+
+        private static String etag(final String hash) {
+            return hash.substring(0, 32).toUpperCase(Locale.ROOT); // NOCS: MagicNumber
+        }
+
+        /**
+         * Records a alias for a file that is stored with a different path.
+         *
+         * @param path   the path in this presentation
+         * @param target the path of the stored file, including the presentation
+         *               prefix
+         */
+        private void addAlias(final String path, final String target, final long size, final String hash,
+                final boolean immutable) {
+            mState.mAliases.setProperty(mPrefix + path, target);
+            mManifest.add(path, size, etag(hash), mState.mGzipVariants.getOrDefault(target, false), immutable);
+        }
+
+        private static long crc32(final Path file, final byte[] data) throws IOException {
+            if (data == null) {
+                return Utilities.crc32(file);
+            }
+            final CRC32 crc = new CRC32();
+            crc.update(data);
+            return crc.getValue();
+        }
+
+        private long time(final Path path) throws IOException {
+            return mFixedTime != NO_FIXED_TIME ? mFixedTime : Files.getLastModifiedTime(path).toMillis();
+        }
+
+        private String entryPath(final Path file) {
+            return mSearchRoot.relativize(file).toString().replace(File.separatorChar, '/');
+        }
 
-            return FileVisitResult.CONTINUE;
+        /**
+         * Copies the entry from the old jar, if the file is unchanged. For a
+         * transformed file the transformed content is compared.
+         *
+         * @return whether the entry was copied
+         */
+        private boolean reuseEntry(final String entryName, final Path file, final long time, final long size,
+                final byte[] content) throws IOException {
+            final ZipIndex.Entry old = mOldJar != null ? mOldJar.getEntry(entryName) : null;
+            if (old == null || old.getSize() != size || !old.isSameTime(time)
+                    || old.getCrc() != crc32(file, content)) {
+                return false;
+            }
+            mJar.copyEntry(mOldJar, old);
+            mState.mReused++;
+            return true;
+        }
+
+        /**
+         * Adds a gzip compressed variant of the given file, if it is compressible and
+         * compression actually reduces the size. Skipped if the presentation already
+         * contains a variant. For a unchanged file the variant is copied from the old
+         * jar.
+         *
+         * @return whether a variant was added
+         */
+        private boolean addGzipVariant(final Path file, final String entryName, final long time,
+                final boolean unchanged) throws IOException {
+            final Path gzFile = file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+            if (!ContentTypes.instance().isCompressible(file.getFileName().toString()) || Files.exists(gzFile)) {
+                return false;
+            }
+
+            final ZipIndex.Entry old = unchanged ? mOldJar.getEntry(entryName) : null;
+            if (old != null && old.isSameTime(time)) {
+                mJar.copyEntry(mOldJar, old);
+                return true;
+            }
+
+            final byte[] data = mContents.containsKey(file) ? mContents.get(file) : Files.readAllBytes(file);
+            final byte[] gzData = Utilities.gzip(data, Deflater.BEST_COMPRESSION);
+            if (gzData.length < data.length) {
+                // Already compressed, so store it uncompressed
+                mJar.addEntry(entryName, time, gzData, ZipEntry.STORED);
+                return true;
+            }
+            return false;
         }
     }
 
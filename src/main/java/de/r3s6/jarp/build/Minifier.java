@@ -0,0 +1,454 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.build;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Set;
+
+import de.r3s6.jarp.server.ContentTypes;
+
+/**
+ * A conservative minifier for HTML, CSS and JavaScript.
+ * <p>
+ * It only removes comments and collapses whitespace. Nothing is renamed or
+ * rewritten. Strings, template literals, regular expressions and the content of
+ * elements like "pre" or "script" are copied unchanged.
+ * Comments starting with "/*!" (typically license headers) are kept.
+ * <p>
+ * For JavaScript line breaks are kept, as removing them might change the
+ * meaning of the code because of the automatic semicolon insertion.
+ *
+ * @author Ralf Schandl
+ */
+final class Minifier {
+
+    private static final String TYPE_HTML = "text/html";
+    private static final String TYPE_CSS = "text/css";
+    private static final String TYPE_JS = "application/javascript";
+
+    /** HTML elements whose content is copied unchanged. */
+    private static final Set<String> RAW_ELEMENTS = Set.of("pre", "textarea", "script", "style");
+
+    /** Whitespace before or after this characters is not needed in CSS. */
+    private static final String CSS_DELIMITERS = "{};,";
+
+    /**
+     * Whitespace after this characters is not needed in CSS. Not before the
+     * colon, as "a :hover" is different from "a:hover".
+     */
+    private static final String CSS_DELIMITERS_BEFORE = CSS_DELIMITERS + ":";
+
+    /** Whitespace before or after this characters is not needed in JavaScript. */
+    private static final String JS_DELIMITERS = "{}()[];,:=";
+
+    /** After this characters a slash starts a regular expression. */
+    private static final String JS_REGEX_PREFIX = "(,=:[!&|?{};+-*%<>~^";
+
+    /** After this keywords a slash starts a regular expression. */
+    private static final Set<String> JS_REGEX_KEYWORDS = Set.of("return", "typeof", "instanceof", "in", "of", "new",
+            "delete", "void", "throw", "case", "do", "else", "yield", "await");
+
+    private Minifier() {
+    }
+
+    /**
+     * Whether the given file can be minified. Files that are already minified
+     * (like "reveal.min.js") are not supported.
+     *
+     * @param fileName the file name
+     * @return whether the file type is supported
+     */
+    static boolean supports(final String fileName) {
+        if (fileName.contains(".min.")) {
+            return false;
+        }
+        switch (ContentTypes.instance().guess(fileName)[0]) {
+        case TYPE_HTML:
+        case TYPE_CSS:
+        case TYPE_JS:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Minifies the given file content.
+     *
+     * @param fileName the file name. Used to determine the file type.
+     * @param data     the file content. Must be UTF-8 encoded.
+     * @return the minified content or {@code null} if the file type is not
+     *         supported, the file is not UTF-8 encoded or minification doesn't
+     *         reduce the size
+     */
+    static byte[] minify(final String fileName, final byte[] data) {
+        if (!supports(fileName)) {
+            return null;
+        }
+        final String text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(data)).toString();
+        } catch (final CharacterCodingException e) {
+            return null;
+        }
+
+        final String minified;
+        switch (ContentTypes.instance().guess(fileName)[0]) {
+        case TYPE_HTML:
+            minified = minifyHtml(text);
+            break;
+        case TYPE_CSS:
+            minified = minifyCss(text);
+            break;
+        default:
+            minified = minifyJs(text);
+            break;
+        }
+        final byte[] result = minified.getBytes(StandardCharsets.UTF_8);
+        return result.length < data.length ? result : null;
+    }
+
+    /**
+     * Minifies HTML. Comments (except conditional comments) are removed and
+     * whitespace is collapsed. The content of the elements pre, textarea, script
+     * and style and of elements with the attribute "data-markdown" is kept.
+     */
+    static String minifyHtml(final String html) {
+        final StringBuilder out = new StringBuilder(html.length());
+        final int len = html.length();
+        int i = 0;
+        while (i < len) {
+            final char c = html.charAt(i);
+            if (html.startsWith("<!--", i) && !html.startsWith("<!--[", i) && !html.startsWith("<!--<!", i)) {
+                final int end = html.indexOf("-->", i + 4); // NOCS: MagicNumber
+                i = end < 0 ? len : end + 3; // NOCS: MagicNumber
+            } else if (c == '<' && i + 1 < len && (Character.isLetter(html.charAt(i + 1))
+                    || html.charAt(i + 1) == '/' || html.charAt(i + 1) == '!')) {
+                final int tagEnd = endOfTag(html, i);
+                final String tag = html.substring(i, tagEnd);
+                out.append(collapseTagWhitespace(tag));
+                i = tagEnd;
+                final String name = tagName(tag);
+                if (RAW_ELEMENTS.contains(name) || tag.contains("data-markdown")) {
+                    final int close = indexOfIgnoreCase(html, "</" + name, i);
+                    final int rawEnd = close < 0 ? len : close;
+                    out.append(html, i, rawEnd);
+                    i = rawEnd;
+                }
+            } else if (Character.isWhitespace(c)) {
+                int end = i;
+                boolean newline = false;
+                while (end < len && Character.isWhitespace(html.charAt(end))) {
+                    newline |= html.charAt(end) == '\n';
+                    end++;
+                }
+                final int last = out.length() - 1;
+                if (last >= 0 && (out.charAt(last) == ' ' || out.charAt(last) == '\n')) {
+                    // whitespace before a removed comment
+                    if (newline) {
+                        out.setCharAt(last, '\n');
+                    }
+                } else {
+                    out.append(newline ? '\n' : ' ');
+                }
+                i = end;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static int endOfTag(final String html, final int start) {
+        char quote = 0;
+        for (int i = start + 1; i < html.length(); i++) {
+            final char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return html.length();
+    }
+
+    private static String collapseTagWhitespace(final String tag) {
+        final StringBuilder sb = new StringBuilder(tag.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < tag.length(); i++) {
+            final char c = tag.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && c != '>') {
+                sb.append(' ');
+            }
+            space = false;
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static int indexOfIgnoreCase(final String text, final String str, final int start) {
+        for (int i = start; i <= text.length() - str.length(); i++) {
+            if (text.regionMatches(true, i, str, 0, str.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String tagName(final String tag) {
+        int end = 1;
+        while (end < tag.length() && Character.isLetterOrDigit(tag.charAt(end))) {
+            end++;
+        }
+        return tag.substring(1, end).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Minifies CSS. Comments are removed and whitespace is collapsed. Whitespace
+     * around braces, semicolons and commas is removed.
+     */
+    static String minifyCss(final String css) {
+        final StringBuilder out = new StringBuilder(css.length());
+        final int len = css.length();
+        boolean space = false;
+        int i = 0;
+        while (i < len) {
+            final char c = css.charAt(i);
+            if (c == '/' && css.startsWith("/*", i) && !css.startsWith("/*!", i)) {
+                final int end = css.indexOf("*/", i + 2);
+                i = end < 0 ? len : end + 2;
+                space = true;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+                i++;
+            } else {
+                if (space && out.length() > 0 && CSS_DELIMITERS_BEFORE.indexOf(out.charAt(out.length() - 1)) < 0
+                        && CSS_DELIMITERS.indexOf(c) < 0) {
+                    out.append(' ');
+                }
+                space = false;
+                final int end = c == '"' || c == '\'' ? endOfString(css, i, c)
+                        : c == '/' ? endOfComment(css, i) : i + 1;
+                out.append(css, i, end);
+                i = end;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Minifies JavaScript. Comments are removed and whitespace is collapsed. Line
+     * breaks are kept.
+     */
+    static String minifyJs(final String js) {
+        final StringBuilder out = new StringBuilder(js.length());
+        final int len = js.length();
+        // brace depth of the code inside of template literal placeholders
+        final Deque<Integer> templates = new ArrayDeque<>();
+        int depth = 0;
+        boolean space = false;
+        boolean newline = false;
+        int i = 0;
+        while (i < len) {
+            final char c = js.charAt(i);
+            final char next = i + 1 < len ? js.charAt(i + 1) : 0;
+            if (c == '/' && next == '/') {
+                final int end = js.indexOf('\n', i);
+                i = end < 0 ? len : end;
+                space = true;
+            } else if (c == '/' && next == '*' && !js.startsWith("/*!", i)) {
+                final int end = js.indexOf("*/", i + 2);
+                final int commentEnd = end < 0 ? len : end + 2;
+                newline |= js.substring(i, commentEnd).indexOf('\n') >= 0;
+                i = commentEnd;
+                space = true;
+            } else if (Character.isWhitespace(c)) {
+                newline |= c == '\n';
+                space = true;
+                i++;
+            } else {
+                if (space && out.length() > 0) {
+                    final char prev = out.charAt(out.length() - 1);
+                    if (newline) {
+                        out.append('\n');
+                    } else if (JS_DELIMITERS.indexOf(prev) < 0 && JS_DELIMITERS.indexOf(c) < 0) {
+                        out.append(' ');
+                    }
+                }
+                space = false;
+                newline = false;
+
+                final int end;
+                if (c == '"' || c == '\'') {
+                    end = endOfString(js, i, c);
+                } else if (c == '`') {
+                    end = endOfTemplate(js, i + 1);
+                    if (js.startsWith("${", end - 2)) {
+                        templates.push(depth);
+                        depth = 0;
+                    }
+                } else if (c == '}' && depth == 0 && !templates.isEmpty()) {
+                    // end of template literal placeholder -> continue the template
+                    depth = templates.pop();
+                    end = endOfTemplate(js, i + 1);
+                    if (js.startsWith("${", end - 2)) {
+                        templates.push(depth);
+                        depth = 0;
+                    }
+                } else if (js.startsWith("/*!", i)) {
+                    end = endOfComment(js, i);
+                } else if (c == '/' && isRegexStart(out)) {
+                    end = endOfRegex(js, i);
+                } else {
+                    if (c == '{') {
+                        depth++;
+                    } else if (c == '}') {
+                        depth--;
+                    }
+                    end = i + 1;
+                }
+                out.append(js, i, end);
+                i = end;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Whether a slash at the current position starts a regular expression
+     * literal. Decided by the previous token. In doubt it is assumed to be a
+     * regular expression, as it is then copied unchanged.
+     */
+    private static boolean isRegexStart(final CharSequence out) {
+        int end = out.length();
+        while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+            end--;
+        }
+        if (end == 0) {
+            return true;
+        }
+        final char prev = out.charAt(end - 1);
+        if (JS_REGEX_PREFIX.indexOf(prev) >= 0 || prev == '}') {
+            return true;
+        }
+        if (!Character.isJavaIdentifierPart(prev)) {
+            return false;
+        }
+        int start = end;
+        while (start > 0 && Character.isJavaIdentifierPart(out.charAt(start - 1))) {
+            start--;
+        }
+        return JS_REGEX_KEYWORDS.contains(out.subSequence(start, end).toString());
+    }
+
+    /**
+     * Finds the end of a regular expression literal. If the line ends before, the
+     * end of the line is returned.
+     */
+    private static int endOfRegex(final String js, final int start) {
+        boolean inClass = false;
+        int i = start + 1;
+        while (i < js.length()) {
+            final char c = js.charAt(i);
+            if (c == '\\') {
+                // skip escaped character
+                i += 2;
+                continue;
+            }
+            if (c == '\n') {
+                return i;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == '/' && !inClass) {
+                return i + 1;
+            }
+            i++;
+        }
+        return js.length();
+    }
+
+    /**
+     * Finds the end of a template literal part starting at the given position.
+     * This is the position after the closing backtick or after a "${".
+     */
+    private static int endOfTemplate(final String js, final int start) {
+        int i = start;
+        while (i < js.length()) {
+            final char c = js.charAt(i);
+            if (c == '\\') {
+                // skip escaped character
+                i += 2;
+                continue;
+            }
+            if (c == '`') {
+                return i + 1;
+            } else if (c == '$' && i + 1 < js.length() && js.charAt(i + 1) == '{') {
+                return i + 2;
+            }
+            i++;
+        }
+        return js.length();
+    }
+
+    /**
+     * Finds the end of a quoted string. A string ends at the closing quote or
+     * (when invalid) at the end of the line.
+     */
+    private static int endOfString(final String text, final int start, final char quote) {
+        int i = start + 1;
+        while (i < text.length()) {
+            final char c = text.charAt(i);
+            if (c == '\\') {
+                // skip escaped character
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                return i;
+            }
+            i++;
+        }
+        return text.length();
+    }
+
+    /**
+     * Finds the end of a comment, if the given position starts a comment.
+     */
+    private static int endOfComment(final String text, final int start) {
+        if (!text.startsWith("/*", start)) {
+            return start + 1;
+        }
+        final int end = text.indexOf("*/", start + 2);
+        return end < 0 ? text.length() : end + 2;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.Utilities;
+import de.r3s6.jarp.zip.ZipIndex;
+
+/**
+ * Minifies files and reuses the results of the previous build.
+ * <p>
+ * The jar contains the file {@value JarPresenter#MINIFIED_BASENAME} per
+ * presentation, that maps the SHA-256 hash of the original content of a file
+ * to the entry holding its minified content. An empty value records that
+ * minifying doesn't reduce the size. When updating a jar, a file with the
+ * same original content is taken from the old jar instead of minifying it
+ * again.
+ * <p>
+ * Only entries containing exactly the minified content are recorded, not the
+ * content rewritten by the {@link Fingerprinter}.
+ * <p>
+ * Thread-safe, so files can be minified in parallel.
+ *
+ * @author Ralf Schandl
+ */
+final class MinifyCache {
+
+    /** Old jar. Might be {@code null}. */
+    private final ZipIndex mOldJar;
+
+    /** Cache of the old jar: Hash of the original content to entry name. */
+    private final Map<String, String> mOld;
+
+    /** Cache of the new jar. */
+    private final Properties mNew = new Properties();
+
+    /** Hash of the original content of the minified files. */
+    private final Map<Path, String> mHashes = new ConcurrentHashMap<>();
+
+    private int mReused;
+
+    /**
+     * Constructs a MinifyCache.
+     *
+     * @param oldJar the jar to reuse the minified content from. Might be
+     *               {@code null}.
+     * @param root   the directory of the presentation in the jar
+     * @throws IOException if reading the cache of the old jar fails
+     */
+    MinifyCache(final ZipIndex oldJar, final String root) throws IOException {
+        mOldJar = oldJar;
+        final ZipIndex.Entry entry = oldJar != null ? oldJar.getEntry(root + '/' + JarPresenter.MINIFIED_BASENAME)
+                : null;
+        if (entry != null) {
+            try (InputStream in = oldJar.getInputStream(entry)) {
+                mOld = Utilities.readPropertyMap(in);
+            }
+        } else {
+            mOld = Map.of();
+        }
+    }
+
+    /**
+     * Minifies a file or gets the minified content from the old jar.
+     *
+     * @param file the file
+     * @return the minified content or {@code null} if minifying doesn't reduce
+     *         the size
+     * @throws IOException if reading fails
+     */
+    byte[] minify(final Path file) throws IOException {
+        final byte[] data = Files.readAllBytes(file);
+        final String hash = Utilities.sha256(data);
+        mHashes.put(file, hash);
+
+        final String cached = mOld.get(hash);
+        if (cached != null) {
+            if (cached.isEmpty()) {
+                synchronized (this) {
+                    mReused++;
+                    mNew.setProperty(hash, "");
+                }
+                return null;
+            }
+            final ZipIndex.Entry entry = mOldJar.getEntry(cached);
+            if (entry != null) {
+                try (InputStream in = mOldJar.getInputStream(entry)) {
+                    final byte[] minified = in.readAllBytes();
+                    synchronized (this) {
+                        mReused++;
+                    }
+                    return minified;
+                }
+            }
+        }
+
+        final byte[] minified = Minifier.minify(file.getFileName().toString(), data);
+        if (minified == null) {
+            synchronized (this) {
+                mNew.setProperty(hash, "");
+            }
+        }
+        return minified;
+    }
+
+    /**
+     * Records the entry containing the minified content of a file.
+     *
+     * @param file      the minified file
+     * @param entryName the name of the entry
+     */
+    synchronized void stored(final Path file, final String entryName) {
+        mNew.setProperty(mHashes.get(file), entryName);
+    }
+
+    /**
+     * Gets the number of files taken from the old jar.
+     */
+    synchronized int getReused() {
+        return mReused;
+    }
+
+    /**
+     * Gets the cache file for the new jar.
+     *
+     * @return the content of the cache file
+     * @throws IOException if writing fails
+     */
+    synchronized byte[] toByteArray() throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Utilities.storeProperties(mNew, bos);
+        return bos.toByteArray();
+    }
+}
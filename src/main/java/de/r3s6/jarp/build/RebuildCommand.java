@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.build;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.r3s6.jarp.args.ArgsParser;
+import de.r3s6.jarp.args.ArgsParser.Argument;
+import de.r3s6.jarp.args.ArgsParser.CmdLineArgException;
+import de.r3s6.jarp.args.ArgsParser.Flag;
+
+/**
+ * Command to rebuild existing jar-presenter files with the classes from the
+ * current jar file. The presentations are copied unchanged.
+ *
+ * @author Ralf Schandl
+ */
+public final class RebuildCommand {
+
+    private final List<String> mJarNames = new ArrayList<>();
+    /** Whether to build reproducible jars. */
+    private boolean mReproducible;
+
+    private RebuildCommand() {
+    }
+
+    /**
+     * Creates a RebuildCommand.
+     *
+     * @return the new RebuildCommand
+     */
+    public static RebuildCommand create() {
+        return new RebuildCommand();
+    }
+
+    /**
+     * Shows the command line help for the RebuildCommand.
+     */
+    public static void showHelp() {
+
+        System.out.println("rebuild - upgrade presentation jars to this version of jar-presenter");
+        System.out.println("      USAGE: java -jar jar-presenter.jar rebuild [-r] <jar-name>...");
+        System.out.println("        -r       reproducible build: fixed timestamps");
+        System.out.println("                 (from SOURCE_DATE_EPOCH, if set)");
+        System.out.println("        jar-name");
+        System.out.println("                 name of the jar to rebuild");
+    }
+
+    /**
+     * Actually executes the command.
+     *
+     * @param argList the command line options
+     */
+    public void execute(final List<String> argList) {
+        handleArgs(argList);
+        try {
+            rebuild(new JarpBuilder());
+        } catch (final IOException | IllegalArgumentException e) {
+            System.err.println("ERROR: Rebuilding jar failed: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Rebuilds the jars given on the command line.
+     *
+     * @param builder the builder to use
+     * @throws IOException              on IO problems
+     * @throws IllegalArgumentException if a jar can't be rebuilt
+     */
+    void rebuild(final JarpBuilder builder) throws IOException {
+        builder.reproducible(mReproducible);
+        for (final String jarName : mJarNames) {
+            builder.rebuild(jarName);
+        }
+    }
+
+    /**
+     * Parses the command-specific options.
+     *
+     * @param argList the command line options
+     */
+    void handleArgs(final List<String> argList) {
+
+        try {
+            final ArgsParser ah = new ArgsParser(RebuildCommand::showHelp);
+
+            final Flag reproducibleOpt = ah.addFlag('r');
+            final Argument jarOpt = ah.addRequiredArgument("jar-name");
+            final List<String> moreJars = new ArrayList<>();
+            ah.optionalArgumentList(moreJars);
+
+            ah.parse(argList);
+
+            mReproducible = reproducibleOpt.getValue();
+            mJarNames.add(jarOpt.getValue());
+            mJarNames.addAll(moreJars);
+
+        } catch (final CmdLineArgException e) {
+            System.err.println(e.getMessage());
+            showHelp();
+            System.exit(1);
+        }
+    }
+}
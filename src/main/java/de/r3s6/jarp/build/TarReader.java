@@ -0,0 +1,275 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.build;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the entries of a tar stream one after the other. The data of a entry is
+ * read directly from the stream, so entries of any size can be read without
+ * buffering them.
+ * <p>
+ * Only regular files and directories are returned, other entries (like links)
+ * are ignored. Supports long names of the ustar, GNU and pax formats. Names
+ * that are absolute or contain ".." are rejected.
+ *
+ * @author Ralf Schandl
+ */
+final class TarReader implements Closeable {
+
+    private static final int BLOCK_SIZE = 512;
+
+    /** Maximum size of the long name and pax header entries. */
+    private static final int MAX_HEADER_DATA = 1024 * 1024;
+
+    private final InputStream mIn;
+
+    /** Data of the current entry not yet read. */
+    private long mRemaining;
+
+    /** Padding after the data of the current entry. */
+    private long mPadding;
+
+    /**
+     * Constructs a TarReader.
+     *
+     * @param in the uncompressed tar stream
+     */
+    TarReader(final InputStream in) {
+        mIn = in;
+    }
+
+    /**
+     * Moves to the next file or directory. The rest of the data of the current
+     * entry is skipped.
+     *
+     * @return the next entry or {@code null} at the end of the archive
+     * @throws IOException if reading fails or the archive is invalid
+     */
+    Entry next() throws IOException {
+        String longName = null;
+        while (true) {
+            skipRest();
+            final byte[] header = mIn.readNBytes(BLOCK_SIZE);
+            if (header.length < BLOCK_SIZE || header[0] == 0) {
+                // end of archive
+                return null;
+            }
+            // CSOFF: MagicNumber
+            final long size = octal(header, 124, 12);
+            final long time = octal(header, 136, 12) * 1000;
+            final char type = (char) header[156];
+            String name = string(header, 0, 100);
+            if ("ustar".equals(string(header, 257, 5)) && header[345] != 0) {
+                name = string(header, 345, 155) + '/' + name;
+            }
+            // CSON: MagicNumber
+            if (longName != null) {
+                name = longName;
+                longName = null;
+            }
+            mRemaining = size;
+            mPadding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+
+            switch (type) {
+            case 'L':
+                // GNU long name of the next entry
+                final byte[] data = readHeaderData();
+                longName = string(data, 0, data.length);
+                break;
+            case 'x':
+                longName = paxPath(readHeaderData());
+                break;
+            case 'g':
+                // pax global header
+                break;
+            case '0':
+            case '\0':
+                return new Entry(normalize(name), time, size, false);
+            case '5':
+                return new Entry(normalize(name), time, 0, true);
+            default:
+                System.err.println("WARNING: Unsupported tar entry ignored: " + name);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets a stream to read the data of the current entry. Closing the stream
+     * doesn't close the tar stream.
+     *
+     * @return the stream
+     */
+    InputStream getInputStream() {
+        return new EntryInputStream();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+
+    private byte[] readHeaderData() throws IOException {
+        if (mRemaining > MAX_HEADER_DATA) {
+            throw new IOException("Tar header too large");
+        }
+        final byte[] data = mIn.readNBytes((int) mRemaining);
+        if (data.length < mRemaining) {
+            throw new EOFException("Unexpected end of tar archive");
+        }
+        mRemaining = 0;
+        return data;
+    }
+
+    private void skipRest() throws IOException {
+        long skip = mRemaining + mPadding;
+        while (skip > 0) {
+            final long cnt = mIn.skip(skip);
+            if (cnt <= 0) {
+                // skip() might not detect the end of the stream
+                if (mIn.read() < 0) {
+                    throw new EOFException("Unexpected end of tar archive");
+                }
+                skip--;
+            } else {
+                skip -= cnt;
+            }
+        }
+        mRemaining = 0;
+        mPadding = 0;
+    }
+
+    /**
+     * Normalizes a entry name by removing "." segments and empty segments.
+     * Absolute names and names containing ".." are rejected, as they would
+     * point outside of the presentation.
+     */
+    private static String normalize(final String name) throws IOException {
+        if (name.startsWith("/")) {
+            throw new IOException("Invalid entry name: " + name);
+        }
+        final List<String> segments = new ArrayList<>();
+        for (final String segment : name.split("/")) {
+            // a backslash is a separator on Windows
+            if (Arrays.asList(segment.split("\\\\")).contains("..")) {
+                throw new IOException("Invalid entry name: " + name);
+            }
+            if (!segment.isEmpty() && !".".equals(segment)) {
+                segments.add(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * Gets the path from pax extended header records ("length key=value\n").
+     */
+    private static String paxPath(final byte[] data) {
+        final String records = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(data)).toString();
+        final Map<String, String> values = records.lines()
+                .map(l -> l.substring(l.indexOf(' ') + 1))
+                .filter(l -> l.indexOf('=') > 0)
+                .collect(Collectors.toMap(l -> l.substring(0, l.indexOf('=')), l -> l.substring(l.indexOf('=') + 1),
+                        (a, b) -> b));
+        return values.get("path");
+    }
+
+    private static String string(final byte[] buf, final int offset, final int length) {
+        int end = offset;
+        while (end < offset + length && buf[end] != 0) {
+            end++;
+        }
+        return StandardCharsets.UTF_8.decode(ByteBuffer.wrap(buf, offset, end - offset)).toString();
+    }
+
+    private static long octal(final byte[] buf, final int offset, final int length) throws IOException {
+        final String value = string(buf, offset, length).trim();
+        try {
+            return value.isEmpty() ? 0 : Long.parseLong(value, 8); // NOCS: MagicNumber
+        } catch (final NumberFormatException e) {
+            throw new IOException("Invalid tar header", e);
+        }
+    }
+
+    /**
+     * A file or directory in the tar archive.
+     */
+    static final class Entry {
+        private final String mName;
+        private final long mTime;
+        private final long mSize;
+        private final boolean mDirectory;
+
+        private Entry(final String name, final long time, final long size, final boolean directory) {
+            mName = name;
+            mTime = time;
+            mSize = size;
+            mDirectory = directory;
+        }
+
+        /**
+         * Gets the normalized name, without "." segments and without trailing
+         * "/". The name of the top-level directory "./" is empty.
+         */
+        String getName() {
+            return mName;
+        }
+
+        long getTime() {
+            return mTime;
+        }
+
+        long getSize() {
+            return mSize;
+        }
+
+        boolean isDirectory() {
+            return mDirectory;
+        }
+    }
+
+    /**
+     * Reads the data of the current entry.
+     */
+    private final class EntryInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF; // NOCS: MagicNumber
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (mRemaining == 0) {
+                return -1;
+            }
+            final int cnt = mIn.read(b, off, (int) Math.min(len, mRemaining));
+            if (cnt < 0) {
+                throw new EOFException("Unexpected end of tar archive");
+            }
+            mRemaining -= cnt;
+            return cnt;
+        }
+
+        @Override
+        public void close() {
+            // the rest is skipped by next()
+        }
+    }
+}
@@ -6,21 +6,19 @@
  */
 package de.r3s6.jarp.extract;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URISyntaxException;
-import java.util.Enumeration;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
-import de.r3s6.jarp.JarPresenter;
 import de.r3s6.jarp.args.ArgsParser;
 import de.r3s6.jarp.args.ArgsParser.Argument;
 import de.r3s6.jarp.args.ArgsParser.CmdLineArgException;
 import de.r3s6.jarp.args.ArgsParser.Flag;
+import de.r3s6.jarp.args.ArgsParser.ValueOption;
 
 /**
  * Extract command extracts the presentation from the jar to a given directory
@@ -30,13 +28,34 @@ import de.r3s6.jarp.args.ArgsParser.Flag;
  */
 public final class ExtractCommand {
 
-    private File mTargetDir;
+    private Path mTargetDir;
 
     /**
      * Whether to overwrite existing files ('-f').
      */
     private boolean mForce;
 
+    /**
+     * Whether to only write changed files ('-s').
+     */
+    private boolean mSync;
+
+    /**
+     * Whether to delete files not in the jar ('-d').
+     */
+    private boolean mDelete;
+
+    /** Glob patterns of files to extract ('-i'). */
+    private List<String> mIncludes = Collections.emptyList();
+
+    /** Glob patterns of files not to extract ('-x'). */
+    private List<String> mExcludes = Collections.emptyList();
+
+    /**
+     * Whether to only print errors ('-q').
+     */
+    private boolean mQuiet;
+
     private ExtractCommand() {
     }
 
@@ -55,8 +74,15 @@ public final class ExtractCommand {
     public static void showHelp() {
 
         System.out.println("extract - extract the contained presentation to the given directory");
-        System.out.println("      USAGE: java -jar jar-presenter.jar extract [-f] <target-dir>");
+        System.out.println("      USAGE: java -jar jar-presenter.jar extract [-f|-s [-d]] [-q] [-i <globs>] [-x <globs>] <target-dir>");
         System.out.println("        -f   Overwrite existing files.");
+        System.out.println("        -s   Sync. Only write changed files (compared by size and CRC).");
+        System.out.println("        -d   With '-s': delete files that are not in the presentation.");
+        System.out.println("        -q   Quiet. Don't show progress.");
+        System.out.println("        -i <globs>");
+        System.out.println("             Comma separated glob patterns of files to extract (e.g. '*.html,notes/**').");
+        System.out.println("        -x <globs>");
+        System.out.println("             Comma separated glob patterns of files not to extract.");
 
     }
 
@@ -69,48 +95,23 @@ public final class ExtractCommand {
         handleArgs(argList);
 
         try {
-
-            final String jarFile = new File(
-                    ExtractCommand.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
-
-            try (JarFile check = new JarFile(jarFile)) {
-                if (check.getEntry(JarPresenter.PRESENTATION_DIR) == null) {
-                    System.err.println("This jar doesn't contain a presentation. Nothing to do.");
-                    return;
-                }
-            }
-
-            if (!mTargetDir.isDirectory() && !mTargetDir.mkdir()) {
-                System.err.println("ERROR: Can't create target dir: " + mTargetDir);
-                System.exit(1);
-            }
-
-            final String preziPrefix = JarPresenter.PRESENTATION_DIR + "/";
-            final int preziPrefixLength = preziPrefix.length();
-
-            try (JarFile jar = new JarFile(jarFile)) {
-                final Enumeration<JarEntry> enumEntries = jar.entries();
-                while (enumEntries.hasMoreElements()) {
-                    final JarEntry jarEntry = enumEntries.nextElement();
-                    if (jarEntry.getName().startsWith(preziPrefix)) {
-                        final String tgtFileName = jarEntry.getName().substring(preziPrefixLength);
-                        final File tgtFile = new File(mTargetDir, tgtFileName);
-                        if (jarEntry.isDirectory()) {
-                            tgtFile.mkdirs();
-                            continue;
-                        }
-                        System.out.println("Extracting to " + tgtFile);
-                        if (tgtFile.exists() && !mForce) {
-                            System.err.println("File exists -- use '-f' to overwrite: " + tgtFile);
-                            System.exit(1);
-                        }
-                        try (InputStream is = jar.getInputStream(jarEntry);
-                                FileOutputStream fos = new FileOutputStream(tgtFile)) {
-                            is.transferTo(fos);
-                        }
-                    }
-                }
+            final Path jarFile = Path
+                    .of(ExtractCommand.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+            final int count = new Extractor(mTargetDir)
+                    .force(mForce)
+                    .sync(mSync)
+                    .delete(mDelete)
+                    .include(mIncludes)
+                    .exclude(mExcludes)
+                    .progress(mQuiet ? null : System.out)
+                    .extract(jarFile);
+            if (count == Extractor.NO_PRESENTATION) {
+                System.err.println("This jar doesn't contain a presentation. Nothing to do.");
             }
+        } catch (final FileAlreadyExistsException e) {
+            System.err.println("File exists -- use '-f' to overwrite: " + e.getFile());
+            System.exit(1);
         } catch (URISyntaxException | IOException e) {
             System.err.println("Error extracting presentation: " + e);
             System.exit(1);
@@ -127,12 +128,31 @@ public final class ExtractCommand {
         try {
             final ArgsParser ah = new ArgsParser(ExtractCommand::showHelp);
             final Flag force = ah.addFlag('f');
+            final Flag sync = ah.addFlag('s');
+            final Flag delete = ah.addFlag('d');
+            final Flag quiet = ah.addFlag('q');
+            final ValueOption includeOpt = ah.addValueOption('i');
+            final ValueOption excludeOpt = ah.addValueOption('x');
             final Argument tgtOpt = ah.addRequiredArgument("target-dir");
 
             ah.parse(argList);
 
-            mTargetDir = new File(tgtOpt.getValue());
+            mTargetDir = Path.of(tgtOpt.getValue());
             mForce = force.getValue();
+            mSync = sync.getValue();
+            mDelete = delete.getValue();
+            mQuiet = quiet.getValue();
+            if (includeOpt.getValue() != null) {
+                mIncludes = Arrays.asList(includeOpt.getValue().split(","));
+            }
+            if (excludeOpt.getValue() != null) {
+                mExcludes = Arrays.asList(excludeOpt.getValue().split(","));
+            }
+
+            if (mDelete && !mSync) {
+                System.err.println("ERROR: Option '-d' is only supported with '-s'.");
+                System.exit(1);
+            }
 
         } catch (final CmdLineArgException e) {
             System.err.println(e.getMessage());
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.extract;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.Utilities;
+import de.r3s6.jarp.zip.ZipIndex;
+
+/**
+ * Extracts the presentation from a jar-presenter jar.
+ * <p>
+ * First all directories are created, then the files are extracted in parallel
+ * by a pool of worker threads. {@link ZipIndex} can be read by multiple threads
+ * concurrently, so the jar is only opened once. The data of stored entries
+ * (like images and videos, that are not compressed in the jar) is copied by the
+ * operating system from the jar to the target file, see
+ * {@link ZipIndex#transferTo}. At last the deduplicated files
+ * (see {@link JarPresenter#ALIASES_PATH}) are created as copies of the
+ * extracted files.
+ * <p>
+ * In sync mode only changed files are written. A existing file is unchanged,
+ * if its size and its CRC match the values from the central directory of the
+ * jar. The CRC is only calculated if the size matches. Optionally files that
+ * are not in the jar are deleted, so the target directory is a exact copy of
+ * the presentation afterwards.
+ * <p>
+ * The files to extract can be selected with include and exclude glob patterns
+ * (see {@link Utilities#globToRegex(String)}). The patterns are matched against
+ * the names in the central directory, so entries that are not selected are
+ * never read. A pattern without a "/" matches the file name in any directory.
+ *
+ * @author Ralf Schandl
+ */
+final class Extractor {
+
+    /** Result of {@link #extract(Path)} if the jar doesn't contain a presentation. */
+    static final int NO_PRESENTATION = -1;
+
+    private static final String PREZI_PREFIX = JarPresenter.PRESENTATION_DIR + "/";
+
+    /** Progress is printed after this number of files. */
+    private static final int PROGRESS_INTERVAL = 100;
+
+    private final Path mTargetDir;
+    private boolean mForce;
+    private boolean mSync;
+    private boolean mDelete;
+    private PrintStream mProgress;
+    private int mThreads = Runtime.getRuntime().availableProcessors();
+    private List<Pattern> mIncludes = List.of();
+    private List<Pattern> mExcludes = List.of();
+
+    private final AtomicInteger mDone = new AtomicInteger();
+    private final AtomicInteger mUnchanged = new AtomicInteger();
+    private int mTotal;
+
+    /**
+     * Constructs a Extractor.
+     *
+     * @param targetDir the directory to extract to
+     */
+    Extractor(final Path targetDir) {
+        mTargetDir = targetDir.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Whether existing files should be overwritten.
+     *
+     * @param force whether to overwrite existing files
+     * @return this
+     */
+    Extractor force(final boolean force) {
+        mForce = force;
+        return this;
+    }
+
+    /**
+     * Whether only changed files should be written. Implies overwriting of
+     * existing files.
+     *
+     * @param sync whether to skip unchanged files
+     * @return this
+     */
+    Extractor sync(final boolean sync) {
+        mSync = sync;
+        return this;
+    }
+
+    /**
+     * Whether files in the target directory that are not part of the
+     * presentation should be deleted. Only used in sync mode.
+     *
+     * @param delete whether to delete files not in the jar
+     * @return this
+     */
+    Extractor delete(final boolean delete) {
+        mDelete = delete;
+        return this;
+    }
+
+    /**
+     * Sets glob patterns of the files to extract. By default all files are
+     * extracted.
+     *
+     * @param globs the glob patterns
+     * @return this
+     */
+    Extractor include(final List<String> globs) {
+        mIncludes = toPatterns(globs);
+        return this;
+    }
+
+    /**
+     * Sets glob patterns of files not to extract.
+     *
+     * @param globs the glob patterns
+     * @return this
+     */
+    Extractor exclude(final List<String> globs) {
+        mExcludes = toPatterns(globs);
+        return this;
+    }
+
+    /**
+     * Sets the stream to print the progress to.
+     *
+     * @param progress the stream or {@code null} to be quiet
+     * @return this
+     */
+    Extractor progress(final PrintStream progress) {
+        mProgress = progress;
+        return this;
+    }
+
+    /**
+     * Sets the number of worker threads.
+     *
+     * @param threads the number of threads
+     * @return this
+     */
+    Extractor threads(final int threads) {
+        mThreads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Extracts the presentation from the given jar.
+     *
+     * @param jarFile the jar-presenter jar
+     * @return the number of written files or {@link #NO_PRESENTATION}
+     * @throws IOException if the jar can't be read, a file can't be written or
+     *                     a file exists and neither force nor sync was given
+     */
+    int extract(final Path jarFile) throws IOException {
+        try (ZipIndex jar = ZipIndex.open(jarFile)) {
+            if (jar.entries().stream().noneMatch(e -> e.getName().startsWith(PREZI_PREFIX))) {
+                return NO_PRESENTATION;
+            }
+            final List<Path> dirs = new ArrayList<>();
+            // target file to entry
+            final Map<Path, ZipIndex.Entry> allFiles = new TreeMap<>();
+            final Map<Path, ZipIndex.Entry> files = new TreeMap<>();
+            final Set<String> builderFiles = builderFiles(jar);
+            for (final ZipIndex.Entry entry : jar.entries()) {
+                final String name = entry.getName();
+                if (!name.startsWith(PREZI_PREFIX) || builderFiles.contains(name)) {
+                    continue;
+                }
+                final String relName = name.substring(PREZI_PREFIX.length());
+                final Path target = target(relName);
+                if (entry.isDirectory()) {
+                    if (!isFiltered()) {
+                        dirs.add(target);
+                    }
+                } else {
+                    allFiles.put(target, entry);
+                    if (isSelected(relName)) {
+                        files.put(target, entry);
+                    }
+                }
+            }
+
+            final Map<Path, Path> aliases = new TreeMap<>();
+            for (final Map.Entry<Path, Path> alias : readAliases(jar).entrySet()) {
+                if (!isSelected(mTargetDir.relativize(alias.getKey()).toString().replace(File.separatorChar, '/'))) {
+                    continue;
+                }
+                if (files.containsKey(alias.getValue())) {
+                    aliases.put(alias.getKey(), alias.getValue());
+                } else if (allFiles.containsKey(alias.getValue())) {
+                    // identical file not selected, extract it directly to the alias
+                    files.put(alias.getKey(), allFiles.get(alias.getValue()));
+                }
+            }
+
+            // check before anything is written, so a partial extraction is avoided
+            if (!mForce && !mSync) {
+                checkNotExists(files.keySet());
+                checkNotExists(aliases.keySet());
+            }
+
+            // directories first, so the workers only create files
+            Files.createDirectories(mTargetDir);
+            for (final Path dir : dirs) {
+                Files.createDirectories(dir);
+            }
+            for (final Path file : files.keySet()) {
+                Files.createDirectories(file.getParent());
+            }
+            for (final Path alias : aliases.keySet()) {
+                Files.createDirectories(alias.getParent());
+            }
+
+            mTotal = files.size() + aliases.size();
+            final ExecutorService pool = Executors.newFixedThreadPool(mThreads, r -> {
+                final Thread thread = new Thread(r, "jarp-extract");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                final List<Future<?>> futures = new ArrayList<>();
+                for (final Map.Entry<Path, ZipIndex.Entry> file : files.entrySet()) {
+                    futures.add(pool.submit(() -> extractFile(jar, file.getValue(), file.getKey())));
+                }
+                await(futures);
+
+                futures.clear();
+                for (final Map.Entry<Path, Path> alias : aliases.entrySet()) {
+                    final ZipIndex.Entry entry = files.get(alias.getValue());
+                    futures.add(pool.submit(() -> copyFile(alias.getValue(), entry, alias.getKey())));
+                }
+                await(futures);
+            } finally {
+                pool.shutdownNow();
+            }
+            final int deleted = mSync && mDelete ? deleteOthers(dirs, files.keySet(), aliases.keySet()) : 0;
+
+            final int written = mTotal - mUnchanged.get();
+            if (mProgress != null) {
+                if (mSync) {
+                    mProgress.println("Extracted " + written + " files to " + mTargetDir + " (" + mUnchanged.get()
+                            + " unchanged, " + deleted + " deleted)");
+                } else {
+                    mProgress.println("Extracted " + written + " files to " + mTargetDir);
+                }
+            }
+            return written;
+        }
+    }
+
+    private Void extractFile(final ZipIndex jar, final ZipIndex.Entry entry, final Path target)
+            throws IOException {
+        if (isUnchanged(target, entry)) {
+            mUnchanged.incrementAndGet();
+        } else {
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                jar.transferTo(entry, out);
+            }
+        }
+        fileDone();
+        return null;
+    }
+
+    private Void copyFile(final Path source, final ZipIndex.Entry entry, final Path target) throws IOException {
+        if (isUnchanged(target, entry)) {
+            mUnchanged.incrementAndGet();
+        } else {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        fileDone();
+        return null;
+    }
+
+    /**
+     * Whether the target file exists with the size and CRC of the given entry.
+     * Always false if not in sync mode.
+     */
+    private boolean isUnchanged(final Path target, final ZipIndex.Entry entry) throws IOException {
+        if (!mSync || entry == null || !Files.isRegularFile(target)) {
+            return false;
+        }
+        return Files.size(target) == entry.getSize() && Utilities.crc32(target) == entry.getCrc();
+    }
+
+    /**
+     * Deletes all files and directories in the target directory that are not
+     * part of the presentation.
+     *
+     * @return the number of deleted files
+     */
+    private int deleteOthers(final List<Path> dirs, final Set<Path> files, final Set<Path> aliases)
+            throws IOException {
+        final Set<Path> keepDirs = new HashSet<>(dirs);
+        for (final Path file : files) {
+            keepDirs.add(file.getParent());
+        }
+        for (final Path alias : aliases) {
+            keepDirs.add(alias.getParent());
+        }
+
+        final List<Path> existing;
+        try (Stream<Path> stream = Files.walk(mTargetDir)) {
+            existing = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+
+        int deleted = 0;
+        // directories that might be empty now
+        final Set<Path> touchedDirs = new HashSet<>();
+        // reverse order: the content of a directory comes before the directory
+        for (final Path path : existing) {
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                if (touchedDirs.contains(path) && !path.equals(mTargetDir) && !keepDirs.contains(path)
+                        && isEmpty(path)) {
+                    Files.delete(path);
+                    touchedDirs.add(path.getParent());
+                }
+            } else if (!files.contains(path) && !aliases.contains(path)
+                    && isSelected(mTargetDir.relativize(path).toString().replace(File.separatorChar, '/'))) {
+                if (mProgress != null) {
+                    mProgress.println("Deleting " + path);
+                }
+                Files.delete(path);
+                touchedDirs.add(path.getParent());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private boolean isFiltered() {
+        return !mIncludes.isEmpty() || !mExcludes.isEmpty();
+    }
+
+    /**
+     * Whether the file with the given path (relative to the presentation root)
+     * is selected by the include and exclude patterns.
+     */
+    private boolean isSelected(final String relPath) {
+        return (mIncludes.isEmpty() || mIncludes.stream().anyMatch(p -> p.matcher(relPath).matches()))
+                && mExcludes.stream().noneMatch(p -> p.matcher(relPath).matches());
+    }
+
+    private static List<Pattern> toPatterns(final List<String> globs) {
+        return globs.stream()
+                .map(g -> g.trim().replaceFirst("^/+", ""))
+                .filter(g -> !g.isEmpty())
+                .map(g -> g.indexOf('/') < 0 ? "**/" + g : g)
+                .map(g -> Pattern.compile(Utilities.globToRegex(g)))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isEmpty(final Path dir) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.findAny().isEmpty();
+        }
+    }
+
+    private void fileDone() {
+        final int done = mDone.incrementAndGet();
+        if (mProgress != null && done % PROGRESS_INTERVAL == 0) {
+            mProgress.println("Extracted " + done + "/" + mTotal + " files");
+        }
+    }
+
+    /**
+     * Reads the aliases of deduplicated files as map from target file to the
+     * already extracted identical file.
+     */
+    private Map<Path, Path> readAliases(final ZipIndex jar) throws IOException {
+        final Map<Path, Path> aliases = new TreeMap<>();
+        final ZipIndex.Entry aliasesEntry = jar.getEntry(JarPresenter.ALIASES_PATH);
+        if (aliasesEntry != null) {
+            final Properties props = new Properties();
+            try (InputStream in = jar.getInputStream(aliasesEntry)) {
+                props.load(in);
+            }
+            // the paths start with "/", relative to the presentation directory
+            for (final String alias : props.stringPropertyNames()) {
+                aliases.put(target(alias.replaceFirst("^/+", "")),
+                        target(props.getProperty(alias).replaceFirst("^/+", "")));
+            }
+        }
+        return aliases;
+    }
+
+    /**
+     * Gets the names of the entries created by the builder, that are not part of
+     * the presentation: the aliases file and the resource manifests and
+     * minification caches of all presentations in the jar.
+     */
+    private static Set<String> builderFiles(final ZipIndex jar) throws IOException {
+        final Set<String> names = new HashSet<>();
+        names.add(JarPresenter.ALIASES_PATH);
+        names.add(JarPresenter.RESOURCES_PATH);
+        names.add(JarPresenter.MINIFIED_PATH);
+        final ZipIndex.Entry metadata = jar.getEntry(JarPresenter.METADATA_PATH);
+        if (metadata != null) {
+            final String decks = Utilities.readPropertyMap(jar.getInputStream(metadata))
+                    .get(JarPresenter.PROP_DECKS);
+            for (final String deck : Utilities.splitList(decks)) {
+                names.add(PREZI_PREFIX + deck + '/' + JarPresenter.RESOURCES_BASENAME);
+                names.add(PREZI_PREFIX + deck + '/' + JarPresenter.MINIFIED_BASENAME);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Resolves the name of a entry against the target directory. Names that
+     * would end up outside of the target directory are rejected.
+     */
+    private Path target(final String name) throws IOException {
+        final Path target = mTargetDir.resolve(name).normalize();
+        if (!target.startsWith(mTargetDir)) {
+            throw new IOException("Invalid entry name: " + name);
+        }
+        return target;
+    }
+
+    private static void checkNotExists(final Iterable<Path> files) throws FileAlreadyExistsException {
+        for (final Path file : files) {
+            if (Files.exists(file)) {
+                throw new FileAlreadyExistsException(file.toString(), null, "use '-f' to overwrite");
+            }
+        }
+    }
+
+    private static void await(final List<Future<?>> futures) throws IOException {
+        try {
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Extraction interrupted", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.inspect;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.r3s6.jarp.args.ArgsParser;
+import de.r3s6.jarp.args.ArgsParser.CmdLineArgException;
+import de.r3s6.jarp.args.ArgsParser.Flag;
+
+/**
+ * Command to inspect jar-presenter jars without extracting them. Shows a
+ * summary, optionally lists the entries and verifies the CRC of all entries.
+ *
+ * @author Ralf Schandl
+ */
+public final class InspectCommand {
+
+    private final List<String> mJarNames = new ArrayList<>();
+
+    /** Whether to list all entries ('-l'). */
+    private boolean mList;
+
+    /** Whether to verify the CRC of all entries ('-v'). */
+    private boolean mVerify;
+
+    private InspectCommand() {
+    }
+
+    /**
+     * Creates a InspectCommand.
+     *
+     * @return the new InspectCommand
+     */
+    public static InspectCommand create() {
+        return new InspectCommand();
+    }
+
+    /**
+     * Shows the command line help for the InspectCommand.
+     */
+    public static void showHelp() {
+
+        System.out.println("inspect - show information about presentation jars");
+        System.out.println("      USAGE: java -jar jar-presenter.jar inspect [-l] [-v] [jar-name...]");
+        System.out.println("        -l       list all files with size, compression and content type");
+        System.out.println("        -v       verify the CRC of all files");
+        System.out.println("        jar-name");
+        System.out.println("                 name of the jar to inspect, default is this jar");
+    }
+
+    /**
+     * Actually executes the command.
+     *
+     * @param argList the command line options
+     */
+    public void execute(final List<String> argList) {
+        handleArgs(argList);
+
+        boolean failed = false;
+        final ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (final String jarName : mJarNames) {
+                try (JarInspector inspector = new JarInspector(Path.of(jarName))) {
+                    inspector.printSummary(System.out);
+                    if (mList) {
+                        inspector.printEntries(System.out);
+                    }
+                    if (mVerify) {
+                        final List<String> errors = inspector.verify(pool);
+                        for (final String error : errors) {
+                            System.out.println("    ERROR: " + error);
+                        }
+                        System.out.println(errors.isEmpty() ? "    Verified: OK" : "    Verified: FAILED");
+                        failed |= !errors.isEmpty();
+                    }
+                } catch (final IOException e) {
+                    System.err.println("ERROR: Inspecting " + jarName + " failed: " + e);
+                    failed = true;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed = true;
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Parses the command-specific options.
+     *
+     * @param argList the command line options
+     */
+    private void handleArgs(final List<String> argList) {
+
+        try {
+            final ArgsParser ah = new ArgsParser(InspectCommand::showHelp);
+
+            final Flag listOpt = ah.addFlag('l');
+            final Flag verifyOpt = ah.addFlag('v');
+            ah.optionalArgumentList(mJarNames);
+
+            ah.parse(argList);
+
+            mList = listOpt.getValue();
+            mVerify = verifyOpt.getValue();
+
+            if (mJarNames.isEmpty()) {
+                mJarNames.add(Path.of(InspectCommand.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                        .toString());
+            }
+
+        } catch (final CmdLineArgException e) {
+            System.err.println(e.getMessage());
+            showHelp();
+            System.exit(1);
+        } catch (final URISyntaxException e) {
+            System.err.println("ERROR: Can't determine jar file: " + e);
+            System.exit(1);
+        }
+    }
+}
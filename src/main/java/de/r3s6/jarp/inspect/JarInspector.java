@@ -0,0 +1,233 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.inspect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.Utilities;
+import de.r3s6.jarp.server.ContentTypes;
+import de.r3s6.jarp.zip.ZipIndex;
+
+/**
+ * Inspects a jar-presenter jar. Listing the entries only needs the central
+ * directory of the jar, so it is fast even for large jars. The verification
+ * reads all entries and compares their CRC with the one from the central
+ * directory.
+ *
+ * @author Ralf Schandl
+ */
+final class JarInspector implements Closeable {
+
+    private static final int PERCENT = 100;
+
+    private final ZipIndex mZip;
+
+    /**
+     * Opens the given jar.
+     *
+     * @param jarFile the jar to inspect
+     * @throws IOException if the jar can't be read
+     */
+    JarInspector(final Path jarFile) throws IOException {
+        mZip = ZipIndex.open(jarFile);
+    }
+
+    /**
+     * Gets the title of the presentation.
+     *
+     * @return the title or {@code null} if the jar doesn't contain a
+     *         presentation or the presentation has no title
+     * @throws IOException if reading the metadata fails
+     */
+    String getTitle() throws IOException {
+        final Properties props = readMetadata();
+        return props != null ? props.getProperty(JarPresenter.PROP_TITLE) : null;
+    }
+
+    /**
+     * Gets the names of the presentations, if the jar contains several.
+     *
+     * @return the names, empty if the jar contains a single or no presentation
+     * @throws IOException if reading the metadata fails
+     */
+    List<String> getDeckNames() throws IOException {
+        final Properties props = readMetadata();
+        return Utilities.splitList(props != null ? props.getProperty(JarPresenter.PROP_DECKS) : null);
+    }
+
+    private Properties readMetadata() throws IOException {
+        final ZipIndex.Entry entry = mZip.getEntry(JarPresenter.METADATA_PATH);
+        if (entry == null) {
+            return null;
+        }
+        final Properties props = new Properties();
+        try (InputStream in = mZip.getInputStream(entry)) {
+            props.load(in);
+        }
+        return props;
+    }
+
+    /**
+     * Prints a summary of the jar: number of files, size and compressed size.
+     *
+     * @param out the stream to print to
+     * @throws IOException if reading the metadata fails
+     */
+    void printSummary(final PrintStream out) throws IOException {
+        long size = 0;
+        long compressedSize = 0;
+        int files = 0;
+        for (final ZipIndex.Entry entry : mZip.entries()) {
+            if (!entry.isDirectory()) {
+                files++;
+                size += entry.getSize();
+                compressedSize += entry.getCompressedSize();
+            }
+        }
+        final String title = getTitle();
+        final String description;
+        if (title != null) {
+            description = "\"" + title + "\"";
+        } else {
+            description = readMetadata() != null ? "untitled presentation" : "no presentation";
+        }
+        out.println(mZip.getPath() + ": " + description);
+        final List<String> decks = getDeckNames();
+        if (!decks.isEmpty()) {
+            out.println("    " + decks.size() + " presentations: " + String.join(", ", decks));
+        }
+        out.printf("    %d files, %s, compressed %s (%s)%n", files, kb(size), kb(compressedSize),
+                ratio(size, compressedSize));
+    }
+
+    /**
+     * Prints all entries with size, compressed size, compression ratio and
+     * content type.
+     *
+     * @param out the stream to print to
+     */
+    void printEntries(final PrintStream out) {
+        out.printf("%12s %12s %6s  %-28s %s%n", "Size", "Compressed", "Ratio", "Type", "Name");
+        for (final ZipIndex.Entry entry : mZip.entries()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            final String type = ContentTypes.instance().guess(entry.getName())[0];
+            out.printf("%12d %12d %6s  %-28s %s%n", entry.getSize(), entry.getCompressedSize(),
+                    ratio(entry.getSize(), entry.getCompressedSize()), type, entry.getName());
+        }
+    }
+
+    /**
+     * Verifies the CRC of all entries. The entries are read in parallel by the
+     * given thread pool.
+     *
+     * @param pool the thread pool
+     * @return the errors found, empty if the jar is OK
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    List<String> verify(final ExecutorService pool) throws InterruptedException {
+        final List<Future<String>> futures = new ArrayList<>();
+        for (final ZipIndex.Entry entry : mZip.entries()) {
+            if (!entry.isDirectory()) {
+                futures.add(pool.submit(() -> verify(entry)));
+            }
+        }
+
+        final List<String> errors = new ArrayList<>();
+        for (final Future<String> future : futures) {
+            try {
+                final String error = future.get();
+                if (error != null) {
+                    errors.add(error);
+                }
+            } catch (final ExecutionException e) {
+                errors.add(e.getCause().toString());
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Verifies the CRC of the given entry.
+     *
+     * @return a error message or {@code null}
+     */
+    private String verify(final ZipIndex.Entry entry) {
+        final CrcChannel crc = new CrcChannel();
+        try {
+            mZip.transferTo(entry, crc);
+        } catch (final IOException e) {
+            return entry.getName() + ": " + e.getMessage();
+        }
+        if (crc.getValue() != entry.getCrc()) {
+            return entry.getName() + ": CRC mismatch";
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mZip.close();
+    }
+
+    private static String kb(final long bytes) {
+        return (bytes + 1023) / 1024 + " KB"; // NOCS: MagicNumber
+    }
+
+    /**
+     * Gets the space saved by compression in percent.
+     */
+    private static String ratio(final long size, final long compressedSize) {
+        if (size == 0) {
+            return "-";
+        }
+        return (size - compressedSize) * PERCENT / size + "%";
+    }
+
+    /**
+     * Channel that only calculates the CRC of the written data.
+     */
+    private static final class CrcChannel implements WritableByteChannel {
+        private final CRC32 mCrc = new CRC32();
+
+        @Override
+        public int write(final ByteBuffer src) {
+            final int cnt = src.remaining();
+            mCrc.update(src);
+            return cnt;
+        }
+
+        long getValue() {
+            return mCrc.getValue();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+    }
+}
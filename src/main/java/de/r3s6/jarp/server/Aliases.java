@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.Utilities;
+
+/**
+ * The aliases of a presentation jar, read from
+ * {@value JarPresenter#ALIASES_BASENAME}. Maps the paths of deduplicated files
+ * (and the original names of fingerprinted files) to the path of the stored
+ * file.
+ * <p>
+ * A precompressed variant is stored next to the stored file, so the path
+ * "/b.css.gz" resolves to "/a.css.gz", if "/b.css" is a alias of "/a.css".
+ *
+ * @author Ralf Schandl
+ */
+final class Aliases {
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final Map<String, String> mAliases;
+
+    /**
+     * Reads the aliases.
+     *
+     * @param in the stream of the aliases file or {@code null} if there is
+     *           none
+     * @throws IOException if reading fails
+     */
+    Aliases(final InputStream in) throws IOException {
+        mAliases = Utilities.readPropertyMap(in);
+    }
+
+    /**
+     * Resolves a path to the path of the stored file.
+     *
+     * @param path the path, starting with "/"
+     * @return the path of the stored file or the given path, if it is not a
+     *         alias
+     */
+    String resolve(final String path) {
+        final String target = mAliases.get(path);
+        if (target != null) {
+            return target;
+        }
+        if (path.endsWith(GZIP_SUFFIX)) {
+            final String base = mAliases.get(path.substring(0, path.length() - GZIP_SUFFIX.length()));
+            if (base != null) {
+                return base + GZIP_SUFFIX;
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import de.r3s6.jarp.Utilities;
+
+/**
+ * Rules to determine the Cache-Control header of a resource.
+ * <p>
+ * The rules are defined in the metadata file with properties like
+ *
+ * <pre>
+ * cache.*.html=no-cache
+ * cache.dist/**=max-age=3600
+ * cache.plugin/**=immutable
+ * </pre>
+ *
+ * The key is the prefix "cache." followed by a glob pattern (see
+ * {@link Utilities#globToRegex(String)}) that is matched against the path of
+ * the resource relative to the presentation root. The value is either
+ * "no-cache", "immutable" or "max-age=" followed by the number of seconds. If
+ * multiple patterns match, the longest pattern wins.
+ * <p>
+ * The result for a path is computed once and then remembered, up to
+ * {@value #MAX_RESOLVED} paths.
+ *
+ * @author Ralf Schandl
+ */
+public final class CacheRules {
+
+    /** Prefix of the cache rule properties in the metadata file. */
+    public static final String PROP_PREFIX = "cache.";
+
+    /** Cache-Control value for resources that never change. */
+    public static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    /** Maximum number of remembered results. */
+    static final int MAX_RESOLVED = 10000;
+
+    private static final String NO_CACHE = "no-cache";
+
+    private static final String MAX_AGE = "max-age=";
+
+    /** Marks a path without matching rule in {@link #mResolved}. */
+    private static final String NONE = "";
+
+    private final List<Rule> mRules;
+
+    /** Path to Cache-Control value. */
+    private final Map<String, String> mResolved = new ConcurrentHashMap<>();
+
+    private CacheRules(final List<Rule> rules) {
+        mRules = rules;
+    }
+
+    /**
+     * Creates the rules from the cache properties of the given metadata.
+     *
+     * @param metadata the presentation metadata
+     * @return the rules
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static CacheRules fromMetadata(final Map<String, String> metadata) {
+        final List<Rule> rules = new ArrayList<>();
+        for (final Map.Entry<String, String> entry : metadata.entrySet()) {
+            if (entry.getKey().startsWith(PROP_PREFIX)) {
+                final String glob = entry.getKey().substring(PROP_PREFIX.length()).replaceFirst("^/+", "");
+                rules.add(new Rule(glob, toHeaderValue(entry.getKey(), entry.getValue())));
+            }
+        }
+        rules.sort(Comparator.comparingInt((final Rule r) -> r.mGlob.length()).reversed()
+                .thenComparing(r -> r.mGlob));
+        return new CacheRules(rules);
+    }
+
+    /**
+     * Validates a cache rule.
+     *
+     * @param key   the property key including the prefix
+     * @param value the property value
+     * @throws IllegalArgumentException if the rule is invalid
+     */
+    public static void validate(final String key, final String value) {
+        toHeaderValue(key, value);
+    }
+
+    /**
+     * Gets the Cache-Control header value for the given path.
+     *
+     * @param path the path of the resource, starting with "/"
+     * @return the header value or {@code null} if no rule matches
+     */
+    public String get(final String path) {
+        String value = mResolved.get(path);
+        if (value == null) {
+            value = resolve(path);
+            if (mResolved.size() < MAX_RESOLVED) {
+                mResolved.put(path, value);
+            }
+        }
+        return value.isEmpty() ? null : value;
+    }
+
+    private String resolve(final String path) {
+        final String relPath = path.substring(1);
+        for (final Rule rule : mRules) {
+            if (rule.mPattern.matcher(relPath).matches()) {
+                return rule.mValue;
+            }
+        }
+        return NONE;
+    }
+
+    private static String toHeaderValue(final String key, final String value) {
+        final String policy = value.trim();
+        if (key.length() == PROP_PREFIX.length()) {
+            throw new IllegalArgumentException("Missing pattern in cache rule: " + key);
+        }
+        if (NO_CACHE.equals(policy)) {
+            return NO_CACHE;
+        }
+        if ("immutable".equals(policy)) {
+            return IMMUTABLE;
+        }
+        if (policy.startsWith(MAX_AGE) && policy.length() > MAX_AGE.length()
+                && policy.substring(MAX_AGE.length()).chars().allMatch(Character::isDigit)) {
+            return "public, " + policy;
+        }
+        throw new IllegalArgumentException("Invalid cache rule: " + key + "=" + value);
+    }
+
+    /**
+     * A single rule.
+     */
+    private static final class Rule {
+        private final String mGlob;
+        private final Pattern mPattern;
+        private final String mValue;
+
+        private Rule(final String glob, final String value) {
+            mGlob = glob;
+            mPattern = Pattern.compile(Utilities.globToRegex(glob));
+            mValue = value;
+        }
+    }
+}
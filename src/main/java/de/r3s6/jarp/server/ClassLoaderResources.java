@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import de.r3s6.jarp.JarPresenter;
+
+/**
+ * Provides the resources of a presentation via a class loader, typically from
+ * the directory "presentation" of the jar.
+ * <p>
+ * Files that were deduplicated when building the jar are resolved via the
+ * aliases file {@value JarPresenter#ALIASES_BASENAME}.
+ *
+ * @author Ralf Schandl
+ */
+public final class ClassLoaderResources implements ResourceProvider {
+
+    private final ClassLoader mClassLoader;
+
+    private final String mRootDir;
+
+    private final Aliases mAliases;
+
+    private final String mIdentity;
+
+    /**
+     * Constructs a ClassLoaderResources.
+     *
+     * @param classLoader the class loader to load the resources
+     * @param rootDir     the root directory of the presentation resources
+     * @throws IOException if reading the aliases file fails
+     */
+    public ClassLoaderResources(final ClassLoader classLoader, final String rootDir) throws IOException {
+        mClassLoader = classLoader;
+        mRootDir = rootDir;
+        mAliases = new Aliases(classLoader.getResourceAsStream(rootDir + '/' + JarPresenter.ALIASES_BASENAME));
+        // the URL contains the path of the jar
+        final URL metadata = classLoader.getResource(rootDir + '/' + JarPresenter.METADATA_BASENAME);
+        mIdentity = metadata != null ? metadata.toString() : rootDir;
+    }
+
+    @Override
+    public InputStream open(final String path) {
+        return mClassLoader.getResourceAsStream(mRootDir + mAliases.resolve(path));
+    }
+
+    @Override
+    public String resolve(final String path) {
+        return mAliases.resolve(path);
+    }
+
+    @Override
+    public String getIdentity() {
+        return mIdentity;
+    }
+}
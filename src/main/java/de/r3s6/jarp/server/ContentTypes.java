@@ -29,7 +29,7 @@ import de.r3s6.jarp.Utilities;
  *
  * @author Ralf Schandl
  */
-final class ContentTypes {
+public final class ContentTypes {
 
     private static final String OCTETT_STREAM = "application/octet-stream";
 
@@ -74,7 +74,12 @@ final class ContentTypes {
         }
     }
 
-    static ContentTypes instance() {
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the ContentTypes instance
+     */
+    public static ContentTypes instance() {
         return Holder.sInstance;
     }
 
@@ -86,7 +91,7 @@ final class ContentTypes {
      * @return tuple of content-type and content-encoding. Content-encoding might be
      *         {@code null}
      */
-    String[] guess(final String fileName) {
+    public String[] guess(final String fileName) {
 
         final String[] ext = getExtensions(fileName);
         if (ext == null) {
@@ -96,6 +101,38 @@ final class ContentTypes {
         }
     }
 
+    /**
+     * Whether the given file is worth to be compressed with e.g. gzip.
+     * <p>
+     * This is true for text based content types (HTML, CSS, JavaScript, JSON, XML,
+     * SVG etc.) that are not already encoded.
+     *
+     * @param fileName the file name
+     * @return whether the file content is compressible
+     */
+    public boolean isCompressible(final String fileName) {
+        final String[] typeInfo = guess(fileName);
+        return isCompressible(typeInfo[0], typeInfo[1]);
+    }
+
+    /**
+     * Whether content of the given type is worth to be compressed with e.g. gzip.
+     * See {@link #isCompressible(String)}.
+     *
+     * @param type     the content type
+     * @param encoding the content encoding. Might be {@code null}.
+     * @return whether the content is compressible
+     */
+    public boolean isCompressible(final String type, final String encoding) {
+        if (encoding != null) {
+            return false;
+        }
+        return type.startsWith("text/")
+                || type.endsWith("/javascript")
+                || type.endsWith("/json") || type.endsWith("+json")
+                || type.endsWith("/xml") || type.endsWith("+xml");
+    }
+
     private String[] getExtensions(final String filePath) {
 
         final String fn = basename(filePath);
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.Utilities;
+
+/**
+ * A presentation served by {@link HttpServerchen}: its resources and the data
+ * read from its metadata on startup.
+ * <p>
+ * A server usually serves a single deck. When serving several decks, every
+ * deck is mounted under its own URL prefix (like "/keynote"). A jar might also
+ * contain several decks, see {@link JarPresenter#PROP_DECKS}.
+ *
+ * @author Ralf Schandl
+ */
+final class Deck {
+
+    private final String mPrefix;
+
+    private final ResourceProvider mResources;
+
+    private final String mStartPage;
+
+    private final String mTitle;
+
+    /** The resource manifest. {@code null} if the presentation doesn't have one. */
+    private final ResourceManifest mManifest;
+
+    /** The Cache-Control rules from the metadata. */
+    private final CacheRules mCacheRules;
+
+    /**
+     * Constructs a Deck and reads the metadata.
+     *
+     * @param prefix    the URL prefix, like "/keynote", or "" if the deck is
+     *                  served from the root
+     * @param resources the resources of the presentation
+     * @param devMode   whether the resources might change while the server is
+     *                  running. Then the manifest is ignored.
+     * @throws IOException if reading the metadata files fails
+     */
+    Deck(final String prefix, final ResourceProvider resources, final boolean devMode) throws IOException {
+        mPrefix = prefix;
+        mResources = resources;
+
+        final Map<String, String> metadata = Utilities
+                .readPropertyMap(resources.open('/' + JarPresenter.METADATA_BASENAME));
+        mTitle = metadata.get(JarPresenter.PROP_TITLE);
+
+        if (metadata.containsKey(JarPresenter.PROP_STARTPAGE) && !metadata.get(JarPresenter.PROP_STARTPAGE).isBlank()) {
+            mStartPage = "/" + metadata.get(JarPresenter.PROP_STARTPAGE).trim().replaceFirst("^/+", "");
+
+        } else {
+            mStartPage = "/index.html";
+        }
+
+        try {
+            mCacheRules = CacheRules.fromMetadata(metadata);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("Invalid metadata: " + e.getMessage(), e);
+        }
+
+        if (devMode) {
+            // the manifest doesn't know changed files
+            mManifest = null;
+        } else {
+            try (InputStream in = resources.open('/' + JarPresenter.RESOURCES_BASENAME)) {
+                mManifest = in != null ? ResourceManifest.load(in) : null;
+            }
+        }
+    }
+
+    /**
+     * Gets the names of the decks in a jar containing several presentations.
+     *
+     * @param root the resources of the whole jar
+     * @return the names of the decks, empty if the jar contains a single
+     *         presentation
+     * @throws IOException if reading the metadata fails
+     */
+    static List<String> names(final ResourceProvider root) throws IOException {
+        return Utilities.splitList(Utilities.readPropertyMap(root.open('/' + JarPresenter.METADATA_BASENAME))
+                .get(JarPresenter.PROP_DECKS));
+    }
+
+    String getPrefix() {
+        return mPrefix;
+    }
+
+    ResourceProvider getResources() {
+        return mResources;
+    }
+
+    String getStartPage() {
+        return mStartPage;
+    }
+
+    /**
+     * Gets the title of the presentation from the metadata.
+     *
+     * @return the title or {@code null}
+     */
+    String getTitle() {
+        return mTitle;
+    }
+
+    ResourceManifest getManifest() {
+        return mManifest;
+    }
+
+    CacheRules getCacheRules() {
+        return mCacheRules;
+    }
+}
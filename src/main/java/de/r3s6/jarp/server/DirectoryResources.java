@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Provides the resources of a presentation from a directory. Used to serve a
+ * presentation while it is developed.
+ *
+ * @author Ralf Schandl
+ */
+public final class DirectoryResources implements ResourceProvider {
+
+    private final Path mRoot;
+
+    /**
+     * Constructs a DirectoryResources.
+     *
+     * @param root the presentation directory
+     */
+    public DirectoryResources(final Path root) {
+        mRoot = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Gets the presentation directory.
+     *
+     * @return the directory
+     */
+    Path getRoot() {
+        return mRoot;
+    }
+
+    @Override
+    public InputStream open(final String path) throws IOException {
+        final Path file = mRoot.resolve(path.replaceFirst("^/+", "")).normalize();
+        if (!file.startsWith(mRoot) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public String getIdentity() {
+        return mRoot.toString();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Watches a directory tree for changed files.
+ * <p>
+ * A {@link WatchService} only watches a single directory, so every
+ * sub-directory is registered, also the ones created later.
+ * <p>
+ * Editors often write a file in several steps, and a build tool changes many
+ * files at once. So the changes are collected until no further change happens
+ * for {@value #SETTLE_MILLIS} milliseconds, then the listener is called once.
+ * It gets the paths of the changed files relative to the watched directory
+ * (like "/css/theme.css") or {@code null} if events were lost and everything
+ * has to be considered as changed.
+ *
+ * @author Ralf Schandl
+ */
+final class DirectoryWatcher implements Closeable {
+
+    /** Time without changes before the listener is called. */
+    static final long SETTLE_MILLIS = 100;
+
+    private static final Logger LOGGER = Logger.instance();
+
+    private final Path mRoot;
+    private final Consumer<Set<String>> mListener;
+    private final WatchService mWatchService;
+
+    /** Registered keys to their directory. */
+    private final Map<WatchKey, Path> mKeys = new HashMap<>();
+
+    /**
+     * Starts watching the given directory.
+     *
+     * @param root     the directory to watch
+     * @param listener called with the changed paths
+     * @throws IOException if the directory can't be watched
+     */
+    DirectoryWatcher(final Path root, final Consumer<Set<String>> listener) throws IOException {
+        mRoot = root.toAbsolutePath().normalize();
+        mListener = listener;
+        mWatchService = FileSystems.getDefault().newWatchService();
+        registerTree(mRoot);
+
+        final Thread thread = new Thread(this::run, "jarp-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mWatchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<String> changes = new TreeSet<>();
+                WatchKey key = mWatchService.take();
+                while (key != null) {
+                    changes = handleEvents(key, changes);
+                    key = mWatchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (changes == null || !changes.isEmpty()) {
+                    LOGGER.log("Changed: " + (changes != null ? String.join(", ", changes) : "*"));
+                    mListener.accept(changes);
+                }
+            }
+        } catch (final ClosedWatchServiceException e) {
+            LOGGER.debug("Watch service closed");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds the changes reported by the given key to the given set.
+     *
+     * @return the set of changes or {@code null} if everything changed
+     */
+    private Set<String> handleEvents(final WatchKey key, final Set<String> changes) {
+        Set<String> result = changes;
+        final Path dir = mKeys.get(key);
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                result = null;
+                continue;
+            }
+            final Path file = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                try {
+                    // files might already be created before the directory is registered
+                    for (final Path created : registerTree(file)) {
+                        result = add(result, created);
+                    }
+                } catch (final IOException e) {
+                    LOGGER.error("Can't watch directory " + file + ": " + e);
+                }
+            } else {
+                result = add(result, file);
+            }
+        }
+        if (!key.reset()) {
+            // directory deleted
+            mKeys.remove(key);
+        }
+        return result;
+    }
+
+    private Set<String> add(final Set<String> changes, final Path file) {
+        if (changes != null) {
+            changes.add("/" + mRoot.relativize(file).toString().replace(File.separatorChar, '/'));
+        }
+        return changes;
+    }
+
+    /**
+     * Registers the given directory and all sub-directories.
+     *
+     * @return the files in the directory tree
+     */
+    private Set<Path> registerTree(final Path dir) throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            final Map<Boolean, Set<Path>> paths = stream
+                    .collect(Collectors.partitioningBy(Files::isDirectory, Collectors.toSet()));
+            for (final Path subDir : paths.get(true)) {
+                mKeys.put(subDir.register(mWatchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), subDir);
+            }
+            return paths.get(false);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the gzip compressed variants created by the {@link ResourceCache} in
+ * a directory, so they don't have to be compressed again after a restart of
+ * the server.
+ * <p>
+ * A file is stored per resource name and source, so presentations sharing the
+ * directory don't replace each other's files. It is only used if the CRC-32 and size
+ * of the uncompressed content in the gzip trailer match the current content
+ * of the resource, just like the CRC of a jar entry. So a changed resource
+ * (e.g. after the jar was rebuilt) is compressed again and its file replaced,
+ * while the unchanged resources are still taken from the directory.
+ * <p>
+ * All errors are ignored, the resource is then just compressed again.
+ *
+ * @author Ralf Schandl
+ */
+final class DiskCache {
+
+    private static final Logger LOGGER = Logger.instance();
+
+    /** Size of the gzip header and trailer. */
+    private static final int MIN_GZIP_SIZE = 18;
+
+    private static final String SUFFIX = ".gz";
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    private final Path mDir;
+
+    /**
+     * Constructs a DiskCache.
+     *
+     * @param dir the directory to store the files in. It is created if
+     *            needed.
+     * @throws IOException if the directory can't be created
+     */
+    DiskCache(final Path dir) throws IOException {
+        mDir = Files.createDirectories(dir);
+    }
+
+    /**
+     * Gets the stored compressed variant of a resource.
+     *
+     * @param source the identity of the source of the resource, see
+     *               {@link ResourceProvider#getIdentity()}
+     * @param name   the resource name
+     * @param data   the current content of the resource
+     * @return the compressed content or {@code null} if not stored or not
+     *         matching the content
+     */
+    byte[] load(final String source, final String name, final byte[] data) {
+        final Path file = file(source, name);
+        try {
+            final byte[] gzData = Files.readAllBytes(file);
+            if (matches(gzData, data)) {
+                return gzData;
+            }
+            LOGGER.debug("Outdated compressed variant of " + name);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            LOGGER.debug("Reading " + file + " failed: " + e);
+        }
+        return null;
+    }
+
+    /**
+     * Stores the compressed variant of a resource.
+     *
+     * @param source the identity of the source of the resource
+     * @param name   the resource name
+     * @param gzData the gzip compressed content
+     */
+    void store(final String source, final String name, final byte[] gzData) {
+        final Path file = file(source, name);
+        try {
+            // write to a temporary file first, so a concurrent reader never
+            // sees a partial file
+            final Path tmp = Files.createTempFile(mDir, "tmp", SUFFIX);
+            try {
+                Files.write(tmp, gzData);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (final IOException e) {
+            LOGGER.debug("Writing " + file + " failed: " + e);
+        }
+    }
+
+    /**
+     * Checks whether the gzip trailer matches the given content.
+     */
+    private static boolean matches(final byte[] gzData, final byte[] data) {
+        if (gzData.length < MIN_GZIP_SIZE || gzData[0] != (byte) 0x1f || gzData[1] != (byte) 0x8b) { // NOCS: MagicNumber
+            return false;
+        }
+        final ByteBuffer trailer = ByteBuffer.wrap(gzData, gzData.length - 8, 8).order(ByteOrder.LITTLE_ENDIAN); // NOCS: MagicNumber
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        return trailer.getInt() == (int) crc.getValue() && trailer.getInt() == data.length;
+    }
+
+    private Path file(final String source, final String name) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(source.getBytes(StandardCharsets.UTF_8));
+            // separates the source from the name
+            md.update((byte) 0);
+            final byte[] digest = md.digest(name.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder(2 * digest.length + SUFFIX.length());
+            for (final byte b : digest) {
+                sb.append(HEX_CHARS[(b >> 4) & 0xF]).append(HEX_CHARS[b & 0xF]); // NOCS: MagicNumber
+            }
+            return mDir.resolve(sb.append(SUFFIX).toString());
+        } catch (final NoSuchAlgorithmException e) {
+            // SHA-256 is available on every Java platform
+            throw new IllegalStateException("Unexpected exception: " + e, e);
+        }
+    }
+}
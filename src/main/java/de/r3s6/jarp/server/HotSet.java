@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the requests per resource to find the resources requested most
+ * often.
+ * <p>
+ * Counting must not slow down the request handling, so every resource has a
+ * {@link LongAdder}, that doesn't block concurrent threads. The counters are
+ * periodically collected by {@link #update()} into a score, that halves in
+ * every period, so resources requested in the past become cold again.
+ *
+ * @author Ralf Schandl
+ */
+final class HotSet {
+
+    /** Minimum score of a hot resource. */
+    static final long MIN_SCORE = 4;
+
+    /** Counters by group and resource name. */
+    private final Map<String, Counter> mCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Counts a request of a resource.
+     *
+     * @param group    the group of the resource, like the deck prefix
+     * @param resource the resource name
+     */
+    void hit(final String group, final String resource) {
+        final String key = group + resource;
+        Counter counter = mCounters.get(key);
+        if (counter == null) {
+            counter = mCounters.computeIfAbsent(key, k -> new Counter(group, resource));
+        }
+        counter.mHits.increment();
+    }
+
+    /**
+     * Collects the requests since the last call and determines the hot
+     * resources. Not thread-safe, must only be called by one thread.
+     *
+     * @return the hot resources, the hottest first
+     */
+    List<Counter> update() {
+        final List<Counter> hot = new ArrayList<>();
+        final Iterator<Counter> iter = mCounters.values().iterator();
+        while (iter.hasNext()) {
+            final Counter counter = iter.next();
+            counter.mScore = counter.mScore / 2 + counter.mHits.sumThenReset();
+            if (counter.mScore == 0) {
+                // a concurrent hit might get lost, that doesn't matter
+                iter.remove();
+            } else if (counter.mScore >= MIN_SCORE) {
+                hot.add(counter);
+            }
+        }
+        hot.sort(Comparator.comparingLong(Counter::getScore).reversed());
+        return hot;
+    }
+
+    /**
+     * Request counter of a resource.
+     */
+    static final class Counter {
+        private final String mGroup;
+        private final String mResource;
+        private final LongAdder mHits = new LongAdder();
+        private long mScore;
+
+        private Counter(final String group, final String resource) {
+            mGroup = group;
+            mResource = resource;
+        }
+
+        String getGroup() {
+            return mGroup;
+        }
+
+        String getResource() {
+            return mResource;
+        }
+
+        long getScore() {
+            return mScore;
+        }
+    }
+}
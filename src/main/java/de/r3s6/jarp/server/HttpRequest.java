@@ -26,6 +26,7 @@ class HttpRequest {
     private final String mVersion;
     private final Map<String, String> mHeaders;
     private final URL mUrl;
+    private final String mPath;
 
     private final boolean mKeepAlive;
 
@@ -44,12 +45,15 @@ class HttpRequest {
             path = "/";
         }
 
-        final String url = "http://" + builder.mHost + path;
         try {
-            final URI uri = new URI(url);
-            mUrl = uri.normalize().toURL();
+            // the path is decoded, the URI encodes characters like spaces again
+            final int query = path.indexOf('?');
+            final URI uri = new URI("http", builder.mHost, query < 0 ? path : path.substring(0, query),
+                    query < 0 ? null : path.substring(query + 1), null).normalize();
+            mUrl = uri.toURL();
+            mPath = uri.getPath();
         } catch (final URISyntaxException e) {
-            Logger.instance().error("Invalid request URL: " + url, e);
+            Logger.instance().error("Invalid request URL: http://" + builder.mHost + path, e);
             throw new MalformedURLException(e.getMessage());
         }
 
@@ -71,10 +75,10 @@ class HttpRequest {
     /**
      * Get the path part of the url.
      *
-     * @return path part of url - NEVER null or empty
+     * @return decoded path part of url - NEVER null or empty
      */
     public String getPath() {
-        return mUrl.getPath();
+        return mPath;
     }
 
     public Map<String, String> getHeaders() {
@@ -89,6 +93,42 @@ class HttpRequest {
         return mKeepAlive;
     }
 
+    /**
+     * Whether the client accepts the given content coding according to the header
+     * "Accept-Encoding". A coding with "q=0" is not accepted. The wildcard "*" is
+     * only used if the coding isn't listed explicitly (RFC 9110, 12.5.3).
+     *
+     * @param coding the content coding like "gzip"
+     * @return whether the coding is acceptable for the client
+     */
+    public boolean acceptsEncoding(final String coding) {
+        final String accept = mHeaders.get("accept-encoding");
+        if (accept == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (final String part : accept.split(",")) {
+            final String[] params = part.split(";");
+            final String name = params[0].trim();
+            if (name.equalsIgnoreCase(coding)) {
+                return !isZeroQuality(params);
+            } else if ("*".equals(name)) {
+                wildcard = !isZeroQuality(params);
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static boolean isZeroQuality(final String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            final String param = params[i].trim();
+            if (param.startsWith("q=") && param.substring(2).matches("0(\\.0*)?")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     static class Builder {
         private String mMethod;
         private String mPath;
@@ -12,7 +12,9 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.SequenceInputStream;
 import java.io.StringWriter;
 import java.net.HttpRetryException;
 import java.net.InetAddress;
@@ -24,6 +26,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
@@ -32,12 +35,22 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.r3s6.jarp.JarPresenter;
-import de.r3s6.jarp.Utilities;
 
 /**
  * A minimalistic HTTP server.
@@ -45,9 +58,45 @@ import de.r3s6.jarp.Utilities;
  * Only serves resources available via classpath using GET and handles HEAD
  * requests. No other requests supported. <b>No security!</b>
  * <p>
+ * The resources are read from a {@link ResourceProvider}. In development mode
+ * they are served from a directory (optionally on top of the presentation in
+ * the jar), and might change while the server is running. Then the resource
+ * manifest and precompressed variants are not used, browsers must always
+ * revalidate and the ETags change whenever a file changes. See
+ * {@link #watch(Path, boolean)}.
+ * <p>
+ * A server can also serve several presentations ({@link Deck}s). Then every
+ * deck is mounted under its own URL prefix and the root shows a generated
+ * index page. The decks share the connection threads and the resource cache,
+ * but every deck has a quota in the cache.
+ * <p>
+ * If the client accepts gzip, a precompressed variant of a resource (resource
+ * name with suffix ".gz") is served, if available. Else compressible resources
+ * are compressed on the fly. See {@link ResourceCache}.
+ * <p>
+ * If the presentation contains a {@link ResourceManifest}, content type, ETag
+ * and the availability of precompressed variants are taken from it. Resources
+ * not listed in the manifest are not served.
+ * <p>
+ * The Cache-Control header is set according to the {@link CacheRules} from
+ * the metadata. Fingerprinted resources are always cached forever.
+ * <p>
  * Note that the class {@link HttpResponseMessage} also contains some relevant
  * logic regarding headers and body transfer.
  * <p>
+ * To embed the server in another application, create it with a
+ * {@link Builder}, which also allows to limit the number of connection threads
+ * and the size of the resource cache:
+ *
+ * <pre>
+ * HttpServerchen server = HttpServerchen.builder()
+ *         .port(8080)
+ *         .resources(new DirectoryResources(Path.of("slides")))
+ *         .threads(8)
+ *         .build();
+ * server.serve(); // blocks until shutdown() is called
+ * </pre>
+ * <p>
  * BTW: In German the suffix "chen" is used to build the diminutive of
  * something. Like "PeterCHEN" is typically a small child named "Peter".
  *
@@ -73,16 +122,35 @@ public class HttpServerchen implements Closeable {
 
     private static final String METHOD_HEAD = "HEAD";
 
+    private static final String HDR_ACCEPT_ENCODING = "Accept-Encoding";
+
     private static final String HDR_CONTENT_ENCODING = "Content-Encoding";
 
     private static final String HDR_CONTENT_TYPE = "Content-Type";
 
+    private static final String HDR_CACHE_CONTROL = "Cache-Control";
+
     private static final String HDR_CONNECTION = "Connection";
 
     private static final String HDR_ETAG = "ETag";
 
     private static final String HDR_IF_NONE_MATCH = "If-None-Match";
 
+    private static final String HDR_VARY = "Vary";
+
+    private static final String GZIP = "gzip";
+
+    private static final String NO_CACHE = "no-cache";
+
+    /** Request path of the start page or the index page. */
+    private static final String ROOT_PATH = "/";
+
+    /** Suffix of precompressed variants of a resource. */
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private static final String HTTP_INDEX_FMT = "<html><head><meta charset=\"utf-8\"><title>Presentations</title>"
+            + "</head><body><h1>Presentations</h1><ul>%s</ul><p><sub>jar presenter</sub></p></body></html>";
+
     private static final String HTTP404_FMT = "<html><head><meta charset=\"utf-8\"><title>Not Found</title></head>"
             + "<body><p>The requested resource could not be found.</p>"
             + "<tt>%s</tt><p><sub>jar presenter</sub></p></body></html>";
@@ -100,13 +168,37 @@ public class HttpServerchen implements Closeable {
     /** Close socket when client send nothing within 60 seconds. */
     private static final int SOCKET_TIMEOUT = 60 * 1000;
 
+    /**
+     * Milliseconds between the checks whether a idle connection should be
+     * closed, as other connections wait for a thread.
+     */
+    private static final int IDLE_CHECK_INTERVAL = 1000;
+
+    /** Seconds between the updates of the hot resources. */
+    private static final int HOT_SET_INTERVAL = 10;
+
     private final ServerSocket mServerSocket;
 
-    private final ClassLoader mClassLoader;
+    /** The served decks by URL prefix. A single deck has the prefix "". */
+    private final Map<String, Deck> mDecks;
+
+    /** Whether the decks are mounted under their prefix with a index page. */
+    private final boolean mHub;
 
-    private final String mRootDir;
+    /** Whether the resources might change while the server is running. */
+    private final boolean mDevMode;
 
-    private final String mStartPage;
+    /** Cache shared by all decks. The keys are the request paths. */
+    private final ResourceCache mCache;
+
+    /** Threads handling the client connections. */
+    private final ExecutorService mPool;
+
+    /** Counts the requests per resource. */
+    private final HotSet mHotSet = new HotSet();
+
+    /** Hot resources loaded into the cache, that are not cached otherwise. */
+    private Set<String> mPromoted = Set.of();
 
     private final OffsetDateTime mStartTime;
     private final String mStartTimeFormatted;
@@ -118,6 +210,15 @@ public class HttpServerchen implements Closeable {
      */
     private final byte[] mEtagInitBytes;
 
+    /** Incremented whenever a resource changes, to get new ETags. */
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    /** Watches the presentation directory in development mode. */
+    private DirectoryWatcher mWatcher;
+
+    /** Tells browsers to reload. {@code null} if live reload is disabled. */
+    private volatile LiveReload mLiveReload;
+
     private boolean mShutdown;
 
     /**
@@ -129,28 +230,57 @@ public class HttpServerchen implements Closeable {
      * @throws IOException if reading the metadata files produces it.
      */
     public HttpServerchen(final int port, final String rootDir, final ClassLoader classLoader) throws IOException {
+        this(port, new ClassLoaderResources(classLoader, rootDir), false);
+    }
 
-        mClassLoader = classLoader;
-
-        // backlog = 0 -> "an implementation specific default will be used"
-        mServerSocket = new ServerSocket(port, 0, InetAddress.getByName("localhost"));
-        mRootDir = rootDir;
+    /**
+     * Constructs a HttpServerchen.
+     *
+     * @param port      the port to open. 0 means to choose a random port.
+     * @param resources the resources to serve
+     * @param devMode   whether the resources might change while the server is
+     *                  running
+     * @throws IOException if reading the metadata files produces it.
+     */
+    HttpServerchen(final int port, final ResourceProvider resources, final boolean devMode) throws IOException {
+        this(port, Map.of("", new Deck("", resources, devMode)), false, devMode,
+                new ResourceCache(ResourceCache.DEFAULT_MAX_SIZE), 0);
+    }
 
-        final String metadataFile = rootDir + '/' + JarPresenter.METADATA_BASENAME;
+    /**
+     * Constructs a HttpServerchen serving several presentations. Every
+     * presentation is served with the URL prefix "/&lt;name&gt;/". The root
+     * shows a index page with links to all presentations.
+     *
+     * @param port  the port to open. 0 means to choose a random port.
+     * @param decks the resources of the presentations by name, in the order
+     *              to show on the index page. The names must be usable in
+     *              URLs without encoding.
+     * @throws IOException if reading the metadata files produces it.
+     */
+    HttpServerchen(final int port, final Map<String, ResourceProvider> decks) throws IOException {
+        this(port, createDecks(decks), true, false,
+                new ResourceCache(ResourceCache.DEFAULT_MAX_SIZE, ResourceCache.DEFAULT_GROUP_QUOTA), 0);
+    }
 
-        final Map<String, String> metadata = Utilities.readPropertyMapResource(metadataFile, classLoader);
+    // CSOFF: ParameterNumber
+    private HttpServerchen(final int port, final Map<String, Deck> decks, final boolean hub, final boolean devMode,
+            final ResourceCache cache, final int threads) throws IOException {
 
-        if (metadata.containsKey(JarPresenter.PROP_STARTPAGE) && !metadata.get(JarPresenter.PROP_STARTPAGE).isBlank()) {
-            mStartPage = "/" + metadata.get(JarPresenter.PROP_STARTPAGE).trim().replaceFirst("^/+", "");
+        mDecks = decks;
+        mHub = hub;
+        mDevMode = devMode;
+        mCache = cache;
+        mPool = createPool(threads);
 
-        } else {
-            mStartPage = "/index.html";
-        }
+        // backlog = 0 -> "an implementation specific default will be used"
+        mServerSocket = new ServerSocket(port, 0, InetAddress.getByName("localhost"));
 
         mStartTime = OffsetDateTime.now();
         mStartTimeFormatted = DATE_FORMATTER.format(mStartTime);
         mEtagInitBytes = (mStartTimeFormatted + "-" + port).getBytes();
     }
+    // CSON: ParameterNumber
 
     /**
      * Constructs a HttpServerchen.
@@ -174,10 +304,215 @@ public class HttpServerchen implements Closeable {
         this(port, JarPresenter.PRESENTATION_DIR);
     }
 
+    /**
+     * Creates a builder to configure a HttpServerchen.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static ExecutorService createPool(final int threads) {
+        final ThreadFactory factory = r -> {
+            final Thread thread = new Thread(r, "jarp-http");
+            thread.setDaemon(true);
+            return thread;
+        };
+        return threads > 0 ? Executors.newFixedThreadPool(threads, factory) : Executors.newCachedThreadPool(factory);
+    }
+
+    private static Map<String, Deck> createDecks(final Map<String, ResourceProvider> decks) throws IOException {
+        final Map<String, Deck> result = new LinkedHashMap<>();
+        for (final Map.Entry<String, ResourceProvider> entry : decks.entrySet()) {
+            final String prefix = '/' + entry.getKey();
+            result.put(prefix, new Deck(prefix, entry.getValue(), false));
+        }
+        return result;
+    }
+
     public int getPort() {
         return mServerSocket.getLocalPort();
     }
 
+    /**
+     * Gets the number of presentations mounted under their own prefix.
+     *
+     * @return the number of presentations or 0 if a single presentation is
+     *         served
+     */
+    int getDeckCount() {
+        return mHub ? mDecks.size() : 0;
+    }
+
+    /**
+     * Gets the title of the presentation from the metadata.
+     *
+     * @return the title or {@code null}, also if serving several presentations
+     */
+    String getTitle() {
+        return mHub ? null : mDecks.get("").getTitle();
+    }
+
+    /**
+     * Loads resources in the background, so the first viewers don't wait for
+     * class loading, JIT compilation, reading from the jar and compression.
+     * The resources are requested via HTTP like a browser would do, so the
+     * server should be serving (or about to serve) when this is called.
+     * <p>
+     * Either the start page of every presentation and the resources it
+     * references (as far as they can be found in HTML and CSS) or all
+     * resources from the resource manifest are loaded. Without manifest only
+     * the start page and its references are loaded.
+     *
+     * @param all whether to load all resources instead of only the start page
+     *            and its references
+     * @return future completed with the number of loaded resources when done
+     */
+    public CompletableFuture<Integer> warmUp(final boolean all) {
+        final List<String> paths = new ArrayList<>();
+        boolean followRefs = false;
+        for (final Deck deck : mDecks.values()) {
+            paths.add(deck.getPrefix() + deck.getStartPage());
+            if (all && deck.getManifest() != null) {
+                deck.getManifest().paths().stream().sorted().forEach(path -> paths.add(deck.getPrefix() + path));
+            } else {
+                followRefs = true;
+            }
+        }
+
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+        final boolean crawl = followRefs;
+        final Thread thread = new Thread(() -> {
+            try {
+                result.complete(new WarmUp(getPort()).run(paths, crawl));
+            } catch (final RuntimeException e) { // NOCS: IllegalCatch
+                result.completeExceptionally(e);
+            }
+        }, "jarp-warmup");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Loads the resources requested most often into the cache, as far as they
+     * fit into half of it. Resources that are usually not cached (like images)
+     * are then also served from memory, and compressible resources get their
+     * compressed variant before it is requested. Resources not cached
+     * otherwise are removed from the cache, when they are not hot anymore.
+     * <p>
+     * Called periodically while serving.
+     */
+    void promoteHotResources() {
+        final long budget = mCache.getMaxSize() / 2;
+        long size = 0;
+        final Set<String> promoted = new HashSet<>();
+        for (final HotSet.Counter counter : mHotSet.update()) {
+            final Deck deck = mDecks.get(counter.getGroup());
+            final String resource = counter.getResource();
+            final String key = counter.getGroup() + resource;
+            final boolean compressible = ContentTypes.instance().isCompressible(resource);
+            try {
+                ResourceCache.Entry entry = mCache.get(key);
+                if (entry == null) {
+                    if (compressible && hasGzipVariant(deck, resource)) {
+                        // served from the precompressed variant
+                        continue;
+                    }
+                    entry = load(deck, key, resource);
+                    if (entry == null) {
+                        continue;
+                    }
+                }
+                if (compressible) {
+                    mCache.getGzipData(entry);
+                } else {
+                    promoted.add(key);
+                }
+                size += entry.size();
+            } catch (final IOException e) {
+                LOGGER.debug("Loading hot resource " + key + " failed: " + e);
+            }
+            if (size >= budget) {
+                break;
+            }
+        }
+
+        for (final String key : mPromoted) {
+            if (!promoted.contains(key)) {
+                LOGGER.debug("Cold resource: " + key);
+                mCache.remove(key);
+            }
+        }
+        mPromoted = promoted;
+    }
+
+    private boolean hasGzipVariant(final Deck deck, final String resource) throws IOException {
+        final ResourceManifest manifest = deck.getManifest();
+        if (manifest != null) {
+            final ResourceManifest.Entry info = manifest.get(resource);
+            return info != null && info.hasGzipVariant();
+        }
+        try (InputStream in = deck.getResources().open(resource + GZIP_SUFFIX)) {
+            return in != null;
+        }
+    }
+
+    private ResourceCache.Entry load(final Deck deck, final String key, final String resource) throws IOException {
+        try (InputStream in = deck.getResources().open(resource)) {
+            if (in == null) {
+                return null;
+            }
+            final byte[] data = in.readNBytes(ResourceCache.MAX_ENTRY_SIZE + 1);
+            if (data.length > ResourceCache.MAX_ENTRY_SIZE) {
+                return null;
+            }
+            LOGGER.debug("Hot resource: " + key);
+            return mCache.put(deck.getPrefix(), deck.getResources().getIdentity(), key, data);
+        }
+    }
+
+    /**
+     * Watches the given presentation directory. If a file changes, its cached
+     * content and compressed variant are dropped and new ETags are used, so
+     * browsers get the current content. Only for development mode.
+     *
+     * @param dir        the presentation directory
+     * @param liveReload whether to tell the browsers to reload the page when a
+     *                   file changed
+     * @throws IOException if the directory can't be watched
+     */
+    void watch(final Path dir, final boolean liveReload) throws IOException {
+        if (!mDevMode) {
+            throw new IllegalStateException("Not in development mode");
+        }
+        if (liveReload) {
+            mLiveReload = new LiveReload();
+        }
+        mWatcher = new DirectoryWatcher(dir, this::resourcesChanged);
+    }
+
+    /**
+     * Called when files in the watched directory changed.
+     *
+     * @param paths the changed paths or {@code null} if unknown
+     */
+    private void resourcesChanged(final Set<String> paths) {
+        mGeneration.incrementAndGet();
+        if (paths == null) {
+            mCache.clear();
+        } else {
+            for (final String path : paths) {
+                mCache.remove(path);
+            }
+        }
+        final LiveReload liveReload = mLiveReload;
+        if (liveReload != null) {
+            liveReload.reload();
+        }
+    }
+
     /**
      * Shut down the server.
      */
@@ -188,7 +523,20 @@ public class HttpServerchen implements Closeable {
         } catch (final IOException e) {
             LOGGER.error("Closing server socket failed.");
         }
+        stopWatching();
+    }
 
+    private void stopWatching() {
+        if (mWatcher != null) {
+            try {
+                mWatcher.close();
+            } catch (final IOException e) {
+                LOGGER.error("Closing directory watcher failed.");
+            }
+        }
+        if (mLiveReload != null) {
+            mLiveReload.close();
+        }
     }
 
     /**
@@ -198,11 +546,21 @@ public class HttpServerchen implements Closeable {
      */
     public void serve() throws IOException {
         LOGGER.info("Listening on port " + mServerSocket.getLocalPort());
+        final ScheduledExecutorService hotSetUpdater = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "jarp-hotset");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!mDevMode) {
+            // in development mode the resources change, so don't keep them
+            hotSetUpdater.scheduleWithFixedDelay(this::promoteHotResources, HOT_SET_INTERVAL, HOT_SET_INTERVAL,
+                    TimeUnit.SECONDS);
+        }
         try {
             while (true) {
                 final Socket client = mServerSocket.accept();
                 if (!mShutdown) {
-                    new Thread(() -> handleClient(client)).start();
+                    mPool.execute(() -> handleClient(client));
                 } else {
                     break;
                 }
@@ -213,6 +571,9 @@ public class HttpServerchen implements Closeable {
             }
         }
         LOGGER.info("Shutting down");
+        hotSetUpdater.shutdownNow();
+        // running requests are completed
+        mPool.shutdown();
         if (!mServerSocket.isClosed()) {
             mServerSocket.close();
         }
@@ -228,6 +589,8 @@ public class HttpServerchen implements Closeable {
 
         final String host = client.getLocalAddress().getCanonicalHostName() + ":" + client.getLocalPort();
 
+        // whether the connection was handed over to a live reload thread
+        boolean handedOver = false;
         try {
             /*
              * Not try-with-resource, as this would close the client socket before exception
@@ -237,13 +600,20 @@ public class HttpServerchen implements Closeable {
             final BufferedReader br = new BufferedReader(new InputStreamReader(client.getInputStream()));
 
             while (!client.isClosed() && !client.isInputShutdown()) {
+                if (!awaitRequest(client, br)) {
+                    return;
+                }
                 final HttpRequest req = readRequest(br, host);
                 if (req == null) {
                     return;
                 }
                 LOGGER.request(req);
 
-                if (METHOD_GET.equals(req.getMethod()) || METHOD_HEAD.equals(req.getMethod())) {
+                if (mLiveReload != null && LiveReload.PATH.equals(req.getPath())) {
+                    serveLiveReload(client, req);
+                    handedOver = true;
+                    return;
+                } else if (METHOD_GET.equals(req.getMethod()) || METHOD_HEAD.equals(req.getMethod())) {
                     if (!validatePath(req.getPath())) {
                         sendBadRequestResponse(client, req, "Invalid request path", req.getPath());
                     } else {
@@ -297,12 +667,63 @@ public class HttpServerchen implements Closeable {
                 // exiting anyway
             }
         } finally {
-            try {
-                LOGGER.debug("Closing socket connection");
-                client.close();
-            } catch (final IOException e) {
-                LOGGER.debug("Socket close failed: " + e.toString());
+            if (!handedOver) {
+                closeClient(client);
+            }
+        }
+    }
+
+    /**
+     * Waits for the next request on a connection. A idle connection is closed
+     * after 60 seconds or as soon as other connections wait for a thread, so
+     * idle keep-alive connections can't block new clients.
+     *
+     * @return {@code false} if the connection should be closed
+     */
+    private boolean awaitRequest(final Socket client, final BufferedReader br) throws IOException {
+        if (br.ready()) {
+            return true;
+        }
+        final long deadline = System.currentTimeMillis() + SOCKET_TIMEOUT;
+        client.setSoTimeout(IDLE_CHECK_INTERVAL);
+        try {
+            while (true) {
+                try {
+                    br.mark(1);
+                    if (br.read() < 0) {
+                        LOGGER.debug("No Request -- client closed");
+                        return false;
+                    }
+                    br.reset();
+                    return true;
+                } catch (final SocketTimeoutException e) {
+                    if (isSaturated()) {
+                        LOGGER.debug("Closing idle connection, as all threads are busy");
+                        return false;
+                    } else if (System.currentTimeMillis() >= deadline) {
+                        LOGGER.debug("Closing idle connection");
+                        return false;
+                    }
+                }
             }
+        } finally {
+            client.setSoTimeout(SOCKET_TIMEOUT);
+        }
+    }
+
+    /**
+     * Whether connections wait for a thread.
+     */
+    private boolean isSaturated() {
+        return mPool instanceof ThreadPoolExecutor && !((ThreadPoolExecutor) mPool).getQueue().isEmpty();
+    }
+
+    private static void closeClient(final Socket client) {
+        try {
+            LOGGER.debug("Closing socket connection");
+            client.close();
+        } catch (final IOException e) {
+            LOGGER.debug("Socket close failed: " + e.toString());
         }
     }
 
@@ -443,44 +864,234 @@ public class HttpServerchen implements Closeable {
 
     private void handleRequest(final Socket client, final HttpRequest request) throws IOException {
 
-        final String fn = "/".equals(request.getPath()) ? mStartPage : request.getPath();
+        final Deck deck;
+        String path = request.getPath();
+        if (mHub) {
+            if (ROOT_PATH.equals(path)) {
+                sendIndexResponse(client, request);
+                return;
+            }
+            final int slash = path.indexOf('/', 1);
+            deck = mDecks.get(slash < 0 ? path : path.substring(0, slash));
+            if (deck == null) {
+                send404Response(client, request);
+                return;
+            } else if (slash < 0) {
+                // relative links only work with the trailing slash
+                sendRedirectResponse(client, request, path + '/');
+                return;
+            }
+            path = path.substring(slash);
+            if (!validatePath(path)) {
+                sendBadRequestResponse(client, request, "Invalid request path", request.getPath());
+                return;
+            }
+        } else {
+            deck = mDecks.get("");
+        }
+
+        final String fn = ROOT_PATH.equals(path) ? deck.getStartPage() : path;
         if (accessProtectedFile(fn)) {
             send404Response(client, request);
             return;
         }
 
-        final String resource = mRootDir + fn;
+        final ResourceManifest manifest = deck.getManifest();
+        final ResourceManifest.Entry info = manifest != null ? manifest.get(fn) : null;
+        if (manifest != null && info == null) {
+            // not in the manifest -> doesn't exist
+            send404Response(client, request);
+            return;
+        }
+
+        // deduplicated files share the stored file, its precompressed variant and cache entry
+        final String resource = deck.getResources().resolve(fn);
+        final String gzResource = !mDevMode && (info == null || info.hasGzipVariant()) ? resource + GZIP_SUFFIX
+                : null;
         LOGGER.debug("Serving: " + request.getPath() + " -> " + resource);
 
-        final String etag = calculateEtag(resource);
-        if (etag != null && etag.equals(request.getHeader(HDR_IF_NONE_MATCH))) {
-            sendNotModifiedResponse(client, request, Collections.singletonMap(HDR_ETAG, etag));
+        // the type depends on the requested name, not on the name of a alias target
+        final String[] typeInfo;
+        final boolean compressible;
+        if (info != null) {
+            typeInfo = new String[] { info.getContentType(), info.getContentEncoding() };
+            compressible = info.isCompressible();
         } else {
+            final ContentTypes contentTypes = ContentTypes.instance();
+            typeInfo = contentTypes.guess(fn);
+            compressible = contentTypes.isCompressible(fn);
+        }
 
-            try (InputStream in = mClassLoader.getResourceAsStream(resource)) {
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(HDR_CONTENT_TYPE, typeInfo[0]);
+        if (typeInfo[1] != null) {
+            headers.put(HDR_CONTENT_ENCODING, typeInfo[1]);
+        }
+        if (compressible) {
+            headers.put(HDR_VARY, HDR_ACCEPT_ENCODING);
+        }
+        final boolean gzipWanted = compressible && request.acceptsEncoding(GZIP);
+        final boolean injectScript = mLiveReload != null && "text/html".equals(typeInfo[0]) && typeInfo[1] == null;
+
+        // The ETag is determined before the resource is opened, so a revalidation
+        // doesn't read (and maybe compress) the resource. The variant for clients
+        // accepting gzip needs a different ETag, even if it isn't compressed.
+        final boolean gzipVariant = typeInfo[1] == null && gzipWanted;
+        final String etag;
+        if (info != null) {
+            etag = gzipVariant ? info.getEtag() + '-' + GZIP : info.getEtag();
+        } else {
+            final String generation = String.valueOf(mGeneration.get());
+            final String key = deck.getPrefix() + resource;
+            etag = gzipVariant ? calculateEtag(key, generation, GZIP) : calculateEtag(key, generation);
+        }
+        if (etag != null) {
+            headers.put(HDR_ETAG, etag);
+            if (etag.equals(request.getHeader(HDR_IF_NONE_MATCH))) {
+                // the client got the ETag, so the resource exists
+                addCacheControl(headers, deck, info, fn);
+                headers.remove(HDR_CONTENT_TYPE);
+                headers.remove(HDR_CONTENT_ENCODING);
+                sendNotModifiedResponse(client, request, headers);
+                return;
+            }
+        }
 
-                if (in != null) {
-                    final Map<String, String> headers = new HashMap<>();
-                    final String[] typeInfo = ContentTypes.instance().guess(resource);
-                    headers.put(HDR_CONTENT_TYPE, typeInfo[0]);
-                    if (typeInfo[1] != null) {
-                        headers.put(HDR_CONTENT_ENCODING, typeInfo[1]);
-                    }
-                    if (etag != null) {
-                        headers.put(HDR_ETAG, etag);
-                    }
+        try (InputStream in = openResource(deck, resource, gzResource, compressible || injectScript, gzipWanted,
+                injectScript, headers)) {
+            if (in == null) {
+                send404Response(client, request);
+                return;
+            }
+            mHotSet.hit(deck.getPrefix(), resource);
+            addCacheControl(headers, deck, info, fn);
+            sendResponse(client, request, HttpStatus.OK, headers, in);
+        }
+    }
 
-                    sendResponse(client, request, HttpStatus.OK, headers, in);
-                } else {
-                    // 404
-                    send404Response(client, request);
+    /**
+     * Adds the Cache-Control header. Only called for existing resources, as the
+     * cache rules remember the result per path.
+     */
+    private void addCacheControl(final Map<String, String> headers, final Deck deck,
+            final ResourceManifest.Entry info, final String fn) {
+        final String cacheControl;
+        if (mDevMode) {
+            // always revalidate, the file might have changed
+            cacheControl = NO_CACHE;
+        } else {
+            cacheControl = info != null && info.isImmutable() ? CacheRules.IMMUTABLE : deck.getCacheRules().get(fn);
+        }
+        if (cacheControl != null) {
+            headers.put(HDR_CACHE_CONTROL, cacheControl);
+        }
+    }
+
+    /**
+     * Opens the given resource.
+     * <p>
+     * If the client accepts gzip, the precompressed variant of the resource (with
+     * suffix ".gz") is returned, if available. Else the resource is compressed on
+     * the fly. In both cases the header "Content-Encoding" is set.
+     * <p>
+     * Compressible resources are cached together with their compressed variant.
+     *
+     * @param deck         the deck of the resource
+     * @param resource     the resource name
+     * @param gzResource   the name of the precompressed variant. {@code null} if
+     *                     it is known that no variant exists.
+     * @param compressible whether the resource is compressible
+     * @param gzipWanted   whether the client accepts gzip and the resource is
+     *                     compressible
+     * @param injectScript whether to add the live reload script
+     * @param headers      the response headers. Updated with
+     *                     "Content-Encoding".
+     * @return stream to read the resource or {@code null} if it doesn't exist
+     * @throws IOException if reading the resource fails
+     */
+    // CSOFF: ParameterNumber
+    private InputStream openResource(final Deck deck, final String resource, final String gzResource,
+            final boolean compressible, final boolean gzipWanted, final boolean injectScript,
+            final Map<String, String> headers) throws IOException {
+
+        final ResourceProvider resources = deck.getResources();
+        if (gzipWanted && gzResource != null) {
+            final InputStream gzIn = resources.open(gzResource);
+            if (gzIn != null) {
+                headers.put(HDR_CONTENT_ENCODING, GZIP);
+                return gzIn;
+            }
+        }
+
+        final String key = deck.getPrefix() + resource;
+        if (!compressible) {
+            // only cached, if it is a hot resource
+            final ResourceCache.Entry entry = mCache.get(key);
+            return entry != null ? new ByteArrayInputStream(entry.getData()) : resources.open(resource);
+        }
+
+        ResourceCache.Entry entry = mCache.get(key);
+        if (entry == null) {
+            final InputStream in = resources.open(resource);
+            if (in == null) {
+                return null;
+            }
+            byte[] data = null;
+            try {
+                data = in.readNBytes(ResourceCache.MAX_ENTRY_SIZE + 1);
+            } finally {
+                if (data == null || data.length <= ResourceCache.MAX_ENTRY_SIZE) {
+                    in.close();
                 }
             }
+            if (data.length > ResourceCache.MAX_ENTRY_SIZE) {
+                // to big to cache, the rest is read from the still open stream
+                return new SequenceInputStream(new ByteArrayInputStream(data), in);
+            }
+            entry = mCache.put(deck.getPrefix(), deck.getResources().getIdentity(), key, injectScript ? LiveReload.injectScript(data) : data);
+        }
+
+        if (gzipWanted) {
+            final byte[] gzData = mCache.getGzipData(entry);
+            if (gzData != null) {
+                headers.put(HDR_CONTENT_ENCODING, GZIP);
+                return new ByteArrayInputStream(gzData);
+            }
+        }
+        return new ByteArrayInputStream(entry.getData());
+    }
+    // CSON: ParameterNumber
+
+    /**
+     * Sends the response header for the live reload events and hands the
+     * connection over to a new thread. The connection stays open as long as the
+     * browser shows the page, so it must not occupy a thread of the pool.
+     */
+    private void serveLiveReload(final Socket client, final HttpRequest request) throws IOException {
+        LOGGER.info("Live reload connected");
+        try (HttpResponseMessage msg = new HttpResponseMessage(request.getMethod(), HttpStatus.OK,
+                client.getOutputStream())) {
+            msg.header(HDR_CONTENT_TYPE, LiveReload.CONTENT_TYPE);
+            msg.header(HDR_CACHE_CONTROL, NO_CACHE);
+            msg.header(HDR_CONNECTION, "close");
         }
+        final OutputStream out = client.getOutputStream();
+        final Thread thread = new Thread(() -> {
+            try {
+                mLiveReload.serve(out);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeClient(client);
+            }
+        }, "jarp-live-reload");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     private boolean accessProtectedFile(final String fn) {
-        return fn.endsWith("jarp-metadata.properties");
+        return fn.endsWith(JarPresenter.METADATA_BASENAME) || fn.endsWith(JarPresenter.ALIASES_BASENAME)
+                || fn.endsWith(JarPresenter.RESOURCES_BASENAME) || fn.endsWith(JarPresenter.MINIFIED_BASENAME);
     }
 
     private String calculateEtag(final String... parts) {
@@ -512,6 +1123,25 @@ public class HttpServerchen implements Closeable {
         sendResponse(client, request, HttpStatus.NOT_MODIFIED, headers, null);
     }
 
+    private void sendIndexResponse(final Socket client, final HttpRequest request) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (final Deck deck : mDecks.values()) {
+            final String title = deck.getTitle() != null ? deck.getTitle() : deck.getPrefix().substring(1);
+            sb.append("<li><a href=\"").append(deck.getPrefix()).append("/\">")
+                    .append(ServerCommand.escapeHtml(title)).append("</a></li>");
+        }
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(HDR_CACHE_CONTROL, NO_CACHE);
+        sendHtmlResponse(client, request, HttpStatus.OK, headers, String.format(HTTP_INDEX_FMT, sb));
+    }
+
+    private void sendRedirectResponse(final Socket client, final HttpRequest request, final String location)
+            throws IOException {
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Location", location);
+        sendResponse(client, request, HttpStatus.FOUND, headers, null);
+    }
+
     private void sendMethodNotImplementedResponse(final Socket client, final HttpRequest request) throws IOException {
         final Map<String, String> headers = new HashMap<>();
         headers.put("Allow", METHOD_GET + ", " + METHOD_HEAD);
@@ -590,6 +1220,16 @@ public class HttpServerchen implements Closeable {
 
     @Override
     public void close() {
+        stopWatching();
+        for (final Deck deck : mDecks.values()) {
+            if (deck.getResources() instanceof Closeable) {
+                try {
+                    ((Closeable) deck.getResources()).close();
+                } catch (final IOException e) {
+                    LOGGER.error("Closing resources of " + deck.getPrefix() + " failed: " + e);
+                }
+            }
+        }
         if (this.mServerSocket != null) {
             try {
                 mServerSocket.close();
@@ -599,6 +1239,151 @@ public class HttpServerchen implements Closeable {
         }
     }
 
+    /**
+     * Builder for a HttpServerchen. Either a single presentation is served (see
+     * {@link #resources(ResourceProvider)}) or several presentations, each
+     * with its own URL prefix (see {@link #deck(String, ResourceProvider)}).
+     */
+    public static final class Builder {
+        private int mPort;
+        private int mThreads;
+        private long mCacheSize = ResourceCache.DEFAULT_MAX_SIZE;
+        private boolean mDevMode;
+        private Path mDiskCacheDir;
+        private ResourceProvider mResources;
+        private final Map<String, ResourceProvider> mDecks = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the port to open. The default 0 means to choose a random port.
+         *
+         * @param port the port
+         * @return this builder
+         */
+        public Builder port(final int port) {
+            mPort = port;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of threads handling client connections. As
+         * browsers keep connections open, every open connection occupies a
+         * thread until it is idle for 60 seconds. When all threads are busy
+         * and new connections wait, idle connections are closed within a
+         * second. Live reload connections don't use these threads. The
+         * default 0 means no limit.
+         *
+         * @param threads the maximum number of threads
+         * @return this builder
+         */
+        public Builder threads(final int threads) {
+            if (threads < 0) {
+                throw new IllegalArgumentException("Invalid number of threads: " + threads);
+            }
+            mThreads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the size of the memory cache for resources. The default is 64
+         * MB. When serving several presentations, every presentation may use
+         * a quarter of the cache.
+         *
+         * @param bytes the maximum number of bytes to cache, 0 disables the
+         *              cache
+         * @return this builder
+         */
+        public Builder cacheSize(final long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Invalid cache size: " + bytes);
+            }
+            mCacheSize = bytes;
+            return this;
+        }
+
+        /**
+         * Sets a directory to keep the gzip compressed variants of resources
+         * created by the server, so they don't have to be compressed again
+         * after a restart. By default they are only kept in memory.
+         *
+         * @param dir the directory, created if it doesn't exist
+         * @return this builder
+         */
+        public Builder diskCache(final Path dir) {
+            mDiskCacheDir = dir;
+            return this;
+        }
+
+        /**
+         * Sets whether the resources might change while the server is running.
+         * See {@link HttpServerchen}.
+         *
+         * @param devMode whether to enable development mode
+         * @return this builder
+         */
+        public Builder devMode(final boolean devMode) {
+            mDevMode = devMode;
+            return this;
+        }
+
+        /**
+         * Sets the resources of the single presentation to serve.
+         *
+         * @param resources the resources
+         * @return this builder
+         */
+        public Builder resources(final ResourceProvider resources) {
+            mResources = resources;
+            return this;
+        }
+
+        /**
+         * Adds a presentation served with the URL prefix "/&lt;name&gt;/". The
+         * root shows a index page with links to all presentations in the order
+         * they were added.
+         *
+         * @param name      the name of the presentation. Only letters, digits,
+         *                  '_', '.' and '-' are allowed.
+         * @param resources the resources of the presentation
+         * @return this builder
+         */
+        public Builder deck(final String name, final ResourceProvider resources) {
+            if (!name.matches("[\\w.-]+")) {
+                throw new IllegalArgumentException("Invalid presentation name: " + name);
+            }
+            if (mDecks.putIfAbsent(name, resources) != null) {
+                throw new IllegalArgumentException("Duplicate presentation name: " + name);
+            }
+            return this;
+        }
+
+        /**
+         * Creates the server. The server socket is opened, call
+         * {@link HttpServerchen#serve()} to start serving.
+         *
+         * @return the new server
+         * @throws IOException if reading the metadata files or opening the
+         *                     server socket fails
+         */
+        public HttpServerchen build() throws IOException {
+            if ((mResources == null) == mDecks.isEmpty()) {
+                throw new IllegalStateException("Either resources or decks must be set");
+            }
+            if (mResources == null && mDevMode) {
+                throw new IllegalStateException("Development mode only supported for a single presentation");
+            }
+            final DiskCache diskCache = mDiskCacheDir != null ? new DiskCache(mDiskCacheDir) : null;
+            if (mResources != null) {
+                return new HttpServerchen(mPort, Map.of("", new Deck("", mResources, mDevMode)), false, mDevMode,
+                        new ResourceCache(mCacheSize, mCacheSize, diskCache), mThreads);
+            }
+            return new HttpServerchen(mPort, createDecks(mDecks), true, false,
+                    new ResourceCache(mCacheSize, mCacheSize / 4, diskCache), mThreads); // NOCS: MagicNumber
+        }
+    }
+
     /**
      * Reports that something with the HTTP request is wrong.
      */
@@ -15,6 +15,8 @@ public enum HttpStatus {
 
     /** 200 - OK. */
     OK(200, "OK"),
+    /** 302 - Found. */
+    FOUND(302, "Found"),
     /** 304 - Not Modified. */
     NOT_MODIFIED(304, "Not Modified"),
     /** 400 - Bad Request. */
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.zip.ZipIndex;
+
+/**
+ * Provides the resources of the presentation in a jar file that is not on the
+ * class path. Used to serve several presentation jars from one server. The
+ * entries are looked up in the index of the central directory read when the
+ * jar is opened.
+ * <p>
+ * Like {@link ClassLoaderResources} deduplicated files are resolved via the
+ * aliases file {@value JarPresenter#ALIASES_BASENAME}.
+ *
+ * @author Ralf Schandl
+ */
+public final class JarResources implements ResourceProvider, Closeable {
+
+    private final ZipIndex mZip;
+
+    private final Aliases mAliases;
+
+    private final String mIdentity;
+
+    /**
+     * Opens the given presentation jar.
+     *
+     * @param jar the jar file
+     * @throws IOException if the jar can't be read or doesn't contain a
+     *                     presentation
+     */
+    public JarResources(final Path jar) throws IOException {
+        mIdentity = jar.toAbsolutePath().normalize().toString();
+        mZip = ZipIndex.open(jar);
+        try {
+            if (mZip.getEntry(JarPresenter.METADATA_PATH) == null) {
+                throw new IOException("Not a presentation jar: " + jar);
+            }
+            final ZipIndex.Entry aliases = mZip
+                    .getEntry(JarPresenter.PRESENTATION_DIR + '/' + JarPresenter.ALIASES_BASENAME);
+            mAliases = new Aliases(aliases != null ? mZip.getInputStream(aliases) : null);
+        } catch (final IOException e) {
+            mZip.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(final String path) throws IOException {
+        final ZipIndex.Entry entry = mZip
+                .getEntry(JarPresenter.PRESENTATION_DIR + mAliases.resolve(path));
+        if (entry == null || entry.isDirectory()) {
+            return null;
+        }
+        return mZip.getInputStream(entry);
+    }
+
+    @Override
+    public String resolve(final String path) {
+        return mAliases.resolve(path);
+    }
+
+    /**
+     * Gets the absolute path of the jar. A rebuilt jar has the same identity,
+     * its changed files are detected by their content.
+     */
+    @Override
+    public String getIdentity() {
+        return mIdentity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mZip.close();
+    }
+}
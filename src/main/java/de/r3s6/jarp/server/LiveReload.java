@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells connected browsers to reload the page, when the presentation changed.
+ * <p>
+ * A small script is added to every HTML page. It opens a connection to
+ * {@value #PATH} and receives "Server-Sent Events" (content type
+ * "text/event-stream"). When it receives a event, it reloads the page. The
+ * connections are kept open by the server. Every connection is served by its
+ * own thread (not from the connection pool) that waits for events in a queue.
+ *
+ * @author Ralf Schandl
+ */
+final class LiveReload {
+
+    /** Path to receive the reload events. */
+    static final String PATH = "/.jarp/live-reload";
+
+    /** Content type of Server-Sent Events. */
+    static final String CONTENT_TYPE = "text/event-stream";
+
+    private static final Logger LOGGER = Logger.instance();
+
+    private static final String SCRIPT = "<script>new EventSource(\"" + PATH
+            + "\").onmessage = function() { location.reload(); };</script>";
+
+    private static final String BODY_END = "</body>";
+
+    /** Interval to send a comment to detect closed connections. */
+    private static final long PING_SECONDS = 15;
+
+    private static final String RELOAD = "data: reload\n\n";
+
+    private static final String PING = ": ping\n\n";
+
+    private final Set<BlockingQueue<String>> mClients = ConcurrentHashMap.newKeySet();
+
+    /** Set by {@link #close()} to end all connections. */
+    private volatile boolean mClosed;
+
+    /**
+     * Adds the live reload script to the given HTML page. It is inserted before
+     * the closing body tag or appended, if there is none.
+     *
+     * @param html the HTML page
+     * @return the HTML page with the script
+     */
+    static byte[] injectScript(final byte[] html) {
+        final String page = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(html)).toString();
+        int pos = page.length() - BODY_END.length();
+        while (pos >= 0 && !page.regionMatches(true, pos, BODY_END, 0, BODY_END.length())) {
+            pos--;
+        }
+        final String result = pos >= 0 ? page.substring(0, pos) + SCRIPT + page.substring(pos) : page + SCRIPT;
+        return result.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends reload events to the given stream until the connection is closed by
+     * the client or {@link #close()} is called. The HTTP headers must already be
+     * written.
+     *
+     * @param out the stream to the browser
+     * @throws InterruptedException if the thread is interrupted
+     */
+    void serve(final OutputStream out) throws InterruptedException {
+        final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        mClients.add(queue);
+        try {
+            String event = PING;
+            while (!mClosed) {
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                event = queue.poll(PING_SECONDS, TimeUnit.SECONDS);
+                if (event == null) {
+                    event = PING;
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.debug("Live reload connection closed: " + e);
+        } finally {
+            mClients.remove(queue);
+        }
+    }
+
+    /**
+     * Tells all connected browsers to reload.
+     */
+    void reload() {
+        for (final BlockingQueue<String> client : mClients) {
+            client.offer(RELOAD);
+        }
+    }
+
+    /**
+     * Ends all connections.
+     */
+    void close() {
+        mClosed = true;
+        for (final BlockingQueue<String> client : mClients) {
+            // wake up the waiting thread
+            client.offer(PING);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides resources held in memory. Useful for generated presentations or
+ * when embedding the server in tests.
+ * <p>
+ * All resources must be added before the server is started. The server caches
+ * the content, so later changes might not be seen.
+ *
+ * @author Ralf Schandl
+ */
+public final class MemoryResources implements ResourceProvider {
+
+    private final Map<String, byte[]> mResources = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a resource. The data is not copied.
+     *
+     * @param path the path of the resource, like "/index.html". A missing
+     *             leading "/" is added.
+     * @param data the content of the resource
+     * @return this MemoryResources
+     */
+    public MemoryResources put(final String path, final byte[] data) {
+        mResources.put(path.startsWith("/") ? path : '/' + path, data);
+        return this;
+    }
+
+    @Override
+    public InputStream open(final String path) {
+        final byte[] data = mResources.get(path);
+        return data != null ? new ByteArrayInputStream(data) : null;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Combines several resource providers. A resource is taken from the first
+ * provider that has it. Used to serve changed files from a directory on top
+ * of the presentation in the jar.
+ *
+ * @author Ralf Schandl
+ */
+public final class OverlayResources implements ResourceProvider {
+
+    private final List<ResourceProvider> mProviders;
+
+    /**
+     * Constructs a OverlayResources.
+     *
+     * @param providers the providers, the first one has the highest priority
+     */
+    public OverlayResources(final ResourceProvider... providers) {
+        mProviders = List.of(providers);
+    }
+
+    @Override
+    public InputStream open(final String path) throws IOException {
+        for (final ResourceProvider provider : mProviders) {
+            final InputStream in = provider.open(path);
+            if (in != null) {
+                return in;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getIdentity() {
+        return mProviders.stream().map(ResourceProvider::getIdentity).collect(Collectors.joining(";"));
+    }
+}
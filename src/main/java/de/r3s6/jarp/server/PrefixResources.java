@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Provides the resources of one presentation of a jar containing several
+ * presentations. The resources are read from the sub-directory of the
+ * presentation, but aliases are resolved by the provider of the whole jar, as
+ * a file might be stored in another presentation.
+ *
+ * @author Ralf Schandl
+ */
+public final class PrefixResources implements ResourceProvider, Closeable {
+
+    private final ResourceProvider mRoot;
+
+    private final String mPrefix;
+
+    /**
+     * Constructs a PrefixResources.
+     *
+     * @param root   the provider of the whole jar
+     * @param prefix the path of the presentation, like "/keynote"
+     */
+    public PrefixResources(final ResourceProvider root, final String prefix) {
+        mRoot = root;
+        mPrefix = prefix;
+    }
+
+    @Override
+    public InputStream open(final String path) throws IOException {
+        return mRoot.open(mPrefix + path);
+    }
+
+    /**
+     * Resolves the path via the provider of the whole jar. If the stored file
+     * belongs to another presentation, the path is not resolved, as it can't be
+     * expressed relative to this presentation.
+     */
+    @Override
+    public String resolve(final String path) {
+        final String resolved = mRoot.resolve(mPrefix + path);
+        return resolved.startsWith(mPrefix + '/') ? resolved.substring(mPrefix.length()) : path;
+    }
+
+    @Override
+    public String getIdentity() {
+        return mRoot.getIdentity() + mPrefix;
+    }
+
+    /**
+     * Closes the provider of the whole jar, if it is closeable. It might be
+     * closed several times.
+     */
+    @Override
+    public void close() throws IOException {
+        if (mRoot instanceof Closeable) {
+            ((Closeable) mRoot).close();
+        }
+    }
+}
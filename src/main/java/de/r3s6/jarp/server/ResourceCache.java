@@ -0,0 +1,338 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import de.r3s6.jarp.Utilities;
+
+/**
+ * Memory cache for the content of resources and their gzip compressed variants.
+ * <p>
+ * The cache has a size limit. If it is exceeded, the least recently used
+ * entries are removed.
+ * <p>
+ * When a server serves several decks, they share one cache. Every entry
+ * belongs to a group (the deck) and every group has a quota, so one deck can't
+ * push all other decks out of the cache. If a group exceeds its quota, its
+ * least recently used entries are removed, even if the cache has space left.
+ * <p>
+ * The compressed variant of a entry is only created when it is requested the
+ * first time. The compression level depends on the current system load. On a
+ * idle system the best compression is used, on a busy system the fastest.
+ * With a {@link DiskCache} the compressed variants are also kept on disk and
+ * reused after a restart of the server.
+ *
+ * @author Ralf Schandl
+ */
+final class ResourceCache {
+
+    /** Resources smaller than this are not compressed. */
+    static final int MIN_COMPRESS_SIZE = 1024;
+
+    /** Resources larger than this are not cached. */
+    static final int MAX_ENTRY_SIZE = 4 * 1024 * 1024;
+
+    /** Default size limit of the cache. */
+    static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    /** Default quota per group, if several decks share the cache. */
+    static final long DEFAULT_GROUP_QUOTA = DEFAULT_MAX_SIZE / 4;
+
+    private final long mMaxSize;
+
+    /** The maximum number of bytes per group. */
+    private final long mGroupQuota;
+
+    /** Keeps compressed variants across restarts. {@code null} if not used. */
+    private final DiskCache mDiskCache;
+
+    /** Entries in access order, the least recently used first. */
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>(64, 0.75f, true); // NOCS: MagicNumber
+
+    /** The number of bytes of all entries. */
+    private long mSize;
+
+    /** The number of bytes of the entries per group. */
+    private final Map<String, Long> mGroupSizes = new HashMap<>();
+
+    /**
+     * Constructs a ResourceCache.
+     *
+     * @param maxSize the maximum number of bytes to cache
+     */
+    ResourceCache(final long maxSize) {
+        this(maxSize, maxSize);
+    }
+
+    /**
+     * Constructs a ResourceCache with a quota per group.
+     *
+     * @param maxSize    the maximum number of bytes to cache
+     * @param groupQuota the maximum number of bytes to cache per group
+     */
+    ResourceCache(final long maxSize, final long groupQuota) {
+        this(maxSize, groupQuota, null);
+    }
+
+    /**
+     * Constructs a ResourceCache with a quota per group, that keeps the
+     * compressed variants on disk.
+     *
+     * @param maxSize    the maximum number of bytes to cache
+     * @param groupQuota the maximum number of bytes to cache per group
+     * @param diskCache  the disk cache for compressed variants or {@code null}
+     */
+    ResourceCache(final long maxSize, final long groupQuota, final DiskCache diskCache) {
+        mMaxSize = maxSize;
+        mGroupQuota = groupQuota;
+        mDiskCache = diskCache;
+    }
+
+    /**
+     * Gets the size limit of the cache.
+     *
+     * @return the maximum number of bytes to cache
+     */
+    long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Gets a cache entry.
+     *
+     * @param name the resource name
+     * @return the entry or {@code null} if not cached
+     */
+    synchronized Entry get(final String name) {
+        return mEntries.get(name);
+    }
+
+    /**
+     * Adds a entry to the cache.
+     *
+     * @param name the resource name
+     * @param data the content of the resource
+     * @return the new entry
+     */
+    Entry put(final String name, final byte[] data) {
+        return put("", name, data);
+    }
+
+    /**
+     * Adds a entry of the given group to the cache.
+     *
+     * @param group the group of the entry, like the deck prefix
+     * @param name  the resource name, unique across all groups
+     * @param data  the content of the resource
+     * @return the new entry
+     */
+    Entry put(final String group, final String name, final byte[] data) {
+        return put(group, "", name, data);
+    }
+
+    /**
+     * Adds a entry of the given group to the cache.
+     *
+     * @param group  the group of the entry, like the deck prefix
+     * @param source the identity of the source of the resource, see
+     *               {@link ResourceProvider#getIdentity()}
+     * @param name   the resource name, unique across all groups
+     * @param data   the content of the resource
+     * @return the new entry
+     */
+    synchronized Entry put(final String group, final String source, final String name, final byte[] data) {
+        final Entry entry = new Entry(group, source, name, data, mDiskCache);
+        final Entry old = mEntries.put(name, entry);
+        if (old != null) {
+            removed(old);
+        }
+        entry.mCached = true;
+        account(entry);
+        trim(group);
+        return entry;
+    }
+
+    /**
+     * Gets the gzip compressed content of a entry. When it is created (on the
+     * first call), the cache is trimmed, as the entry grew.
+     *
+     * @param entry a entry of this cache
+     * @return the compressed content or {@code null}, see
+     *         {@link Entry#getGzipData()}
+     */
+    byte[] getGzipData(final Entry entry) {
+        final boolean created;
+        final byte[] gzData;
+        synchronized (entry) {
+            created = !entry.mGzipDone;
+            gzData = entry.getGzipData();
+        }
+        if (created && gzData != null) {
+            synchronized (this) {
+                if (entry.mCached) {
+                    account(entry);
+                    trim(entry.mGroup);
+                }
+            }
+        }
+        return gzData;
+    }
+
+    /**
+     * Removes a entry from the cache.
+     *
+     * @param name the resource name
+     */
+    synchronized void remove(final String name) {
+        final Entry entry = mEntries.remove(name);
+        if (entry != null) {
+            removed(entry);
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    synchronized void clear() {
+        for (final Entry entry : mEntries.values()) {
+            entry.mCached = false;
+        }
+        mEntries.clear();
+        mSize = 0;
+        mGroupSizes.clear();
+    }
+
+    /**
+     * Removes the least recently used entries until the cache size is below
+     * the limit and the given group doesn't exceed its quota. Other groups
+     * can't exceed their quota, as they didn't grow.
+     *
+     * @param group the group that grew
+     */
+    private void trim(final String group) {
+        final Iterator<Entry> iter = mEntries.values().iterator();
+        while (iter.hasNext() && (mSize > mMaxSize || mGroupSizes.getOrDefault(group, 0L) > mGroupQuota)) {
+            final Entry entry = iter.next();
+            if (mSize > mMaxSize || entry.mGroup.equals(group)) {
+                iter.remove();
+                removed(entry);
+            }
+        }
+    }
+
+    /**
+     * Adds the growth of a entry to the cache size.
+     */
+    private void account(final Entry entry) {
+        final long size = entry.size();
+        addSize(entry.mGroup, size - entry.mAccounted);
+        entry.mAccounted = size;
+    }
+
+    /**
+     * Subtracts a entry removed from the cache from the cache size.
+     */
+    private void removed(final Entry entry) {
+        entry.mCached = false;
+        addSize(entry.mGroup, -entry.mAccounted);
+        entry.mAccounted = 0;
+    }
+
+    private void addSize(final String group, final long delta) {
+        mSize += delta;
+        mGroupSizes.merge(group, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    /**
+     * Determines the compression level depending on the system load per CPU.
+     *
+     * @return the compression level
+     */
+    static int compressionLevel() {
+        final double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        if (load < 0) {
+            // not available
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+        final double loadPerCpu = load / Runtime.getRuntime().availableProcessors();
+        if (loadPerCpu < 0.5) { // NOCS: MagicNumber
+            return Deflater.BEST_COMPRESSION;
+        } else if (loadPerCpu < 1.0) {
+            return Deflater.DEFAULT_COMPRESSION;
+        } else {
+            return Deflater.BEST_SPEED;
+        }
+    }
+
+    /**
+     * A cached resource.
+     */
+    static final class Entry {
+        private final String mGroup;
+        private final String mSource;
+        private final String mName;
+        private final byte[] mData;
+        private final DiskCache mDiskCache;
+        private volatile byte[] mGzipData;
+        private boolean mGzipDone;
+
+        /** Whether the entry is in the cache. Guarded by the cache. */
+        private boolean mCached;
+
+        /** The size included in the cache size. Guarded by the cache. */
+        private long mAccounted;
+
+        private Entry(final String group, final String source, final String name, final byte[] data,
+                final DiskCache diskCache) {
+            mGroup = group;
+            mSource = source;
+            mName = name;
+            mData = data;
+            mDiskCache = diskCache;
+        }
+
+        byte[] getData() {
+            return mData;
+        }
+
+        /**
+         * Returns the gzip compressed content. It is created on the first call.
+         *
+         * @return the compressed content or {@code null} if the resource is to small
+         *         or compression doesn't reduce the size
+         */
+        synchronized byte[] getGzipData() {
+            if (!mGzipDone) {
+                mGzipDone = true;
+                if (mData.length >= MIN_COMPRESS_SIZE) {
+                    byte[] gzData = mDiskCache != null ? mDiskCache.load(mSource, mName, mData) : null;
+                    if (gzData == null) {
+                        gzData = Utilities.gzip(mData, compressionLevel());
+                        if (mDiskCache != null) {
+                            // also stored if not smaller, to not try again after a restart
+                            mDiskCache.store(mSource, mName, gzData);
+                        }
+                    }
+                    if (gzData.length < mData.length) {
+                        mGzipData = gzData;
+                    }
+                }
+            }
+            return mGzipData;
+        }
+
+        long size() {
+            return mData.length + (mGzipData != null ? mGzipData.length : 0);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import de.r3s6.jarp.Utilities;
+
+/**
+ * Manifest of the resources of a presentation. Created when building the jar
+ * and loaded by the server on startup, so it doesn't need to guess the content
+ * type, calculate the ETag or probe for a precompressed variant on every
+ * request.
+ * <p>
+ * The manifest is stored as properties file. The key is the path of the
+ * resource (relative to the presentation root, starting with "/"). The value
+ * is a comma separated list of size, content type, content encoding (might be
+ * empty), ETag and space separated flags. The flag "gz" is set, if a
+ * precompressed variant is available. The flag "immutable" is set, if the
+ * resource name contains a hash of its content, so the content of the resource
+ * never changes.
+ *
+ * @author Ralf Schandl
+ */
+public final class ResourceManifest {
+
+    private static final String SEPARATOR = ",";
+
+    private static final String FLAG_SEPARATOR = " ";
+
+    private static final String GZIP_FLAG = "gz";
+
+    private static final String IMMUTABLE_FLAG = "immutable";
+
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    /**
+     * Adds a resource. Content type and encoding are determined via
+     * {@link ContentTypes}.
+     *
+     * @param path        the path of the resource
+     * @param size        the size of the resource
+     * @param etag        the ETag of the resource, typically a content hash
+     * @param gzipVariant whether a precompressed variant is available
+     * @param immutable   whether the content of the resource never changes
+     */
+    public void add(final String path, final long size, final String etag, final boolean gzipVariant,
+            final boolean immutable) {
+        final String[] typeInfo = ContentTypes.instance().guess(path);
+        mEntries.put(path, new Entry(size, typeInfo[0], typeInfo[1], etag, gzipVariant, immutable));
+    }
+
+    /**
+     * Gets the manifest entry for the given path.
+     *
+     * @param path the path of the resource
+     * @return the entry or {@code null} if the resource doesn't exist
+     */
+    public Entry get(final String path) {
+        return mEntries.get(path);
+    }
+
+    /**
+     * Gets the paths of all resources in the manifest.
+     *
+     * @return the paths, unordered
+     */
+    public Set<String> paths() {
+        return Collections.unmodifiableSet(mEntries.keySet());
+    }
+
+    /**
+     * Writes the manifest to the given stream.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void store(final OutputStream out) throws IOException {
+        final Properties props = new Properties();
+        for (final Map.Entry<String, Entry> me : mEntries.entrySet()) {
+            final Entry entry = me.getValue();
+            final List<String> flags = new ArrayList<>();
+            if (entry.mGzipVariant) {
+                flags.add(GZIP_FLAG);
+            }
+            if (entry.mImmutable) {
+                flags.add(IMMUTABLE_FLAG);
+            }
+            props.setProperty(me.getKey(), String.join(SEPARATOR, Long.toString(entry.mSize), entry.mContentType,
+                    entry.mContentEncoding != null ? entry.mContentEncoding : "", entry.mEtag,
+                    String.join(FLAG_SEPARATOR, flags)));
+        }
+        Utilities.storeProperties(props, out);
+    }
+
+    /**
+     * Loads a manifest.
+     *
+     * @param in the stream to read from
+     * @return the manifest
+     * @throws IOException if reading fails or the manifest is invalid
+     */
+    public static ResourceManifest load(final InputStream in) throws IOException {
+        final Properties props = new Properties();
+        props.load(in);
+
+        final ResourceManifest manifest = new ResourceManifest();
+        for (final String path : props.stringPropertyNames()) {
+            final String[] fields = props.getProperty(path).split(SEPARATOR, -1);
+            if (fields.length != 5) { // NOCS: MagicNumber
+                throw new IOException("Invalid resource manifest entry: " + path);
+            }
+            try {
+                // CSOFF: MagicNumber
+                final List<String> flags = Arrays.asList(fields[4].split(FLAG_SEPARATOR));
+                manifest.mEntries.put(path, new Entry(Long.parseLong(fields[0]), fields[1],
+                        fields[2].isEmpty() ? null : fields[2], fields[3], flags.contains(GZIP_FLAG),
+                        flags.contains(IMMUTABLE_FLAG)));
+                // CSON: MagicNumber
+            } catch (final NumberFormatException e) {
+                throw new IOException("Invalid resource manifest entry: " + path, e);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Information about a resource.
+     */
+    public static final class Entry {
+        private final long mSize;
+        private final String mContentType;
+        private final String mContentEncoding;
+        private final String mEtag;
+        private final boolean mGzipVariant;
+        private final boolean mImmutable;
+        private final boolean mCompressible;
+
+        // CSOFF: ParameterNumber
+        private Entry(final long size, final String contentType, final String contentEncoding, final String etag,
+                final boolean gzipVariant, final boolean immutable) {
+            mSize = size;
+            mContentType = contentType;
+            mContentEncoding = contentEncoding;
+            mEtag = etag;
+            mGzipVariant = gzipVariant;
+            mImmutable = immutable;
+            mCompressible = ContentTypes.instance().isCompressible(contentType, contentEncoding);
+        }
+        // CSON: ParameterNumber
+
+        public long getSize() {
+            return mSize;
+        }
+
+        public String getContentType() {
+            return mContentType;
+        }
+
+        /**
+         * The content encoding, e.g. "gzip" for "file.txt.gz".
+         *
+         * @return the content encoding or {@code null}
+         */
+        public String getContentEncoding() {
+            return mContentEncoding;
+        }
+
+        public String getEtag() {
+            return mEtag;
+        }
+
+        /**
+         * Whether a precompressed variant ("file.js.gz") is available.
+         *
+         * @return whether a precompressed variant is available
+         */
+        public boolean hasGzipVariant() {
+            return mGzipVariant;
+        }
+
+        /**
+         * Whether the content of the resource never changes, as its name contains a
+         * hash of the content.
+         *
+         * @return whether the resource is immutable
+         */
+        public boolean isImmutable() {
+            return mImmutable;
+        }
+
+        /**
+         * Whether the resource is worth to be compressed. See
+         * {@link ContentTypes#isCompressible(String)}.
+         *
+         * @return whether the resource is compressible
+         */
+        public boolean isCompressible() {
+            return mCompressible;
+        }
+    }
+}
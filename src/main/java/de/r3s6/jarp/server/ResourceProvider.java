@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Source of the resources of a presentation.
+ * <p>
+ * Resources are addressed by their path relative to the presentation root,
+ * always starting with "/" (like "/index.html").
+ * <p>
+ * Implementations must be usable by multiple threads. If an implementation
+ * also implements {@link java.io.Closeable}, it is closed when the server is
+ * closed.
+ * <p>
+ * Available implementations:
+ * <ul>
+ * <li>{@link ClassLoaderResources}: a presentation on the class path, like the
+ * presentation in the running jar</li>
+ * <li>{@link JarResources}: a presentation jar that is not on the class
+ * path</li>
+ * <li>{@link DirectoryResources}: a presentation directory</li>
+ * <li>{@link MemoryResources}: resources held in memory</li>
+ * <li>{@link OverlayResources} and {@link PrefixResources} to combine
+ * them</li>
+ * </ul>
+ * Applications embedding the server might provide their own implementation.
+ *
+ * @author Ralf Schandl
+ */
+public interface ResourceProvider {
+
+    /**
+     * Opens the resource with the given path.
+     *
+     * @param path the path of the resource, starting with "/"
+     * @return stream to read the resource or {@code null} if it doesn't exist
+     * @throws IOException if opening the resource fails
+     */
+    InputStream open(String path) throws IOException;
+
+    /**
+     * Resolves the given path to the path the content is stored under. If
+     * several paths have the same content (like deduplicated files in a jar),
+     * they should resolve to the same path, so the server caches the content
+     * only once and finds its precompressed variant (resolved path with suffix
+     * ".gz"). Opening the resolved path must give the same content as opening
+     * the given path.
+     *
+     * @param path the path of the resource, starting with "/"
+     * @return the resolved path, the given path by default
+     */
+    default String resolve(final String path) {
+        return path;
+    }
+
+    /**
+     * Gets a text identifying where the resources come from, like the path of
+     * a jar. It keeps the compressed variants of different presentations apart
+     * in a disk cache directory shared by several servers.
+     *
+     * @return the identity, "" by default
+     */
+    default String getIdentity() {
+        return "";
+    }
+}
@@ -14,13 +14,18 @@ import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.swing.Icon;
 import javax.swing.JButton;
@@ -44,6 +49,7 @@ import de.r3s6.jarp.args.ArgsParser;
 import de.r3s6.jarp.args.ArgsParser.CmdLineArgException;
 import de.r3s6.jarp.args.ArgsParser.Counter;
 import de.r3s6.jarp.args.ArgsParser.Flag;
+import de.r3s6.jarp.args.ArgsParser.ValueOption;
 
 /**
  * Command that starts a HTTP server and serves the presentation. directory in
@@ -58,6 +64,27 @@ public final class ServerCommand {
     private int mVerbosity;
     private boolean mUseTerminal;
 
+    /** Directory to serve the presentation from ('-d' or '-o'). */
+    private Path mDirectory;
+
+    /** Whether files not in {@link #mDirectory} are served from the jar ('-o'). */
+    private boolean mOverlay;
+
+    /** Whether to reload the browser when a file changed ('-l'). */
+    private boolean mLiveReload;
+
+    /** Whether to load resources after startup ('-w' or '-W'). */
+    private boolean mWarmUp;
+
+    /** Whether to load all resources after startup ('-W'). */
+    private boolean mWarmUpAll;
+
+    /** Directory to keep compressed variants across restarts ('-c'). */
+    private Path mCacheDir;
+
+    /** Presentation jars to serve instead of the own presentation. */
+    private final List<Path> mJars = new ArrayList<>();
+
     private ServerCommand() {
         // If no GUI available, use terminal
         mUseTerminal = GraphicsEnvironment.isHeadless();
@@ -78,11 +105,27 @@ public final class ServerCommand {
     public static void showHelp() {
 
         System.out.println("server - starts a web server to serve the presentation");
-        System.out.println("      USAGE: java -jar jar-presenter.jar server [-b] [-v] [-t] [port]");
+        System.out.println("      USAGE: java -jar jar-presenter.jar server [-b] [-v] [-t] [-w|-W] [-c <dir>] [-d <dir>|-o <dir> [-l]] [port]");
+        System.out.println("             java -jar jar-presenter.jar server [-b] [-v] [-t] [-w|-W] [-c <dir>] [port] jar-or-dir...");
         System.out.println("        -b       immediately start the (default) browser");
         System.out.println("        -v       increase logging output");
         System.out.println("        -t       Terminal mode. Don't start GUI.");
+        System.out.println("        -w       warm up: load the start page and the files it references after");
+        System.out.println("                 startup, so the first viewer doesn't have to wait");
+        System.out.println("        -W       warm up: load all files of the presentation after startup");
+        System.out.println("        -c <dir>");
+        System.out.println("                 keep the files compressed by the server in the given directory,");
+        System.out.println("                 so they don't have to be compressed again after a restart");
+        System.out.println("        -d <dir>");
+        System.out.println("                 serve the presentation from the given directory (development");
+        System.out.println("                 mode). Changed files are served without restarting the server.");
+        System.out.println("        -o <dir>");
+        System.out.println("                 like '-d', but files not in the directory are served from the jar");
+        System.out.println("        -l       with '-d' or '-o': reload the browser when a file changed");
         System.out.println("        port     use given port (default is random)");
+        System.out.println("        jar-or-dir");
+        System.out.println("                 serve the given presentation jars or all jars in the given");
+        System.out.println("                 directories instead of the own presentation");
 
     }
 
@@ -95,9 +138,9 @@ public final class ServerCommand {
         handleArgs(argList);
         Logger.instance().verbosity(mVerbosity);
 
-        final String presentationTitle = getPresentationTitle();
-
-        try (HttpServerchen srv = new HttpServerchen(mServerPort)) {
+        try (HttpServerchen srv = createServer()) {
+            final int deckCount = srv.getDeckCount();
+            final String presentationTitle = deckCount == 0 ? srv.getTitle() : deckCount + " presentations";
             final int port = srv.getPort();
             final Runnable r = () -> {
                 try {
@@ -115,7 +158,9 @@ public final class ServerCommand {
             if (mUseTerminal) {
                 String message = "Serving on " + uri
                         + "\n\nPoint your browser to that address to see the presentation";
-                if (presentationTitle != null) {
+                if (deckCount > 0) {
+                    message = presentationTitle + "\n\n" + message;
+                } else if (presentationTitle != null) {
                     message = "Presentation: " + presentationTitle + "\n\n" + message;
                 }
                 System.out.println();
@@ -125,6 +170,10 @@ public final class ServerCommand {
                 EventQueue.invokeLater(() -> showGuiDialog(uri, presentationTitle));
             }
 
+            if (mWarmUp) {
+                warmUp(srv);
+            }
+
             if (mStartBrowser) {
                 openBrowser(uri);
             }
@@ -140,16 +189,84 @@ public final class ServerCommand {
         System.exit(0);
     }
 
-    private String getPresentationTitle() {
-        try {
-            final Map<String, String> metadata = Utilities.readPropertyMapResource(JarPresenter.METADATA_PATH);
-            if (metadata.containsKey(JarPresenter.PROP_TITLE)) {
-                return metadata.get(JarPresenter.PROP_TITLE);
+    private HttpServerchen createServer() throws IOException {
+        final HttpServerchen.Builder builder = HttpServerchen.builder().port(mServerPort).diskCache(mCacheDir);
+        if (!mJars.isEmpty()) {
+            final Map<String, ResourceProvider> decks = new LinkedHashMap<>();
+            try {
+                for (final Path jar : mJars) {
+                    final String name = Utilities
+                            .toUrlName(jar.getFileName().toString().replaceFirst("(?i)\\.jar$", ""));
+                    final JarResources resources = new JarResources(jar);
+                    try {
+                        addDecks(decks, name, resources);
+                    } catch (final IOException e) {
+                        // not (or not completely) in the decks
+                        resources.close();
+                        throw e;
+                    }
+                }
+                decks.forEach(builder::deck);
+                return builder.build();
+            } catch (final IOException | RuntimeException e) { // NOCS: IllegalCatch
+                for (final ResourceProvider provider : decks.values()) {
+                    try {
+                        ((Closeable) provider).close();
+                    } catch (final IOException e1) {
+                        e.addSuppressed(e1);
+                    }
+                }
+                throw e;
             }
-        } catch (final IOException e) {
-            System.err.println("Error loading metadata ignored: " + e.getMessage());
         }
-        return null;
+        if (mDirectory == null) {
+            final ResourceProvider root = new ClassLoaderResources(ServerCommand.class.getClassLoader(),
+                    JarPresenter.PRESENTATION_DIR);
+            if (Deck.names(root).isEmpty()) {
+                return builder.resources(root).build();
+            }
+            final Map<String, ResourceProvider> decks = new LinkedHashMap<>();
+            addDecks(decks, null, root);
+            decks.forEach(builder::deck);
+            return builder.build();
+        }
+
+        ResourceProvider resources = new DirectoryResources(mDirectory);
+        if (mOverlay) {
+            resources = new OverlayResources(resources,
+                    new ClassLoaderResources(ServerCommand.class.getClassLoader(), JarPresenter.PRESENTATION_DIR));
+        }
+        final HttpServerchen srv = builder.resources(resources).devMode(true).build();
+        srv.watch(mDirectory, mLiveReload);
+        return srv;
+    }
+
+    /**
+     * Adds the presentations of a jar to the given decks. A jar containing
+     * several presentations adds all of them, named "&lt;name&gt;-&lt;deck&gt;"
+     * or just "&lt;deck&gt;", if name is {@code null}.
+     *
+     * @param decks the decks to add to
+     * @param name  the name of the jar or {@code null}
+     * @param root  the resources of the jar
+     * @throws IOException if reading the metadata fails or a name is not unique
+     */
+    private static void addDecks(final Map<String, ResourceProvider> decks, final String name,
+            final ResourceProvider root) throws IOException {
+        final List<String> deckNames = Deck.names(root);
+        if (deckNames.isEmpty()) {
+            addDeck(decks, name, root);
+        }
+        for (final String deck : deckNames) {
+            addDeck(decks, name != null ? name + '-' + deck : deck, new PrefixResources(root, '/' + deck));
+        }
+    }
+
+    private static void addDeck(final Map<String, ResourceProvider> decks, final String name,
+            final ResourceProvider resources) throws IOException {
+        if (decks.putIfAbsent(name, resources) != null) {
+            throw new IOException("Duplicate presentation name: " + name);
+        }
     }
 
     /**
@@ -166,6 +283,12 @@ public final class ServerCommand {
             final Flag browserOpt = ah.addFlag('b');
             final Counter verboseOpt = ah.addCounter('v');
             final Flag terminalOpt = ah.addFlag('t');
+            final ValueOption dirOpt = ah.addValueOption('d');
+            final ValueOption overlayOpt = ah.addValueOption('o');
+            final Flag liveReloadOpt = ah.addFlag('l');
+            final Flag warmUpOpt = ah.addFlag('w');
+            final Flag warmUpAllOpt = ah.addFlag('W');
+            final ValueOption cacheDirOpt = ah.addValueOption('c');
             final List<String> optionalArgs = new ArrayList<>();
             ah.optionalArgumentList(optionalArgs);
 
@@ -174,12 +297,38 @@ public final class ServerCommand {
             mStartBrowser = browserOpt.getValue();
             mVerbosity = verboseOpt.getValue();
             wantTerminal = terminalOpt.getValue();
+            mLiveReload = liveReloadOpt.getValue();
+            mWarmUpAll = warmUpAllOpt.getValue();
+            mWarmUp = warmUpOpt.getValue() || mWarmUpAll;
+            if (cacheDirOpt.getValue() != null) {
+                mCacheDir = Path.of(cacheDirOpt.getValue());
+            }
 
-            if (optionalArgs.size() == 1) {
-                setPort(optionalArgs.get(0));
-            } else if (optionalArgs.size() > 1) {
-                System.err.println("Superfluous arguments beginning with: " + optionalArgs.get(1));
-                showHelp();
+            if (dirOpt.getValue() != null && overlayOpt.getValue() != null) {
+                System.err.println("ERROR: Options '-d' and '-o' are mutually exclusive.");
+                System.exit(1);
+            }
+            mOverlay = overlayOpt.getValue() != null;
+            final String dir = mOverlay ? overlayOpt.getValue() : dirOpt.getValue();
+            if (dir != null) {
+                mDirectory = Path.of(dir);
+                if (!Files.isDirectory(mDirectory)) {
+                    System.err.println("ERROR: Not a directory: " + dir);
+                    System.exit(1);
+                }
+            } else if (mLiveReload) {
+                System.err.println("ERROR: Option '-l' is only supported with '-d' or '-o'.");
+                System.exit(1);
+            }
+
+            if (!optionalArgs.isEmpty() && optionalArgs.get(0).matches("\\d+")) {
+                setPort(optionalArgs.remove(0));
+            }
+            for (final String arg : optionalArgs) {
+                addJars(Path.of(arg));
+            }
+            if (!mJars.isEmpty() && mDirectory != null) {
+                System.err.println("ERROR: Options '-d' and '-o' can't be used with presentation jars.");
                 System.exit(1);
             }
 
@@ -195,6 +344,53 @@ public final class ServerCommand {
         }
     }
 
+    /**
+     * Adds the given jar or all jars in the given directory to the jars to
+     * serve.
+     *
+     * @param path a jar or directory
+     */
+    private void addJars(final Path path) {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                final List<Path> jars = files
+                        .filter(p -> p.getFileName().toString().matches("(?i).*\\.jar") && Files.isRegularFile(p))
+                        .sorted().collect(Collectors.toList());
+                if (jars.isEmpty()) {
+                    System.err.println("ERROR: No jar files in directory: " + path);
+                    System.exit(1);
+                }
+                mJars.addAll(jars);
+            } catch (final IOException e) {
+                System.err.println("ERROR: Can't list directory " + path + ": " + e);
+                System.exit(1);
+            }
+        } else if (Files.isRegularFile(path)) {
+            mJars.add(path);
+        } else {
+            System.err.println("ERROR: Not a file or directory: " + path);
+            System.exit(1);
+        }
+    }
+
+    private void warmUp(final HttpServerchen srv) {
+        final long start = System.currentTimeMillis();
+        srv.warmUp(mWarmUpAll).whenComplete((count, e) -> {
+            final String message;
+            if (e != null) {
+                message = "WARNING: Warm-up failed: " + e.getMessage();
+            } else {
+                message = "Warm-up done: " + count + " files loaded in " + (System.currentTimeMillis() - start)
+                        + " ms";
+            }
+            if (mUseTerminal) {
+                System.out.println(message);
+            } else {
+                Logger.instance().info(message);
+            }
+        });
+    }
+
     private void setPort(final String portArgument) {
         final int port = Integer.parseInt(portArgument);
         if (port < 0 && port > 65535) { // NOCS: MagicNumber
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Requests resources from a running server, so the first real requests don't
+ * pay for class loading, JIT compilation, reading from the jar and
+ * compression. The requests take the same path as requests from a browser,
+ * so compressible resources end up in the {@link ResourceCache} with their
+ * compressed variant.
+ * <p>
+ * Optionally the references in HTML and CSS resources are followed, to load
+ * the resources a browser needs to show the start page. References are only
+ * found in {@code src} and {@code href} attributes and in CSS {@code url()}.
+ * Resources loaded by JavaScript are missed.
+ *
+ * @author Ralf Schandl
+ */
+final class WarmUp {
+
+    private static final Logger LOGGER = Logger.instance();
+
+    /** References in HTML attributes and CSS. */
+    private static final Pattern REF = Pattern
+            .compile("(?:\\b(?:src|href)\\s*=\\s*[\"']|url\\(\\s*[\"']?)([^\"')#?\\s]+)");
+
+    /** Stop following references after that many resources. */
+    private static final int MAX_RESOURCES = 1000;
+
+    private final URI mBase;
+
+    private final Set<String> mRequested = new HashSet<>();
+
+    private int mLoaded;
+
+    /**
+     * Constructs a WarmUp.
+     *
+     * @param port the port of the server
+     */
+    WarmUp(final int port) {
+        mBase = URI.create("http://localhost:" + port + "/");
+    }
+
+    /**
+     * Requests the given resources. A failing request is skipped.
+     *
+     * @param paths      the request paths, not URL encoded
+     * @param followRefs whether to also request the resources referenced by
+     *                   HTML and CSS resources
+     * @return the number of successfully loaded resources
+     */
+    int run(final Collection<String> paths, final boolean followRefs) {
+        final Deque<String> queue = new ArrayDeque<>(paths);
+        while (!queue.isEmpty() && mRequested.size() < MAX_RESOURCES) {
+            final String path = queue.poll();
+            if (!mRequested.add(path)) {
+                continue;
+            }
+            final String text;
+            try {
+                text = request(path, followRefs);
+            } catch (final IOException | URISyntaxException e) {
+                LOGGER.debug("Warm-up request for " + path + " failed: " + e);
+                continue;
+            }
+            if (text != null) {
+                final Matcher matcher = REF.matcher(text);
+                while (matcher.find()) {
+                    final String ref = resolve(path, matcher.group(1));
+                    if (ref != null) {
+                        queue.add(ref);
+                    }
+                }
+            }
+        }
+        return mLoaded;
+    }
+
+    /**
+     * Requests a resource like a browser would do (accepting gzip).
+     *
+     * @return the content, if it is HTML or CSS and {@code wantText} is set,
+     *         else {@code null}
+     */
+    private String request(final String path, final boolean wantText) throws IOException, URISyntaxException {
+        // encodes characters like spaces
+        final URI uri = mBase.resolve(new URI(null, null, path, null));
+        final HttpURLConnection con = (HttpURLConnection) uri.toURL().openConnection();
+        con.setRequestProperty("Accept-Encoding", "gzip");
+        if (con.getResponseCode() != HttpStatus.OK.getIntValue()) {
+            // read the error page, so the connection can be reused
+            try (InputStream in = con.getErrorStream()) {
+                if (in != null) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            return null;
+        }
+        mLoaded++;
+        final String type = con.getContentType();
+        final boolean text = wantText && type != null
+                && (type.startsWith("text/html") || type.startsWith("text/css"));
+        try (InputStream raw = con.getInputStream();
+                InputStream in = "gzip".equals(con.getContentEncoding()) ? new GZIPInputStream(raw) : raw) {
+            if (text) {
+                return StandardCharsets.UTF_8.decode(ByteBuffer.wrap(in.readAllBytes())).toString();
+            }
+            in.transferTo(OutputStream.nullOutputStream());
+            return null;
+        }
+    }
+
+    /**
+     * Resolves a reference relative to the referencing resource.
+     *
+     * @return the decoded request path or {@code null} if the reference doesn't
+     *         point to this server
+     */
+    private String resolve(final String path, final String ref) {
+        try {
+            final URI uri = new URI(path).resolve(new URI(ref));
+            if (uri.isAbsolute() || uri.getRawAuthority() != null || uri.getRawPath() == null
+                    || !uri.getRawPath().startsWith("/")) {
+                return null;
+            }
+            return uri.normalize().getPath();
+        } catch (final URISyntaxException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.zip;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Conversion between Java time and the MS-DOS date/time format used in zip
+ * files. The MS-DOS format uses local time with a resolution of two seconds.
+ *
+ * @author Ralf Schandl
+ */
+final class DosTime {
+
+    // CSOFF: MagicNumber
+    /** 1980-01-01 00:00, the smallest possible DOS time. */
+    private static final int DOS_EPOCH = (1 << 21) | (1 << 16);
+
+    private DosTime() {
+    }
+
+    static int fromJavaTime(final long time) {
+        final LocalDateTime ldt = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (ldt.getYear() < 1980) {
+            return DOS_EPOCH;
+        }
+        return (ldt.getYear() - 1980) << 25
+                | ldt.getMonthValue() << 21
+                | ldt.getDayOfMonth() << 16
+                | ldt.getHour() << 11
+                | ldt.getMinute() << 5
+                | ldt.getSecond() >> 1;
+    }
+
+    static long toJavaTime(final int dosTime) {
+        final LocalDateTime ldt = LocalDateTime.of(((dosTime >> 25) & 0x7f) + 1980,
+                Math.max(1, (dosTime >> 21) & 0x0f),
+                Math.max(1, (dosTime >> 16) & 0x1f),
+                (dosTime >> 11) & 0x1f,
+                (dosTime >> 5) & 0x3f,
+                (dosTime << 1) & 0x3e);
+        return ldt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    // CSON: MagicNumber
+}
@@ -0,0 +1,579 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Read access to a zip file based on its central directory.
+ * <p>
+ * In contrast to {@link java.util.zip.ZipFile} this class gives access to the
+ * raw (compressed) data of an entry, so it can be copied to another zip file
+ * without inflating and deflating it again.
+ * <p>
+ * All read methods use positional reads, so an instance can be used by
+ * multiple threads.
+ *
+ * @author Ralf Schandl
+ */
+public final class ZipIndex implements Closeable {
+
+    // CSOFF: MagicNumber
+    static final int LOC_SIG = 0x04034b50;
+    static final int CEN_SIG = 0x02014b50;
+    static final int END_SIG = 0x06054b50;
+    static final int ZIP64_END_SIG = 0x06064b50;
+    static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    static final int ZIP64_EXTRA_ID = 0x0001;
+
+    static final int LOC_HEADER_SIZE = 30;
+    static final int CEN_HEADER_SIZE = 46;
+    static final int END_HEADER_SIZE = 22;
+    static final int ZIP64_LOCATOR_SIZE = 20;
+
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    // CSON: MagicNumber
+
+    /** Size of the direct buffers used to inflate entries. */
+    private static final int BUFFER_SIZE = 256 * 1024; // NOCS: MagicNumber
+
+    private static final String INVALID_DATA = "Invalid deflated data in ";
+
+    private static final String INVALID_CEN = "Invalid central directory: ";
+
+    /**
+     * Direct buffers per thread to inflate entries: compressed input and
+     * inflated output. Direct buffers avoid copying between the Java heap and
+     * the native memory of the channels and the Inflater.
+     */
+    private static final ThreadLocal<ByteBuffer[]> INFLATE_BUFFERS = ThreadLocal
+            .withInitial(() -> new ByteBuffer[] { ByteBuffer.allocateDirect(BUFFER_SIZE),
+                    ByteBuffer.allocateDirect(BUFFER_SIZE) });
+
+    private final Path mPath;
+    private final FileChannel mChannel;
+    private final List<Entry> mEntries;
+    private final Map<String, Entry> mEntryMap = new HashMap<>();
+
+    private ZipIndex(final Path path, final FileChannel channel) throws IOException {
+        mPath = path;
+        mChannel = channel;
+        mEntries = Collections.unmodifiableList(readCentralDirectory());
+        for (final Entry entry : mEntries) {
+            mEntryMap.putIfAbsent(entry.getName(), entry);
+        }
+    }
+
+    /**
+     * Opens the given zip file and reads its central directory.
+     *
+     * @param path the zip file
+     * @return the ZipIndex
+     * @throws IOException if the file can't be read or isn't a zip file
+     */
+    public static ZipIndex open(final Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ZipIndex(path, channel);
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return mPath;
+    }
+
+    /**
+     * Returns all entries in the order of the central directory.
+     *
+     * @return unmodifiable list of entries
+     */
+    public List<Entry> entries() {
+        return mEntries;
+    }
+
+    /**
+     * Returns the entry with the given name.
+     *
+     * @param name the entry name
+     * @return the entry or {@code null} if not found
+     */
+    public Entry getEntry(final String name) {
+        return mEntryMap.get(name);
+    }
+
+    /**
+     * Returns the offset of the (compressed) data of the given entry in the zip
+     * file.
+     *
+     * @param entry the entry
+     * @return the offset of the data
+     * @throws IOException if reading the local header fails
+     */
+    public long dataOffset(final Entry entry) throws IOException {
+        if (entry.mDataOffset < 0) {
+            final ByteBuffer loc = read(entry.mLocalHeaderOffset, LOC_HEADER_SIZE);
+            if (loc.getInt(0) != LOC_SIG) {
+                throw new ZipException("Invalid local header for entry " + entry.getName());
+            }
+            // CSOFF: MagicNumber
+            entry.mDataOffset = entry.mLocalHeaderOffset + LOC_HEADER_SIZE + u16(loc, 26) + u16(loc, 28);
+            // CSON: MagicNumber
+        }
+        return entry.mDataOffset;
+    }
+
+    /**
+     * Transfers the raw (possibly compressed) data of the given entry to the
+     * given channel.
+     *
+     * @param entry  the entry
+     * @param target the channel to write to
+     * @throws IOException if reading or writing fails
+     */
+    public void transferRawTo(final Entry entry, final WritableByteChannel target) throws IOException {
+        long pos = dataOffset(entry);
+        long remaining = entry.getCompressedSize();
+        while (remaining > 0) {
+            final long cnt = mChannel.transferTo(pos, remaining, target);
+            if (cnt <= 0) {
+                throw new EOFException("Unexpected end of zip file reading " + entry.getName());
+            }
+            pos += cnt;
+            remaining -= cnt;
+        }
+    }
+
+    /**
+     * Transfers the uncompressed data of the given entry to the given channel.
+     * <p>
+     * The data of a stored entry is transferred with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so the
+     * operating system can copy it without passing it through the JVM. A
+     * deflated entry is inflated using direct buffers.
+     *
+     * @param entry  the entry
+     * @param target the channel to write to
+     * @throws IOException if reading or writing fails, the data is corrupt or
+     *                     the compression method is not supported
+     */
+    public void transferTo(final Entry entry, final WritableByteChannel target) throws IOException {
+        switch (entry.getMethod()) {
+        case ZipEntry.STORED:
+            transferRawTo(entry, target);
+            break;
+        case ZipEntry.DEFLATED:
+            inflateTo(entry, target);
+            break;
+        default:
+            throw new ZipException("Unsupported compression method " + entry.getMethod() + ": " + entry.getName());
+        }
+    }
+
+    private void inflateTo(final Entry entry, final WritableByteChannel target) throws IOException {
+        final ByteBuffer in = INFLATE_BUFFERS.get()[0];
+        final ByteBuffer out = INFLATE_BUFFERS.get()[1];
+
+        final Inflater inflater = new Inflater(true);
+        try {
+            long pos = dataOffset(entry);
+            final long end = pos + entry.getCompressedSize();
+            boolean eof = false;
+            long written = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (eof) {
+                        throw new EOFException("Unexpected end of deflated data in " + entry.getName());
+                    }
+                    in.clear();
+                    if (pos < end) {
+                        in.limit((int) Math.min(in.capacity(), end - pos));
+                        final int cnt = mChannel.read(in, pos);
+                        if (cnt < 0) {
+                            throw new EOFException("Unexpected end of zip file reading " + entry.getName());
+                        }
+                        pos += cnt;
+                    } else {
+                        // The inflater in "nowrap" mode might need a extra dummy byte.
+                        in.put((byte) 0);
+                        eof = true;
+                    }
+                    in.flip();
+                    inflater.setInput(in);
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException(INVALID_DATA + entry.getName());
+                }
+                out.clear();
+                written += inflater.inflate(out);
+                out.flip();
+                while (out.hasRemaining()) {
+                    target.write(out);
+                }
+            }
+            if (written != entry.getSize()) {
+                throw new ZipException("Invalid size of entry " + entry.getName() + " (" + written + ")");
+            }
+        } catch (final DataFormatException e) {
+            throw new ZipException(INVALID_DATA + entry.getName() + " (" + e.getMessage() + ")");
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns a stream to read the raw (possibly compressed) data of the entry.
+     *
+     * @param entry the entry
+     * @return the stream
+     * @throws IOException if reading the local header fails
+     */
+    public InputStream getRawInputStream(final Entry entry) throws IOException {
+        return new RegionInputStream(mChannel, dataOffset(entry), entry.getCompressedSize());
+    }
+
+    /**
+     * Returns a stream to read the uncompressed data of the entry.
+     *
+     * @param entry the entry
+     * @return the stream
+     * @throws IOException if reading the local header fails or the compression
+     *                     method is not supported
+     */
+    public InputStream getInputStream(final Entry entry) throws IOException {
+        final InputStream raw = getRawInputStream(entry);
+        switch (entry.getMethod()) {
+        case ZipEntry.STORED:
+            return raw;
+        case ZipEntry.DEFLATED:
+            return new EntryInflaterInputStream(raw);
+        default:
+            raw.close();
+            throw new ZipException("Unsupported compression method " + entry.getMethod() + ": " + entry.getName());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mChannel.close();
+    }
+
+    // CSOFF: MagicNumber
+    private List<Entry> readCentralDirectory() throws IOException {
+        final long fileSize = mChannel.size();
+        final int tailSize = (int) Math.min(fileSize, END_HEADER_SIZE + 0xFFFF);
+        final ByteBuffer tail = read(fileSize - tailSize, tailSize);
+
+        int endPos = -1;
+        for (int i = tailSize - END_HEADER_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIG) {
+                endPos = i;
+                break;
+            }
+        }
+        if (endPos < 0) {
+            throw new ZipException("Not a zip file: " + mPath);
+        }
+
+        long entryCount = u16(tail, endPos + 10);
+        long cenSize = u32(tail, endPos + 12);
+        long cenOffset = u32(tail, endPos + 16);
+
+        final int locatorPos = endPos - ZIP64_LOCATOR_SIZE;
+        if (locatorPos >= 0 && tail.getInt(locatorPos) == ZIP64_LOCATOR_SIG) {
+            final long end64Pos = tail.getLong(locatorPos + 8);
+            if (end64Pos < 0 || end64Pos + 56 > fileSize) {
+                throw new ZipException("Invalid ZIP64 end record: " + mPath);
+            }
+            final ByteBuffer end64 = read(end64Pos, 56);
+            if (end64.getInt(0) != ZIP64_END_SIG) {
+                throw new ZipException("Invalid ZIP64 end record: " + mPath);
+            }
+            entryCount = end64.getLong(32);
+            cenSize = end64.getLong(40);
+            cenOffset = end64.getLong(48);
+        }
+
+        if (cenSize < 0 || cenSize > Integer.MAX_VALUE || cenOffset < 0 || cenOffset + cenSize > fileSize) {
+            throw new ZipException(INVALID_CEN + mPath);
+        }
+
+        final ByteBuffer cen = read(cenOffset, (int) cenSize);
+        final List<Entry> entries = new ArrayList<>((int) Math.min(entryCount, 0xFFFF));
+        int pos = 0;
+        for (long i = 0; i < entryCount; i++) {
+            if (pos + CEN_HEADER_SIZE > cen.limit()) {
+                throw new ZipException(INVALID_CEN + mPath);
+            }
+            if (cen.getInt(pos) != CEN_SIG) {
+                throw new ZipException("Invalid central directory header: " + mPath);
+            }
+            final int nameLen = u16(cen, pos + 28);
+            final int extraLen = u16(cen, pos + 30);
+            final int commentLen = u16(cen, pos + 32);
+            if (pos + CEN_HEADER_SIZE + nameLen + extraLen + commentLen > cen.limit()) {
+                throw new ZipException(INVALID_CEN + mPath);
+            }
+
+            final byte[] nameBytes = new byte[nameLen];
+            cen.position(pos + CEN_HEADER_SIZE);
+            cen.get(nameBytes);
+
+            final Entry entry = new Entry(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(nameBytes)).toString());
+            entry.mMethod = u16(cen, pos + 10);
+            entry.mDosTime = cen.getInt(pos + 12);
+            entry.mCrc = u32(cen, pos + 16);
+            entry.mCompressedSize = u32(cen, pos + 20);
+            entry.mSize = u32(cen, pos + 24);
+            entry.mLocalHeaderOffset = u32(cen, pos + 42);
+
+            if (!readZip64Extra(cen, pos + CEN_HEADER_SIZE + nameLen, extraLen, entry)) {
+                throw new ZipException("Invalid ZIP64 extra field of entry " + entry.getName() + ": " + mPath);
+            }
+
+            entries.add(entry);
+            pos += CEN_HEADER_SIZE + nameLen + extraLen + commentLen;
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the ZIP64 values of a entry from its extra field.
+     *
+     * @return {@code false} if the ZIP64 extra field is too short
+     */
+    private static boolean readZip64Extra(final ByteBuffer buf, final int start, final int length,
+            final Entry entry) {
+        int pos = start;
+        while (pos + 4 <= start + length) {
+            final int id = u16(buf, pos);
+            final int size = u16(buf, pos + 2);
+            if (id == ZIP64_EXTRA_ID) {
+                final int end = Math.min(pos + 4 + size, start + length);
+                int valuePos = pos + 4;
+                if (entry.mSize == ZIP64_MAGIC) {
+                    if (valuePos + 8 > end) {
+                        return false;
+                    }
+                    entry.mSize = buf.getLong(valuePos);
+                    valuePos += 8;
+                }
+                if (entry.mCompressedSize == ZIP64_MAGIC) {
+                    if (valuePos + 8 > end) {
+                        return false;
+                    }
+                    entry.mCompressedSize = buf.getLong(valuePos);
+                    valuePos += 8;
+                }
+                if (entry.mLocalHeaderOffset == ZIP64_MAGIC) {
+                    if (valuePos + 8 > end) {
+                        return false;
+                    }
+                    entry.mLocalHeaderOffset = buf.getLong(valuePos);
+                }
+                return true;
+            }
+            pos += 4 + size;
+        }
+        return true;
+    }
+
+    private static int u16(final ByteBuffer buf, final int pos) {
+        return buf.getShort(pos) & 0xFFFF;
+    }
+
+    private static long u32(final ByteBuffer buf, final int pos) {
+        return buf.getInt(pos) & 0xFFFFFFFFL;
+    }
+    // CSON: MagicNumber
+
+    private ByteBuffer read(final long position, final int length) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (mChannel.read(buf, position + buf.position()) < 0) {
+                throw new EOFException("Unexpected end of zip file: " + mPath);
+            }
+        }
+        return buf;
+    }
+
+    /**
+     * A entry of the zip file as described in the central directory.
+     */
+    public static final class Entry {
+        private final String mName;
+        private int mMethod;
+        private int mDosTime;
+        private long mCrc;
+        private long mCompressedSize;
+        private long mSize;
+        private long mLocalHeaderOffset;
+        private volatile long mDataOffset = -1;
+
+        private Entry(final String name) {
+            mName = name;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public boolean isDirectory() {
+            return mName.endsWith("/");
+        }
+
+        /**
+         * Returns the compression method.
+         *
+         * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+         */
+        public int getMethod() {
+            return mMethod;
+        }
+
+        public long getCrc() {
+            return mCrc;
+        }
+
+        public long getCompressedSize() {
+            return mCompressedSize;
+        }
+
+        public long getSize() {
+            return mSize;
+        }
+
+        /**
+         * Returns the modification time in milliseconds since the epoch.
+         *
+         * @return the modification time
+         */
+        public long getTime() {
+            return DosTime.toJavaTime(mDosTime);
+        }
+
+        /**
+         * Whether the modification time of the entry is the same as the given time.
+         * As a zip file only stores the time with a resolution of two seconds, the
+         * given time is rounded accordingly.
+         *
+         * @param time time in milliseconds since the epoch
+         * @return whether the times are equal
+         */
+        public boolean isSameTime(final long time) {
+            return mDosTime == DosTime.fromJavaTime(time);
+        }
+
+        int getDosTime() {
+            return mDosTime;
+        }
+
+        @Override
+        public String toString() {
+            return mName;
+        }
+    }
+
+    /**
+     * InflaterInputStream for raw deflated data, that releases its Inflater on
+     * close.
+     */
+    private static final class EntryInflaterInputStream extends InflaterInputStream {
+        private boolean mEof;
+        private boolean mClosed;
+
+        private EntryInflaterInputStream(final InputStream in) {
+            super(in, new Inflater(true), 64 * 1024); // NOCS: MagicNumber
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (mEof) {
+                throw new EOFException("Unexpected end of deflated data");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                // The inflater in "nowrap" mode might need a extra dummy byte.
+                buf[0] = 0;
+                len = 1;
+                mEof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!mClosed) {
+                mClosed = true;
+                inf.end();
+                super.close();
+            }
+        }
+    }
+
+    /**
+     * InputStream to read a region of a FileChannel using positional reads.
+     */
+    private static final class RegionInputStream extends InputStream {
+        private final FileChannel mChannel;
+        private long mPosition;
+        private long mRemaining;
+
+        private RegionInputStream(final FileChannel channel, final long position, final long length) {
+            mChannel = channel;
+            mPosition = position;
+            mRemaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF; // NOCS: MagicNumber
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (mRemaining <= 0) {
+                return -1;
+            }
+            final ByteBuffer buf = ByteBuffer.wrap(b, off, (int) Math.min(len, mRemaining));
+            final int cnt = mChannel.read(buf, mPosition);
+            if (cnt < 0) {
+                throw new EOFException("Unexpected end of zip file");
+            }
+            mPosition += cnt;
+            mRemaining -= cnt;
+            return cnt;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(mRemaining, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2022 Ralf Schandl
+ *
+ * Distributed under MIT license.
+ * See file LICENSE for detail or visit https://opensource.org/licenses/MIT
+ */
+package de.r3s6.jarp.zip;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a zip file.
+ * <p>
+ * In contrast to {@link java.util.zip.ZipOutputStream} this class can copy the
+ * raw (compressed) data of a entry from another zip file (see
+ * {@link #copyEntry(ZipIndex, ZipIndex.Entry, String)}), so the data doesn't
+ * need to be inflated and deflated again.
+ * <p>
+ * The local headers contain the sizes and CRC of the entries, no data
+ * descriptors are used. The size of a single entry is limited to 4 GB, but
+ * the zip file itself may be larger (ZIP64 central directory).
+ *
+ * @author Ralf Schandl
+ */
+public final class ZipWriter implements Closeable {
+
+    // CSOFF: MagicNumber
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int VERSION_ZIP64 = 45;
+    // CSON: MagicNumber
+
+    private final FileChannel mChannel;
+    private final List<Record> mRecords = new ArrayList<>();
+    private final Set<String> mNames = new HashSet<>();
+    private final Deflater mDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final byte[] mInBuffer = new byte[BUFFER_SIZE];
+    private final byte[] mOutBuffer = new byte[BUFFER_SIZE];
+    private boolean mClosed;
+
+    /**
+     * Creates a new zip file. An existing file is overwritten.
+     *
+     * @param path the file to write
+     * @throws IOException if the file can't be created
+     */
+    public ZipWriter(final Path path) throws IOException {
+        mChannel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Sets the compression level for following deflated entries.
+     *
+     * @param level the compression level (0-9)
+     */
+    public void setLevel(final int level) {
+        mDeflater.setLevel(level);
+    }
+
+    /**
+     * Adds a directory entry.
+     *
+     * @param name the entry name. A missing trailing '/' is added.
+     * @param time modification time in milliseconds since the epoch
+     * @throws IOException if writing fails or the entry already exists
+     */
+    public void addDirectory(final String name, final long time) throws IOException {
+        final Record rec = newRecord(name.endsWith("/") ? name : name + "/", ZipEntry.STORED,
+                DosTime.fromJavaTime(time));
+        writeLocalHeader(rec);
+    }
+
+    /**
+     * Adds a entry with the given data.
+     *
+     * @param name   the entry name
+     * @param time   modification time in milliseconds since the epoch
+     * @param data   the data of the entry
+     * @param method {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+     * @throws IOException if writing fails or the entry already exists
+     */
+    public void addEntry(final String name, final long time, final byte[] data, final int method)
+            throws IOException {
+        addEntry(name, time, new ByteArrayInputStream(data), method);
+    }
+
+    /**
+     * Adds a entry with the data read from the given stream.
+     *
+     * @param name   the entry name
+     * @param time   modification time in milliseconds since the epoch
+     * @param in     stream to read the data of the entry. Not closed.
+     * @param method {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+     * @throws IOException if reading or writing fails or the entry already exists
+     */
+    public void addEntry(final String name, final long time, final InputStream in, final int method)
+            throws IOException {
+        final Record rec = newRecord(name, method, DosTime.fromJavaTime(time));
+        writeLocalHeader(rec);
+
+        final long dataStart = mChannel.position();
+        final CRC32 crc = new CRC32();
+        long size = 0;
+        int cnt;
+        if (method == ZipEntry.STORED) {
+            while ((cnt = in.read(mInBuffer)) >= 0) {
+                crc.update(mInBuffer, 0, cnt);
+                write(ByteBuffer.wrap(mInBuffer, 0, cnt));
+                size += cnt;
+            }
+        } else {
+            mDeflater.reset();
+            while ((cnt = in.read(mInBuffer)) >= 0) {
+                crc.update(mInBuffer, 0, cnt);
+                size += cnt;
+                mDeflater.setInput(mInBuffer, 0, cnt);
+                while (!mDeflater.needsInput()) {
+                    deflate();
+                }
+            }
+            mDeflater.finish();
+            while (!mDeflater.finished()) {
+                deflate();
+            }
+        }
+
+        rec.mCrc = crc.getValue();
+        rec.mSize = size;
+        rec.mCompressedSize = mChannel.position() - dataStart;
+        checkSize(rec);
+
+        // CSOFF: MagicNumber
+        final ByteBuffer buf = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt((int) rec.mCrc).putInt((int) rec.mCompressedSize).putInt((int) rec.mSize).flip();
+        while (buf.hasRemaining()) {
+            mChannel.write(buf, rec.mOffset + 14 + buf.position());
+        }
+        // CSON: MagicNumber
+    }
+
+    /**
+     * Copies the raw data of a entry from another zip file.
+     *
+     * @param source the zip file to copy from
+     * @param entry  the entry to copy
+     * @param name   the name of the new entry
+     * @throws IOException if reading or writing fails or the entry already exists
+     */
+    public void copyEntry(final ZipIndex source, final ZipIndex.Entry entry, final String name) throws IOException {
+        copyEntry(source, entry, name, entry.getDosTime());
+    }
+
+    /**
+     * Copies the raw data of a entry from another zip file with a new
+     * modification time.
+     *
+     * @param source the zip file to copy from
+     * @param entry  the entry to copy
+     * @param name   the name of the new entry
+     * @param time   modification time in milliseconds since the epoch
+     * @throws IOException if reading or writing fails or the entry already exists
+     */
+    public void copyEntry(final ZipIndex source, final ZipIndex.Entry entry, final String name, final long time)
+            throws IOException {
+        copyEntry(source, entry, name, DosTime.fromJavaTime(time));
+    }
+
+    /**
+     * Copies the raw data of a entry from another zip file.
+     *
+     * @param source the zip file to copy from
+     * @param entry  the entry to copy
+     * @throws IOException if reading or writing fails or the entry already exists
+     */
+    public void copyEntry(final ZipIndex source, final ZipIndex.Entry entry) throws IOException {
+        copyEntry(source, entry, entry.getName());
+    }
+
+    private void copyEntry(final ZipIndex source, final ZipIndex.Entry entry, final String name, final int dosTime)
+            throws IOException {
+        final Record rec = newRecord(name, entry.getMethod(), dosTime);
+        rec.mCrc = entry.getCrc();
+        rec.mSize = entry.getSize();
+        rec.mCompressedSize = entry.getCompressedSize();
+        checkSize(rec);
+        writeLocalHeader(rec);
+        source.transferRawTo(entry, mChannel);
+    }
+
+    /**
+     * Writes the central directory and closes the file.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        try {
+            writeCentralDirectory();
+        } finally {
+            mDeflater.end();
+            mChannel.close();
+        }
+    }
+
+    private Record newRecord(final String name, final int method, final int dosTime) throws IOException {
+        if (!mNames.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+        }
+        if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + ": " + name);
+        }
+        final Record rec = new Record(name.getBytes(StandardCharsets.UTF_8), method, dosTime);
+        rec.mOffset = mChannel.position();
+        mRecords.add(rec);
+        return rec;
+    }
+
+    private void checkSize(final Record rec) throws ZipException {
+        if (rec.mSize >= ZipIndex.ZIP64_MAGIC || rec.mCompressedSize >= ZipIndex.ZIP64_MAGIC) {
+            throw new ZipException("Entry too large (max 4 GB): " + StandardCharsets.UTF_8.decode(ByteBuffer.wrap(rec.mName)));
+        }
+    }
+
+    private void deflate() throws IOException {
+        final int cnt = mDeflater.deflate(mOutBuffer);
+        if (cnt > 0) {
+            write(ByteBuffer.wrap(mOutBuffer, 0, cnt));
+        }
+    }
+
+    // CSOFF: MagicNumber
+    private void writeLocalHeader(final Record rec) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate(ZipIndex.LOC_HEADER_SIZE + rec.mName.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(ZipIndex.LOC_SIG);
+        buf.putShort((short) rec.version());
+        buf.putShort((short) FLAG_UTF8);
+        buf.putShort((short) rec.mMethod);
+        buf.putInt(rec.mDosTime);
+        buf.putInt((int) rec.mCrc);
+        buf.putInt((int) rec.mCompressedSize);
+        buf.putInt((int) rec.mSize);
+        buf.putShort((short) rec.mName.length);
+        buf.putShort((short) 0);
+        buf.put(rec.mName);
+        buf.flip();
+        write(buf);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        final long cenStart = mChannel.position();
+        for (final Record rec : mRecords) {
+            final boolean zip64 = rec.mOffset >= ZipIndex.ZIP64_MAGIC;
+            final int extraLength = zip64 ? 12 : 0;
+            final ByteBuffer buf = ByteBuffer.allocate(ZipIndex.CEN_HEADER_SIZE + rec.mName.length + extraLength)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            final int version = zip64 ? VERSION_ZIP64 : rec.version();
+            buf.putInt(ZipIndex.CEN_SIG);
+            buf.putShort((short) version);
+            buf.putShort((short) version);
+            buf.putShort((short) FLAG_UTF8);
+            buf.putShort((short) rec.mMethod);
+            buf.putInt(rec.mDosTime);
+            buf.putInt((int) rec.mCrc);
+            buf.putInt((int) rec.mCompressedSize);
+            buf.putInt((int) rec.mSize);
+            buf.putShort((short) rec.mName.length);
+            buf.putShort((short) extraLength);
+            // comment length
+            buf.putShort((short) 0);
+            // disk number
+            buf.putShort((short) 0);
+            // internal attributes
+            buf.putShort((short) 0);
+            // external attributes
+            buf.putInt(0);
+            buf.putInt(zip64 ? (int) ZipIndex.ZIP64_MAGIC : (int) rec.mOffset);
+            buf.put(rec.mName);
+            if (zip64) {
+                buf.putShort((short) ZipIndex.ZIP64_EXTRA_ID);
+                buf.putShort((short) 8);
+                buf.putLong(rec.mOffset);
+            }
+            buf.flip();
+            write(buf);
+        }
+        final long cenEnd = mChannel.position();
+        final long cenSize = cenEnd - cenStart;
+        final int count = mRecords.size();
+
+        final boolean zip64 = cenStart >= ZipIndex.ZIP64_MAGIC || cenSize >= ZipIndex.ZIP64_MAGIC
+                || count >= 0xFFFF;
+        if (zip64) {
+            final ByteBuffer buf = ByteBuffer.allocate(56 + ZipIndex.ZIP64_LOCATOR_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(ZipIndex.ZIP64_END_SIG);
+            // size of remaining record
+            buf.putLong(44);
+            buf.putShort((short) VERSION_ZIP64);
+            buf.putShort((short) VERSION_ZIP64);
+            // disk number
+            buf.putInt(0);
+            // disk with central directory
+            buf.putInt(0);
+            buf.putLong(count);
+            buf.putLong(count);
+            buf.putLong(cenSize);
+            buf.putLong(cenStart);
+
+            buf.putInt(ZipIndex.ZIP64_LOCATOR_SIG);
+            // disk with zip64 end record
+            buf.putInt(0);
+            buf.putLong(cenEnd);
+            // number of disks
+            buf.putInt(1);
+            buf.flip();
+            write(buf);
+        }
+
+        final ByteBuffer buf = ByteBuffer.allocate(ZipIndex.END_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(ZipIndex.END_SIG);
+        // disk number
+        buf.putShort((short) 0);
+        // disk with central directory
+        buf.putShort((short) 0);
+        buf.putShort((short) Math.min(count, 0xFFFF));
+        buf.putShort((short) Math.min(count, 0xFFFF));
+        buf.putInt((int) Math.min(cenSize, ZipIndex.ZIP64_MAGIC));
+        buf.putInt((int) Math.min(cenStart, ZipIndex.ZIP64_MAGIC));
+        // comment length
+        buf.putShort((short) 0);
+        buf.flip();
+        write(buf);
+    }
+    // CSON: MagicNumber
+
+    private void write(final ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            mChannel.write(buf);
+        }
+    }
+
+    /**
+     * Data of a written entry needed for the central directory.
+     */
+    private static final class Record {
+        private final byte[] mName;
+        private final int mMethod;
+        private final int mDosTime;
+        private long mOffset;
+        private long mCrc;
+        private long mSize;
+        private long mCompressedSize;
+
+        private Record(final byte[] name, final int method, final int dosTime) {
+            mName = name;
+            mMethod = method;
+            mDosTime = dosTime;
+        }
+
+        private int version() {
+            return mMethod == ZipEntry.DEFLATED ? VERSION_DEFLATED : VERSION_STORED;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.r3s6.jarp.build;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.zip.ZipWriter;
+
+class ArchiveSourceTest {
+
+    private static final String HTML = "<html><body>Hello</body></html>";
+
+    @TempDir
+    Path mTempDir;
+
+    @Test
+    void testZip() throws IOException {
+        final Path zipFile = mTempDir.resolve("deck.zip");
+        try (ZipWriter zip = new ZipWriter(zipFile)) {
+            zip.addDirectory("deck/", 0);
+            zip.addEntry("deck/index.html", 0, HTML.getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+            zip.addEntry("deck/img/a.png", 0, new byte[] { 1, 2, 3 }, ZipEntry.STORED);
+        }
+
+        assertTrue(ArchiveSource.isArchive(zipFile.toString()));
+        assertFalse(ArchiveSource.isArchive(mTempDir.toString()));
+
+        try (ArchiveSource archive = ArchiveSource.open(zipFile.toString(), mTempDir)) {
+            // the single top level directory is the root
+            final Path index = archive.getRoot().resolve("index.html");
+            assertEquals(HTML, Files.readString(index));
+            assertNotNull(archive.rawEntry(index));
+            assertNull(archive.rawEntry(archive.getRoot().resolve("img/a.png")));
+        }
+        assertTrue(Files.exists(zipFile));
+    }
+
+    @Test
+    void testTarGz() throws IOException {
+        final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTarEntry(tar, "./", '5', new byte[0]);
+        writeTarEntry(tar, "./index.html", '0', HTML.getBytes(StandardCharsets.UTF_8));
+        final String longName = "./" + "long-directory-name/".repeat(6) + "file.txt";
+        writeTarEntry(tar, "././@LongLink", 'L', (longName + "\0").getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(tar, longName.substring(0, 99), '0', "text".getBytes(StandardCharsets.UTF_8));
+        tar.write(new byte[1024]);
+
+        final Path tgzFile = mTempDir.resolve("deck.tgz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tgzFile))) {
+            tar.writeTo(out);
+        }
+
+        try (ArchiveSource archive = ArchiveSource.open(tgzFile.toString(), mTempDir)) {
+            final Path index = archive.getRoot().resolve("index.html");
+            assertEquals(HTML, Files.readString(index));
+            assertNotNull(archive.rawEntry(index));
+            assertEquals("text", Files.readString(archive.getRoot().resolve(longName.substring(2))));
+        }
+        // the temporary zip file is deleted
+        try (Stream<Path> files = Files.list(mTempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    static void writeTarEntry(final OutputStream out, final String name, final char type,
+            final byte[] data) throws IOException {
+        final byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 124, String.format("%011o", data.length));
+        put(header, 136, String.format("%011o", 1_600_000_000L));
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        out.write(header);
+        out.write(data);
+        out.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    private static void put(final byte[] header, final int offset, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -0,0 +1,53 @@
+package de.r3s6.jarp.build;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CrawlerTest {
+
+    @TempDir
+    Path mTempDir;
+
+    @Test
+    void testCrawl() throws IOException {
+        final Path html = write("index.html", "<link rel=\"stylesheet\" href=\"dist/theme/black.css?v=1\">\n"
+                + "<script src=\"dist/reveal.js\"></script><section data-markdown=\"slides.md\"></section>"
+                + "<style>body { background: url(img/back.png); }</style>");
+        final Path black = write("dist/theme/black.css", "@import url(fonts/font.css);");
+        final Path white = write("dist/theme/white.css", "body { color: black; }");
+        final Path fontCss = write("dist/theme/fonts/font.css", "src: url(font.woff) format('woff');");
+        final Path font = write("dist/theme/fonts/font.woff", "WOFF");
+        final Path map = write("dist/reveal.js.map", "{}");
+        final Path js = write("dist/reveal.js", "load('plugin/notes/notes.html'); var x = \"reveal.js.map\";");
+        final Path jsGz = write("dist/reveal.js.gz", "GZ");
+        final Path notes = write("plugin/notes/notes.html", "<p>notes</p>");
+        final Path md = write("slides.md", "# Title\n![Image](img/image.png)\n");
+        final Path image = write("img/image.png", "PNG");
+        final Path back = write("img/back.png", "PNG");
+        final Path unused = write("img/unused.png", "PNG");
+
+        final Crawler crawler = new Crawler(mTempDir, List.of(html, black, white, fontCss, font, map, js, jsGz,
+                notes, md, image, back, unused));
+        assertEquals(List.of(html, black, js, jsGz, md, back, fontCss, notes, map, image, font),
+                new ArrayList<>(crawler.crawl(List.of(html))));
+
+        assertEquals(List.of(html, white, black, js, jsGz, md, back, fontCss, notes, map, image, font),
+                new ArrayList<>(crawler.crawl(List.of(html, white))));
+    }
+
+    private Path write(final String name, final String content) throws IOException {
+        final Path file = mTempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
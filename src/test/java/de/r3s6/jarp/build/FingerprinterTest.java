@@ -0,0 +1,87 @@
+package de.r3s6.jarp.build;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.Utilities;
+
+class FingerprinterTest {
+
+    @TempDir
+    Path mTempDir;
+
+    @Test
+    void testFingerprint() throws IOException {
+        final Path html = write("index.html", "<link rel=\"stylesheet\" href=\"css/theme.css?v=1\">\n"
+                + "<img src='img/logo.png'><a href=\"other.html\">x</a>"
+                + "<script src=\"https://example.com/x.js\"></script><p class=\"notes\">notes</p>");
+        final Path css = write("css/theme.css", "body { background: url(../img/logo.png); }\n"
+                + "@import \"/css/base.css\";\n.a { background: url('data:image/png;base64,AAAA'); }");
+        final Path base = write("css/base.css", "p { color: red; }");
+        final Path logo = write("img/logo.png", "PNG");
+        final Path unused = write("img/unused.png", "unused");
+        final Path other = write("other.html", "<p>other</p>");
+
+        final Map<Path, byte[]> contents = new HashMap<>();
+        final Map<Path, String> names = new Fingerprinter(mTempDir, List.of(html, css, base, logo, unused, other),
+                contents).run();
+
+        final String logoName = "logo." + hash("PNG") + ".png";
+        final String baseName = "base." + hash("p { color: red; }") + ".css";
+        assertEquals(logoName, names.get(logo));
+        assertEquals(baseName, names.get(base));
+        assertFalse(names.containsKey(unused));
+        assertFalse(names.containsKey(other));
+        assertFalse(names.containsKey(html));
+
+        final String cssContent = "body { background: url(../img/" + logoName + "); }\n@import \"/css/" + baseName
+                + "\";\n.a { background: url('data:image/png;base64,AAAA'); }";
+        assertEquals(cssContent, new String(contents.get(css), StandardCharsets.UTF_8));
+        // the hash of a CSS file is calculated from the rewritten content
+        assertEquals("theme." + hash(cssContent) + ".css", names.get(css));
+
+        assertEquals("<link rel=\"stylesheet\" href=\"css/" + names.get(css) + "?v=1\">\n"
+                + "<img src='img/" + logoName + "'><a href=\"other.html\">x</a>"
+                + "<script src=\"https://example.com/x.js\"></script><p class=\"notes\">notes</p>",
+                new String(contents.get(html), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCyclicReference() throws IOException {
+        final Path html = write("index.html", "<link href=\"a.css\">");
+        final Path a = write("a.css", "@import 'b.css';");
+        final Path b = write("b.css", "@import 'a.css';");
+
+        final Map<Path, byte[]> contents = new HashMap<>();
+        final Map<Path, String> names = new Fingerprinter(mTempDir, List.of(html, a, b), contents).run();
+
+        assertTrue(names.containsKey(a));
+        assertTrue(names.containsKey(b));
+        assertEquals("@import 'a.css';", new String(Files.readAllBytes(b), StandardCharsets.UTF_8));
+        assertNull(contents.get(b));
+    }
+
+    private Path write(final String name, final String content) throws IOException {
+        final Path file = mTempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String hash(final String content) {
+        return Utilities.sha256(content.getBytes(StandardCharsets.UTF_8)).substring(0, 8);
+    }
+}
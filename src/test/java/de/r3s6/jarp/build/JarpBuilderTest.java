@@ -0,0 +1,320 @@
+package de.r3s6.jarp.build;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.server.HttpServerchen;
+import de.r3s6.jarp.server.JarResources;
+import de.r3s6.jarp.server.ResourceManifest;
+import de.r3s6.jarp.server.ResourceProvider;
+import de.r3s6.jarp.zip.ZipIndex;
+import de.r3s6.jarp.zip.ZipWriter;
+
+class JarpBuilderTest {
+
+    @TempDir
+    Path mTempDir;
+
+    private Path mJarpJar;
+
+    private Path mPresentation;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mJarpJar = createJarpJar(mTempDir.resolve("jarp.jar"), "classes");
+        mPresentation = createPresentation(mTempDir.resolve("deck"));
+    }
+
+    @Test
+    void testReproducible() throws IOException {
+        final byte[] first = build(new JarpBuilder().reproducible(null), "first.jar");
+        // different file times must not matter
+        Files.setLastModifiedTime(mPresentation.resolve("index.html"), FileTime.fromMillis(1_000_000_000_000L));
+        final byte[] second = build(new JarpBuilder().reproducible(null), "second.jar");
+        assertArrayEquals(first, second);
+
+        final byte[] epoch1 = build(new JarpBuilder().reproducible("1600000000"), "epoch1.jar");
+        final byte[] epoch2 = build(new JarpBuilder().reproducible("1600000000"), "epoch2.jar");
+        assertArrayEquals(epoch1, epoch2);
+        assertFalse(Arrays.equals(first, epoch1));
+
+        // also with all transformations
+        final byte[] all1 = build(new JarpBuilder().reproducible(null).precompress(true).deduplicate(true)
+                .minify(true).fingerprint(true), "all1.jar");
+        final byte[] all2 = build(new JarpBuilder().reproducible(null).precompress(true).deduplicate(true)
+                .minify(true).fingerprint(true), "all2.jar");
+        assertArrayEquals(all1, all2);
+
+        assertThrows(IllegalArgumentException.class, () -> new JarpBuilder().reproducible("yesterday"));
+    }
+
+    @Test
+    void testRebuild() throws IOException {
+        final Path jar = mTempDir.resolve("test.jar");
+        new JarpBuilder().precompress(true).jarpJar(mJarpJar).build(jar.toString(), mPresentation.toString(),
+                "Test", null, false);
+        final Path oldJar = Files.copy(jar, mTempDir.resolve("old.jar"));
+
+        final Path newJarpJar = createJarpJar(mTempDir.resolve("jarp2.jar"), "new classes");
+        new JarpBuilder().jarpJar(newJarpJar).rebuild(jar.toString());
+
+        try (ZipIndex oldZip = ZipIndex.open(oldJar); ZipIndex newZip = ZipIndex.open(jar)) {
+            assertPresentationCopied(oldZip, newZip);
+            final String index = JarPresenter.PRESENTATION_DIR + "/index.html";
+            assertEquals(oldZip.getEntry(index).getTime(), newZip.getEntry(index).getTime());
+
+            assertEquals("new classes", readEntry(newZip, "de/r3s6/jarp/JarPresenter.class"));
+            assertNull(newZip.getEntry("other/Other.class"));
+        }
+    }
+
+    @Test
+    void testRebuildInvalid() throws IOException {
+        // the running jar
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new JarpBuilder().jarpJar(mJarpJar).rebuild(mJarpJar.toString()));
+        assertTrue(e.getMessage().contains("running jar"), e.getMessage());
+        assertEquals("classes", readEntry(mJarpJar, "de/r3s6/jarp/JarPresenter.class"));
+
+        // not a jar-presenter jar
+        final Path other = createJarpJar(mTempDir.resolve("other.jar"), "other");
+        assertThrows(IllegalArgumentException.class,
+                () -> new JarpBuilder().jarpJar(mJarpJar).rebuild(other.toString()));
+        assertEquals("other", readEntry(other, "de/r3s6/jarp/JarPresenter.class"));
+    }
+
+    @Test
+    void testDeduplicate() throws IOException {
+        final Path jar = mTempDir.resolve("test.jar");
+        new JarpBuilder().precompress(true).deduplicate(true).jarpJar(mJarpJar).build(jar.toString(),
+                mPresentation.toString(), "Test", null, false);
+
+        final byte[] gzData;
+        try (ZipIndex zip = ZipIndex.open(jar)) {
+            // the first in access order is stored, the copy is a alias
+            assertNotNull(zip.getEntry("presentation/css/style.css"));
+            assertNull(zip.getEntry("presentation/css/copy.css"));
+            assertNull(zip.getEntry("presentation/css/copy.css.gz"));
+            assertEquals("/css/copy.css=/css/style.css\n", readEntry(zip, JarPresenter.ALIASES_PATH));
+            try (InputStream in = zip.getInputStream(zip.getEntry("presentation/css/style.css.gz"))) {
+                gzData = in.readAllBytes();
+            }
+        }
+
+        final List<String> opened = new CopyOnWriteArrayList<>();
+        try (JarResources resources = new JarResources(jar);
+                HttpServerchen server = HttpServerchen.builder().resources(new ResourceProvider() {
+            @Override
+            public InputStream open(final String path) throws IOException {
+                opened.add(path);
+                return resources.open(path);
+            }
+
+            @Override
+            public String resolve(final String path) {
+                return resources.resolve(path);
+            }
+        }).build()) {
+            new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                }
+            }).start();
+
+            final URL url = new URL("http://localhost:" + server.getPort() + "/css/copy.css");
+            final HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            con.setRequestProperty("Accept-Encoding", "gzip");
+            assertEquals(200, con.getResponseCode());
+            assertEquals("gzip", con.getContentEncoding());
+            try (InputStream in = con.getInputStream()) {
+                assertArrayEquals(gzData, in.readAllBytes());
+            }
+            // the stored variant, not compressed on the fly
+            assertTrue(opened.contains("/css/style.css.gz"), opened.toString());
+            assertFalse(opened.contains("/css/style.css"), opened.toString());
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testTarGz() throws IOException {
+        final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        ArchiveSourceTest.writeTarEntry(tar, "deck/", '5', new byte[0]);
+        ArchiveSourceTest.writeTarEntry(tar, "deck/index.html", '0', bytes("<html></html>"));
+        ArchiveSourceTest.writeTarEntry(tar, "deck/css/", '5', new byte[0]);
+        ArchiveSourceTest.writeTarEntry(tar, "deck/css/style.css", '0', bytes("body { color: red; }\n".repeat(20)));
+        ArchiveSourceTest.writeTarEntry(tar, "deck/img.png", '0', new byte[100_000]);
+        ArchiveSourceTest.writeTarEntry(tar, "deck/" + JarPresenter.METADATA_BASENAME, '0', bytes("title=Tar\n"));
+        tar.write(new byte[1024]);
+        final Path tgz = mTempDir.resolve("deck.tgz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tgz))) {
+            tar.writeTo(out);
+        }
+
+        final Path target = Files.createDirectories(mTempDir.resolve("target"));
+        final Path jar = target.resolve("test.jar");
+        new JarpBuilder().precompress(true).jarpJar(mJarpJar).build(jar.toString(), tgz.toString(), null, null,
+                false);
+        // no temporary zip file
+        try (Stream<Path> files = Files.list(target)) {
+            assertEquals(List.of(jar), files.collect(Collectors.toList()));
+        }
+
+        try (ZipIndex zip = ZipIndex.open(jar)) {
+            assertNotNull(zip.getEntry("presentation/"));
+            assertNotNull(zip.getEntry("presentation/css/"));
+            assertEquals("<html></html>", readEntry(zip, "presentation/index.html"));
+            assertEquals(100_000, zip.getEntry("presentation/img.png").getSize());
+            assertNotNull(zip.getEntry("presentation/css/style.css.gz"));
+            assertNull(zip.getEntry("presentation/img.png.gz"));
+
+            final String metadata = readEntry(zip, JarPresenter.METADATA_PATH);
+            assertTrue(metadata.contains("title=Tar"), metadata);
+            assertTrue(metadata.contains(JarPresenter.PROP_STARTPAGE + "=index.html"), metadata);
+
+            final ResourceManifest manifest = ResourceManifest.load(zip.getInputStream(
+                    zip.getEntry(JarPresenter.RESOURCES_PATH)));
+            assertTrue(manifest.get("/css/style.css").hasGzipVariant());
+            assertEquals(100_000, manifest.get("/img.png").getSize());
+            assertNull(manifest.get("/" + JarPresenter.METADATA_BASENAME));
+        }
+    }
+
+    @Test
+    void testTarOutsideTopDirectory() throws IOException {
+        final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        ArchiveSourceTest.writeTarEntry(tar, "deck/", '5', new byte[0]);
+        ArchiveSourceTest.writeTarEntry(tar, "other.html", '0', bytes("<html></html>"));
+        tar.write(new byte[1024]);
+        final Path tarFile = Files.write(mTempDir.resolve("deck.tar"), tar.toByteArray());
+
+        final Path jar = mTempDir.resolve("test.jar");
+        assertThrows(IOException.class, () -> new JarpBuilder().jarpJar(mJarpJar).build(jar.toString(),
+                tarFile.toString(), null, null, false));
+        assertFalse(Files.exists(jar));
+    }
+
+    @Test
+    void testTarInvalidNames() throws IOException {
+        final Path jar = mTempDir.resolve("test.jar");
+        for (final String name : List.of("../x.html", "a/../../x.html", "/etc/x.html", "a\\..\\..\\x.html")) {
+            final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+            ArchiveSourceTest.writeTarEntry(tar, "index.html", '0', bytes("<html></html>"));
+            ArchiveSourceTest.writeTarEntry(tar, name, '0', bytes("evil"));
+            tar.write(new byte[1024]);
+            final Path tarFile = Files.write(mTempDir.resolve("deck.tar"), tar.toByteArray());
+
+            final IOException e = assertThrows(IOException.class, () -> new JarpBuilder().jarpJar(mJarpJar)
+                    .build(jar.toString(), tarFile.toString(), null, null, false));
+            assertEquals("Invalid entry name: " + name, e.getMessage());
+            assertFalse(Files.exists(jar));
+
+            // also when converted to a temporary zip file
+            assertThrows(IOException.class, () -> new JarpBuilder().deduplicate(true).jarpJar(mJarpJar)
+                    .build(jar.toString(), tarFile.toString(), null, null, false));
+            assertFalse(Files.exists(jar));
+        }
+    }
+
+    private byte[] build(final JarpBuilder builder, final String name) throws IOException {
+        final Path jar = mTempDir.resolve(name);
+        builder.jarpJar(mJarpJar).build(jar.toString(), mPresentation.toString(), "Test", null, false);
+        return Files.readAllBytes(jar);
+    }
+
+    /**
+     * Asserts that the presentation entries were copied unchanged, including
+     * their compressed data.
+     */
+    static void assertPresentationCopied(final ZipIndex oldJar, final ZipIndex newJar) throws IOException {
+        final List<ZipIndex.Entry> oldEntries = presentationEntries(oldJar);
+        final List<ZipIndex.Entry> newEntries = presentationEntries(newJar);
+        assertEquals(oldEntries.size(), newEntries.size());
+        assertTrue(oldEntries.size() > 5);
+        for (int i = 0; i < oldEntries.size(); i++) {
+            final ZipIndex.Entry oldEntry = oldEntries.get(i);
+            final ZipIndex.Entry newEntry = newEntries.get(i);
+            assertEquals(oldEntry.getName(), newEntry.getName());
+            assertEquals(oldEntry.getMethod(), newEntry.getMethod(), oldEntry.getName());
+            assertEquals(oldEntry.getCrc(), newEntry.getCrc(), oldEntry.getName());
+            try (InputStream oldIn = oldJar.getRawInputStream(oldEntry);
+                    InputStream newIn = newJar.getRawInputStream(newEntry)) {
+                assertArrayEquals(oldIn.readAllBytes(), newIn.readAllBytes(), oldEntry.getName());
+            }
+        }
+    }
+
+    private static List<ZipIndex.Entry> presentationEntries(final ZipIndex jar) {
+        return jar.entries().stream().filter(e -> e.getName().startsWith(JarPresenter.PRESENTATION_DIR + '/'))
+                .collect(Collectors.toList());
+    }
+
+    static String readEntry(final ZipIndex jar, final String name) throws IOException {
+        try (InputStream in = jar.getInputStream(jar.getEntry(name))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String readEntry(final Path jar, final String name) throws IOException {
+        try (ZipIndex zip = ZipIndex.open(jar)) {
+            return readEntry(zip, name);
+        }
+    }
+
+    /**
+     * Creates a jar with fake jar-presenter classes.
+     */
+    static Path createJarpJar(final Path jar, final String content) throws IOException {
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("de/r3s6/jarp/", 0);
+            zip.addEntry("de/r3s6/jarp/JarPresenter.class", 0, bytes(content), ZipEntry.DEFLATED);
+            zip.addEntry("other/Other.class", 0, bytes("other"), ZipEntry.DEFLATED);
+        }
+        return jar;
+    }
+
+    static Path createPresentation(final Path dir) throws IOException {
+        Files.createDirectories(dir.resolve("css"));
+        Files.createDirectories(dir.resolve("img"));
+        Files.writeString(dir.resolve("index.html"), "<html>\n  <head>\n    <link rel=\"stylesheet\" "
+                + "href=\"css/style.css\">\n  </head>\n  <body>\n    <img src=\"img/logo.png\">\n  </body>\n</html>\n");
+        Files.writeString(dir.resolve("css/style.css"), "body {\n    color: red;\n}\n".repeat(20));
+        Files.writeString(dir.resolve("css/copy.css"), "body {\n    color: red;\n}\n".repeat(20));
+        Files.write(dir.resolve("img/logo.png"), new byte[] { 1, 2, 3 });
+        return dir;
+    }
+
+    private static byte[] bytes(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
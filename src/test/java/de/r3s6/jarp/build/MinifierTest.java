@@ -0,0 +1,84 @@
+package de.r3s6.jarp.build;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class MinifierTest {
+
+    @Test
+    void testSupports() {
+        assertTrue(Minifier.supports("index.html"));
+        assertTrue(Minifier.supports("dist/theme/black.css"));
+        assertTrue(Minifier.supports("dist/reveal.js"));
+        assertFalse(Minifier.supports("dist/reveal.min.js"));
+        assertFalse(Minifier.supports("image.png"));
+    }
+
+    @Test
+    void testHtml() {
+        assertEquals("<html>\n<body class=\"a  b\">\n<p> Hello World </p>\n</body>\n</html>",
+                Minifier.minifyHtml("<html>\n  <body  class=\"a  b\" >\n    <!-- comment -->\n"
+                        + "    <p>  Hello   World  </p>\n  </body>\n</html>"));
+    }
+
+    @Test
+    void testHtmlRawElements() {
+        final String html = "<pre>  a\n    b  </pre>\n  <script>\n  if (a  <  b) {}\n  </script>"
+                + "<section data-markdown>\n  - one\n    - two\n</section>";
+        assertEquals("<pre>  a\n    b  </pre>\n<script>\n  if (a  <  b) {}\n  </script>"
+                + "<section data-markdown>\n  - one\n    - two\n</section>", Minifier.minifyHtml(html));
+    }
+
+    @Test
+    void testHtmlConditionalComment() {
+        assertEquals("<!--[if IE]>x<![endif]-->", Minifier.minifyHtml("<!--[if IE]>x<![endif]-->"));
+    }
+
+    @Test
+    void testCss() {
+        assertEquals("a:hover,b .c{color:red;content:\"  /* x */  \";}/*! license */ d :first-child{margin:0 auto}",
+                Minifier.minifyCss("/* comment */\na:hover , b  .c {\n  color:red;\n  content: \"  /* x */  \";\n}\n"
+                        + "/*! license */\nd :first-child { margin: 0  auto }\n"));
+    }
+
+    @Test
+    void testJs() {
+        assertEquals("function f(a,b){\nreturn a+ b;\n}\nvar s='  // not a comment  ';",
+                Minifier.minifyJs("// comment\nfunction f(a, b) {\n  /* comment */\n  return a+  b;\n}\n"
+                        + "var s = '  // not a comment  ';\n"));
+    }
+
+    @Test
+    void testJsRegex() {
+        assertEquals("var r=/ [/*]  \\/ /g;\nvar d=a / b / c;",
+                Minifier.minifyJs("var r = / [/*]  \\/ /g;\nvar d = a  /  b / c;"));
+    }
+
+    @Test
+    void testJsTemplate() {
+        assertEquals("var t=`a  ${{x:1}.x}  b ${`c  ${d}`}`;",
+                Minifier.minifyJs("var t = `a  ${ { x: 1 }.x }  b ${`c  ${d}`}`;"));
+    }
+
+    @Test
+    void testJsKeepsLicense() {
+        assertEquals("/*! license\n * text */\nvar a;", Minifier.minifyJs("/*! license\n * text */\nvar a;"));
+    }
+
+    @Test
+    void testMinify() {
+        final byte[] css = "a {  color: red;  }".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals("a{color:red;}".getBytes(StandardCharsets.UTF_8), Minifier.minify("x.css", css));
+
+        assertNull(Minifier.minify("x.css", "a{}".getBytes(StandardCharsets.UTF_8)));
+        assertNull(Minifier.minify("x.png", css));
+        assertNull(Minifier.minify("x.css", new byte[] { 'a', ' ', ' ', (byte) 0xFF }));
+    }
+}
@@ -0,0 +1,83 @@
+package de.r3s6.jarp.build;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.zip.ZipIndex;
+import de.r3s6.jarp.zip.ZipWriter;
+
+class MinifyCacheTest {
+
+    private static final String CSS = "body {\n    color: red;\n}\n";
+
+    @TempDir
+    Path mTempDir;
+
+    @Test
+    void testReuse() throws IOException {
+        final Path css = Files.writeString(mTempDir.resolve("a.css"), CSS);
+        final Path js = Files.writeString(mTempDir.resolve("b.js"), "x=1;");
+
+        final MinifyCache first = new MinifyCache(null, JarPresenter.PRESENTATION_DIR);
+        assertEquals("body{color:red;}", string(first.minify(css)));
+        assertNull(first.minify(js));
+        first.stored(css, "presentation/a.css");
+        assertEquals(0, first.getReused());
+
+        // a different content in the jar shows that it is taken from there
+        final Path jar = mTempDir.resolve("test.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addEntry("presentation/a.css", 0, bytes("cached"), ZipEntry.DEFLATED);
+            zip.addEntry(JarPresenter.MINIFIED_PATH, 0, first.toByteArray(), ZipEntry.DEFLATED);
+        }
+
+        try (ZipIndex oldJar = ZipIndex.open(jar)) {
+            final MinifyCache second = new MinifyCache(oldJar, JarPresenter.PRESENTATION_DIR);
+            assertEquals("cached", string(second.minify(css)));
+            assertNull(second.minify(js));
+            assertEquals(2, second.getReused());
+
+            // changed content is minified again
+            Files.writeString(css, CSS.replace("red", "blue"));
+            assertEquals("body{color:blue;}", string(second.minify(css)));
+            assertEquals(2, second.getReused());
+        }
+    }
+
+    @Test
+    void testMissingEntry() throws IOException {
+        final Path css = Files.writeString(mTempDir.resolve("a.css"), CSS);
+        final MinifyCache first = new MinifyCache(null, JarPresenter.PRESENTATION_DIR);
+        assertNotNull(first.minify(css));
+        first.stored(css, "presentation/a.css");
+
+        final Path jar = mTempDir.resolve("test.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addEntry(JarPresenter.MINIFIED_PATH, 0, first.toByteArray(), ZipEntry.DEFLATED);
+        }
+        try (ZipIndex oldJar = ZipIndex.open(jar)) {
+            final MinifyCache second = new MinifyCache(oldJar, JarPresenter.PRESENTATION_DIR);
+            assertEquals("body{color:red;}", string(second.minify(css)));
+            assertEquals(0, second.getReused());
+        }
+    }
+
+    private static byte[] bytes(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(final byte[] data) {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,42 @@
+package de.r3s6.jarp.build;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.zip.ZipIndex;
+
+class RebuildCommandTest {
+
+    @TempDir
+    Path mTempDir;
+
+    @Test
+    void testRebuild() throws IOException {
+        final Path jarpJar = JarpBuilderTest.createJarpJar(mTempDir.resolve("jarp.jar"), "classes");
+        final Path presentation = JarpBuilderTest.createPresentation(mTempDir.resolve("deck"));
+        final Path jar1 = mTempDir.resolve("test1.jar");
+        new JarpBuilder().jarpJar(jarpJar).build(jar1.toString(), presentation.toString(), "Test", null, false);
+        final Path jar2 = Files.copy(jar1, mTempDir.resolve("test2.jar"));
+        final Path oldJar = Files.copy(jar1, mTempDir.resolve("old.jar"));
+
+        final Path newJarpJar = JarpBuilderTest.createJarpJar(mTempDir.resolve("jarp2.jar"), "new classes");
+        final RebuildCommand cmd = RebuildCommand.create();
+        cmd.handleArgs(Arrays.asList("-r", jar1.toString(), jar2.toString()));
+        cmd.rebuild(new JarpBuilder().jarpJar(newJarpJar));
+
+        // both jars are rebuilt with fixed timestamps
+        assertArrayEquals(Files.readAllBytes(jar1), Files.readAllBytes(jar2));
+        try (ZipIndex oldZip = ZipIndex.open(oldJar); ZipIndex newZip = ZipIndex.open(jar1)) {
+            JarpBuilderTest.assertPresentationCopied(oldZip, newZip);
+            assertEquals("new classes", JarpBuilderTest.readEntry(newZip, "de/r3s6/jarp/JarPresenter.class"));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package de.r3s6.jarp.extract;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.zip.ZipWriter;
+
+class ExtractorTest {
+
+    @TempDir
+    Path mTempDir;
+
+    @Test
+    void testExtract() throws IOException {
+        final Path jar = mTempDir.resolve("test.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("de/", 0);
+            zip.addDirectory("presentation/", 0);
+            zip.addDirectory("presentation/empty/", 0);
+            zip.addEntry("presentation/index.html", 0, bytes("<html></html>"), ZipEntry.DEFLATED);
+            for (int i = 0; i < 250; i++) {
+                zip.addEntry("presentation/img/" + i + ".png", 0, bytes("PNG" + i), ZipEntry.STORED);
+            }
+            zip.addEntry(JarPresenter.ALIASES_PATH, 0, bytes("/copy/index.html=/index.html\n"), ZipEntry.DEFLATED);
+            zip.addEntry(JarPresenter.RESOURCES_PATH, 0, bytes(""), ZipEntry.DEFLATED);
+        }
+
+        final Path target = mTempDir.resolve("target");
+        final ByteArrayOutputStream progress = new ByteArrayOutputStream();
+        final Extractor extractor = new Extractor(target).threads(4)
+                .progress(new PrintStream(progress, true, StandardCharsets.UTF_8));
+        assertEquals(252, extractor.extract(jar));
+
+        assertEquals("<html></html>", Files.readString(target.resolve("index.html")));
+        assertEquals("<html></html>", Files.readString(target.resolve("copy/index.html")));
+        assertEquals("PNG249", Files.readString(target.resolve("img/249.png")));
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+        assertTrue(Files.notExists(target.resolve(JarPresenter.RESOURCES_BASENAME)));
+        assertTrue(progress.toString(StandardCharsets.UTF_8).contains("Extracted 200/252 files"));
+
+        // existing files are not overwritten without force
+        assertThrows(FileAlreadyExistsException.class, () -> new Extractor(target).extract(jar));
+        assertEquals(252, new Extractor(target).force(true).extract(jar));
+    }
+
+    @Test
+    void testSync() throws IOException {
+        final Path jar = mTempDir.resolve("test.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("presentation/", 0);
+            zip.addEntry("presentation/index.html", 0, bytes("<html></html>"), ZipEntry.DEFLATED);
+            zip.addEntry("presentation/a.txt", 0, bytes("aaa"), ZipEntry.STORED);
+            zip.addEntry("presentation/b.txt", 0, bytes("bbb"), ZipEntry.STORED);
+            zip.addEntry(JarPresenter.ALIASES_PATH, 0, bytes("c.txt=a.txt\n"), ZipEntry.DEFLATED);
+        }
+
+        final Path target = mTempDir.resolve("target");
+        assertEquals(4, new Extractor(target).sync(true).extract(jar));
+        assertEquals(0, new Extractor(target).sync(true).extract(jar));
+
+        // same size, different content
+        Files.writeString(target.resolve("a.txt"), "xxx");
+        Files.writeString(target.resolve("c.txt"), "aaaa");
+        Files.createDirectories(target.resolve("other"));
+        Files.writeString(target.resolve("other/extra.txt"), "extra");
+        assertEquals(2, new Extractor(target).sync(true).extract(jar));
+        assertEquals("aaa", Files.readString(target.resolve("a.txt")));
+        assertEquals("aaa", Files.readString(target.resolve("c.txt")));
+        assertTrue(Files.exists(target.resolve("other/extra.txt")));
+
+        assertEquals(0, new Extractor(target).sync(true).delete(true).extract(jar));
+        assertTrue(Files.notExists(target.resolve("other")));
+        assertTrue(Files.exists(target.resolve("b.txt")));
+    }
+
+    @Test
+    void testFilter() throws IOException {
+        final Path jar = mTempDir.resolve("test.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("presentation/", 0);
+            zip.addDirectory("presentation/empty/", 0);
+            zip.addEntry("presentation/index.html", 0, bytes("<html></html>"), ZipEntry.DEFLATED);
+            zip.addEntry("presentation/dist/plugin.html", 0, bytes("<p></p>"), ZipEntry.DEFLATED);
+            zip.addEntry("presentation/notes/a.txt", 0, bytes("a"), ZipEntry.STORED);
+            zip.addEntry("presentation/notes/b.md", 0, bytes("b"), ZipEntry.STORED);
+            zip.addEntry("presentation/img/logo.png", 0, bytes("PNG"), ZipEntry.STORED);
+            zip.addEntry(JarPresenter.ALIASES_PATH, 0, bytes("notes/c.png=img/logo.png\n"), ZipEntry.DEFLATED);
+        }
+
+        final Path target = mTempDir.resolve("target");
+        assertEquals(4, new Extractor(target).include(List.of("*.html", "notes/**")).exclude(List.of("*.md"))
+                .extract(jar));
+        try (Stream<Path> stream = Files.walk(target)) {
+            assertEquals(List.of("dist/plugin.html", "index.html", "notes/a.txt", "notes/c.png"),
+                    stream.filter(Files::isRegularFile)
+                            .map(f -> target.relativize(f).toString().replace(File.separatorChar, '/'))
+                            .sorted().collect(Collectors.toList()));
+        }
+        // the alias is extracted although its identical file was not selected
+        assertEquals("PNG", Files.readString(target.resolve("notes/c.png")));
+
+        // only selected files are deleted
+        Files.writeString(target.resolve("notes/old.txt"), "old");
+        Files.writeString(target.resolve("old.txt"), "old");
+        assertEquals(1, new Extractor(target).include(List.of("notes/**")).sync(true).delete(true).extract(jar));
+        assertTrue(Files.exists(target.resolve("notes/b.md")));
+        assertTrue(Files.notExists(target.resolve("notes/old.txt")));
+        assertTrue(Files.exists(target.resolve("old.txt")));
+        assertTrue(Files.exists(target.resolve("index.html")));
+    }
+
+    @Test
+    void testNoPresentation() throws IOException {
+        final Path jar = mTempDir.resolve("test.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("de/", 0);
+        }
+        assertEquals(Extractor.NO_PRESENTATION, new Extractor(mTempDir.resolve("target")).extract(jar));
+        assertTrue(Files.notExists(mTempDir.resolve("target")));
+    }
+
+    @Test
+    void testInvalidName() throws IOException {
+        final Path jar = mTempDir.resolve("test.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("presentation/", 0);
+            zip.addEntry("presentation/../evil.txt", 0, bytes("evil"), ZipEntry.DEFLATED);
+        }
+        assertThrows(IOException.class, () -> new Extractor(mTempDir.resolve("target")).extract(jar));
+        assertTrue(Files.notExists(mTempDir.resolve("evil.txt")));
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+package de.r3s6.jarp.inspect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.zip.ZipIndex;
+import de.r3s6.jarp.zip.ZipWriter;
+
+class JarInspectorTest {
+
+    private static final byte[] TEXT = "Hello World, Hello World, Hello World\n".repeat(100)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path mTempDir;
+
+    private Path mJar;
+
+    private ExecutorService mPool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mJar = mTempDir.resolve("test.jar");
+        try (ZipWriter zip = new ZipWriter(mJar)) {
+            zip.addDirectory("presentation/", 0);
+            zip.addEntry(JarPresenter.METADATA_PATH, 0, "title=Test Deck\n".getBytes(StandardCharsets.UTF_8),
+                    ZipEntry.DEFLATED);
+            zip.addEntry("presentation/index.html", 0, TEXT, ZipEntry.DEFLATED);
+            zip.addEntry("presentation/image.png", 0, TEXT, ZipEntry.STORED);
+        }
+        mPool = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mPool.shutdownNow();
+    }
+
+    @Test
+    void testSummaryAndList() throws IOException {
+        try (JarInspector inspector = new JarInspector(mJar)) {
+            assertEquals("Test Deck", inspector.getTitle());
+
+            final String summary = print(inspector, false);
+            assertTrue(summary.contains("\"Test Deck\""), summary);
+            assertTrue(summary.contains("3 files, 8 KB"), summary);
+
+            final String list = print(inspector, true);
+            assertTrue(list.matches("(?s).*\\s3800\\s+\\d+\\s+9\\d%\\s+text/html\\s+presentation/index.html.*"),
+                    list);
+            assertTrue(list.matches("(?s).*\\s3800\\s+3800\\s+0%\\s+image/png\\s+presentation/image.png.*"), list);
+        }
+    }
+
+    @Test
+    void testNoPresentation() throws IOException {
+        final Path jar = mTempDir.resolve("other.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addEntry("a.txt", 0, TEXT, ZipEntry.DEFLATED);
+        }
+        try (JarInspector inspector = new JarInspector(jar)) {
+            assertNull(inspector.getTitle());
+        }
+    }
+
+    @Test
+    void testVerify() throws IOException, InterruptedException {
+        try (JarInspector inspector = new JarInspector(mJar)) {
+            assertEquals(List.of(), inspector.verify(mPool));
+        }
+
+        // corrupt the data of both entries
+        try (ZipIndex zip = ZipIndex.open(mJar);
+                FileChannel channel = FileChannel.open(mJar, StandardOpenOption.WRITE)) {
+            for (final String name : List.of("presentation/index.html", "presentation/image.png")) {
+                final ZipIndex.Entry entry = zip.getEntry(name);
+                channel.write(ByteBuffer.wrap(new byte[] { 'X', 'X', 'X', 'X' }),
+                        zip.dataOffset(entry) + entry.getCompressedSize() / 2);
+            }
+        }
+
+        try (JarInspector inspector = new JarInspector(mJar)) {
+            final List<String> errors = inspector.verify(mPool);
+            assertEquals(2, errors.size(), errors.toString());
+            assertTrue(errors.get(0).startsWith("presentation/index.html: "), errors.toString());
+            assertEquals("presentation/image.png: CRC mismatch", errors.get(1));
+        }
+    }
+
+    private static String print(final JarInspector inspector, final boolean list) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PrintStream ps = new PrintStream(out, true, StandardCharsets.UTF_8)) {
+            if (list) {
+                inspector.printEntries(ps);
+            } else {
+                inspector.printSummary(ps);
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
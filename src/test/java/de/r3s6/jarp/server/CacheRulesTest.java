@@ -0,0 +1,59 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class CacheRulesTest {
+
+    @Test
+    void testRules() {
+        final CacheRules rules = CacheRules.fromMetadata(Map.of(
+                "title", "Test",
+                "cache.**/*.html", "no-cache",
+                "cache.dist/**", "max-age=3600",
+                "cache./dist/theme/*.css", "immutable",
+                "cache.img/logo?.png", "max-age=60"));
+
+        assertEquals("no-cache", rules.get("/index.html"));
+        assertEquals("no-cache", rules.get("/dist/index.html"));
+        assertEquals("public, max-age=3600", rules.get("/dist/reveal.js"));
+        assertEquals("public, max-age=3600", rules.get("/dist/theme/fonts/font.woff"));
+        assertEquals(CacheRules.IMMUTABLE, rules.get("/dist/theme/black.css"));
+        assertEquals("public, max-age=60", rules.get("/img/logo1.png"));
+        assertNull(rules.get("/img/logo12.png"));
+        assertNull(rules.get("/img/logo/.png"));
+        assertNull(rules.get("/distx/reveal.js"));
+        // remembered result
+        assertEquals("public, max-age=3600", rules.get("/dist/reveal.js"));
+    }
+
+    @Test
+    void testManyPaths() {
+        final CacheRules rules = CacheRules.fromMetadata(Map.of("cache.**/*.html", "no-cache"));
+        for (int i = 0; i < CacheRules.MAX_RESOLVED + 10; i++) {
+            assertNull(rules.get("/missing" + i));
+        }
+        // still resolved when no more results are remembered
+        assertEquals("no-cache", rules.get("/index.html"));
+    }
+
+    @Test
+    void testNoRules() {
+        assertNull(CacheRules.fromMetadata(Map.of("title", "Test")).get("/index.html"));
+    }
+
+    @Test
+    void testValidate() {
+        CacheRules.validate("cache.*.css", "max-age=0");
+        CacheRules.validate("cache.*.css", " no-cache ");
+        assertThrows(IllegalArgumentException.class, () -> CacheRules.validate("cache.*.css", "max-age="));
+        assertThrows(IllegalArgumentException.class, () -> CacheRules.validate("cache.*.css", "max-age=-1"));
+        assertThrows(IllegalArgumentException.class, () -> CacheRules.validate("cache.*.css", "forever"));
+        assertThrows(IllegalArgumentException.class, () -> CacheRules.validate("cache.", "no-cache"));
+    }
+}
@@ -1,6 +1,8 @@
 package de.r3s6.jarp.server;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
@@ -66,6 +68,23 @@ class ContentTypesTest {
         assertArrayEquals(array("application/x-tar", "xz"), cts.guess("test.txz"));
     }
 
+    @Test
+    void testCompressible() {
+        assertTrue(cts.isCompressible("test.html"));
+        assertTrue(cts.isCompressible("test.css"));
+        assertTrue(cts.isCompressible("test.js"));
+        assertTrue(cts.isCompressible("test.json"));
+        assertTrue(cts.isCompressible("test.svg"));
+        assertTrue(cts.isCompressible("test.xml"));
+        assertTrue(cts.isCompressible("test.txt"));
+
+        assertFalse(cts.isCompressible("test.png"));
+        assertFalse(cts.isCompressible("test.woff2"));
+        assertFalse(cts.isCompressible("test.html.gz"));
+        assertFalse(cts.isCompressible("test.svgz"));
+        assertFalse(cts.isCompressible("test"));
+    }
+
     private String[] array(final String s1, final String s2) {
         return new String[] { s1, s2 };
     }
@@ -0,0 +1,80 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.Utilities;
+
+class DiskCacheTest {
+
+    private static final String JAR = "/tmp/test.jar";
+
+    @TempDir
+    Path mTempDir;
+
+    @Test
+    void testLoad() throws IOException {
+        final DiskCache cache = new DiskCache(mTempDir.resolve("cache"));
+        final byte[] data = "Hello World".repeat(200).getBytes(StandardCharsets.UTF_8);
+        final byte[] gzData = Utilities.gzip(data, Deflater.BEST_SPEED);
+
+        assertNull(cache.load(JAR, "/index.html", data));
+        cache.store(JAR, "/index.html", gzData);
+        assertArrayEquals(gzData, cache.load(JAR, "/index.html", data));
+        assertNull(cache.load(JAR, "/other.html", data));
+
+        // content changed
+        final byte[] changed = "Hello Moon".repeat(200).getBytes(StandardCharsets.UTF_8);
+        assertNull(cache.load(JAR, "/index.html", changed));
+    }
+
+    @Test
+    void testSources() throws IOException {
+        final DiskCache cache = new DiskCache(mTempDir);
+        final byte[] one = "Hello World".repeat(200).getBytes(StandardCharsets.UTF_8);
+        final byte[] two = "Hello Moon".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+        // the same resource of two jars doesn't replace each other
+        cache.store("/one.jar", "/index.html", Utilities.gzip(one, Deflater.BEST_SPEED));
+        cache.store("/two.jar", "/index.html", Utilities.gzip(two, Deflater.BEST_SPEED));
+        assertNotNull(cache.load("/one.jar", "/index.html", one));
+        assertNotNull(cache.load("/two.jar", "/index.html", two));
+    }
+
+    @Test
+    void testInvalidFile() throws IOException {
+        final DiskCache cache = new DiskCache(mTempDir);
+        final byte[] data = "Hello World".repeat(200).getBytes(StandardCharsets.UTF_8);
+        cache.store(JAR, "/index.html", Utilities.gzip(data, Deflater.BEST_SPEED));
+        try (Stream<Path> files = Files.list(mTempDir)) {
+            final Path file = files.findFirst().orElseThrow();
+            Files.write(file, new byte[] { 1, 2, 3 });
+        }
+        assertNull(cache.load(JAR, "/index.html", data));
+    }
+
+    @Test
+    void testResourceCache() throws IOException {
+        final DiskCache disk = new DiskCache(mTempDir);
+        final byte[] data = "Hello World".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+        final byte[] gzData = new ResourceCache(1000000, 1000000, disk).put("/index.html", data).getGzipData();
+        assertNotNull(gzData);
+
+        // a new cache (after a restart) takes the variant from disk
+        final byte[] stored = Utilities.gzip(data, Deflater.NO_COMPRESSION + 1);
+        disk.store("", "/index.html", stored);
+        assertArrayEquals(stored, new ResourceCache(1000000, 1000000, disk).put("/index.html", data).getGzipData());
+    }
+}
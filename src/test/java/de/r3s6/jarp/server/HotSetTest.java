@@ -0,0 +1,89 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class HotSetTest {
+
+    private HttpServerchen mServer;
+
+    @AfterEach
+    void shutdown() {
+        if (mServer != null) {
+            mServer.close();
+        }
+    }
+
+    @Test
+    void testUpdate() {
+        final HotSet hotSet = new HotSet();
+        hit(hotSet, "/a", 10);
+        hit(hotSet, "/b", 20);
+        hit(hotSet, "/c", 1);
+        assertEquals(List.of("/b", "/a"), resources(hotSet.update()));
+
+        // scores halve without new hits: b=10, a=5+6
+        hit(hotSet, "/a", 6);
+        assertEquals(List.of("/a", "/b"), resources(hotSet.update()));
+
+        // a=5, b=5+1, then a=2, b=3 -> cold
+        hit(hotSet, "/b", 1);
+        assertEquals(List.of("/b", "/a"), resources(hotSet.update()));
+        assertTrue(hotSet.update().isEmpty());
+    }
+
+    @Test
+    void testPromotion() throws IOException {
+        final MemoryResources resources = new MemoryResources()
+                .put("/index.html", bytes("index"))
+                .put("/logo.png", bytes("logo"));
+        Logger.instance().verbosity(0);
+        mServer = HttpServerchen.builder().resources(resources).build();
+        new Thread(() -> {
+            try {
+                mServer.serve();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }).start();
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/logo.png");
+        for (int i = 0; i < HotSet.MIN_SCORE; i++) {
+            assertEquals("logo", HttpTestUtils.doGet(url).getBodyAsString());
+        }
+        mServer.promoteHotResources();
+
+        // served from memory now
+        resources.put("/logo.png", bytes("new logo"));
+        assertEquals("logo", HttpTestUtils.doGet(url).getBodyAsString());
+
+        // without requests the resource gets cold and is read again
+        for (int i = 0; i < 4; i++) {
+            mServer.promoteHotResources();
+        }
+        assertEquals("new logo", HttpTestUtils.doGet(url).getBodyAsString());
+    }
+
+    private static void hit(final HotSet hotSet, final String resource, final int count) {
+        for (int i = 0; i < count; i++) {
+            hotSet.hit("", resource);
+        }
+    }
+
+    private static List<String> resources(final List<HotSet.Counter> counters) {
+        return counters.stream().map(HotSet.Counter::getResource).collect(Collectors.toList());
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,6 +1,8 @@
 package de.r3s6.jarp.server;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -25,6 +27,19 @@ class HttpRequestTest {
         assertEquals("/hello.html", req.getPath());
     }
 
+    @Test
+    void testDecodedPath() throws MalformedURLException {
+
+        final Builder builder = new HttpRequest.Builder();
+        final HttpRequest req = builder.host("localhost:8123")
+                .method("GET")
+                .path("/img/my photo.png?v=1")
+                .build();
+
+        assertEquals(new URL("http://localhost:8123/img/my%20photo.png?v=1"), req.getUrl());
+        assertEquals("/img/my photo.png", req.getPath());
+    }
+
     @Test
     void testCaseInsensitiveHeaderName() throws MalformedURLException {
 
@@ -61,4 +76,30 @@ class HttpRequestTest {
         assertEquals("/", req.getPath());
     }
 
+    @Test
+    void testAcceptsEncoding() throws MalformedURLException {
+
+        assertFalse(requestWithAcceptEncoding(null).acceptsEncoding("gzip"));
+        assertTrue(requestWithAcceptEncoding("gzip").acceptsEncoding("gzip"));
+        assertTrue(requestWithAcceptEncoding("deflate, GZIP, br").acceptsEncoding("gzip"));
+        assertTrue(requestWithAcceptEncoding("br;q=1.0, gzip;q=0.8").acceptsEncoding("gzip"));
+        assertTrue(requestWithAcceptEncoding("*").acceptsEncoding("gzip"));
+        assertFalse(requestWithAcceptEncoding("gzip;q=0").acceptsEncoding("gzip"));
+        assertFalse(requestWithAcceptEncoding("gzip; q=0.0").acceptsEncoding("gzip"));
+        assertFalse(requestWithAcceptEncoding("deflate, br").acceptsEncoding("gzip"));
+        assertFalse(requestWithAcceptEncoding("identity").acceptsEncoding("gzip"));
+        // a explicit coding takes precedence over "*"
+        assertFalse(requestWithAcceptEncoding("*, gzip;q=0").acceptsEncoding("gzip"));
+        assertTrue(requestWithAcceptEncoding("*;q=0, gzip").acceptsEncoding("gzip"));
+        assertFalse(requestWithAcceptEncoding("br, *;q=0").acceptsEncoding("gzip"));
+    }
+
+    private HttpRequest requestWithAcceptEncoding(final String value) throws MalformedURLException {
+        final Builder builder = new HttpRequest.Builder().host("localhost:8123").method("GET").path("/hello.html");
+        if (value != null) {
+            builder.addHeader("Accept-Encoding", value);
+        }
+        return builder.build();
+    }
+
 }
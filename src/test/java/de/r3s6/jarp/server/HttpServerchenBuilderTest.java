@@ -0,0 +1,143 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.r3s6.jarp.JarPresenter;
+
+class HttpServerchenBuilderTest {
+
+    private HttpServerchen mServer;
+
+    @AfterEach
+    void shutdown() {
+        if (mServer != null) {
+            mServer.close();
+        }
+    }
+
+    @Test
+    void testSinglePresentation() throws IOException {
+        final MemoryResources resources = new MemoryResources()
+                .put("/" + JarPresenter.METADATA_BASENAME,
+                        bytes("title=Memory\n" + JarPresenter.PROP_STARTPAGE + "=start.html\n"))
+                .put("start.html", bytes("start"));
+        start(HttpServerchen.builder().resources(resources).threads(2).cacheSize(0));
+
+        assertEquals("Memory", mServer.getTitle());
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("start", HttpTestUtils.doGet(url).getBodyAsString());
+        }
+        assertEquals(404, HttpTestUtils.doGet(new URL(url, "/missing.html")).getResponseCode());
+    }
+
+    @Test
+    void testDecks() throws IOException {
+        start(HttpServerchen.builder()
+                .deck("one", new MemoryResources().put("/index.html", bytes("one")))
+                .deck("two", new OverlayResources(new MemoryResources().put("/index.html", bytes("two")),
+                        new MemoryResources().put("/theme.css", bytes("theme")))));
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/");
+        final String html = HttpTestUtils.doGet(url).getBodyAsString();
+        assertTrue(html.contains("<li><a href=\"/one/\">one</a></li><li><a href=\"/two/\">two</a></li>"), html);
+        assertEquals("two", HttpTestUtils.doGet(new URL(url, "/two/")).getBodyAsString());
+        assertEquals("theme", HttpTestUtils.doGet(new URL(url, "/two/theme.css")).getBodyAsString());
+    }
+
+    @Test
+    void testNotModifiedWithoutOpening() throws IOException {
+        final MemoryResources resources = new MemoryResources().put("/logo.png", new byte[100]);
+        final AtomicInteger opened = new AtomicInteger();
+        start(HttpServerchen.builder().resources(path -> {
+            opened.incrementAndGet();
+            return resources.open(path);
+        }));
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/logo.png");
+        final String etag = HttpTestUtils.doGet(url).getHeader("ETag");
+        final int count = opened.get();
+
+        assertEquals(304, HttpTestUtils.doGet(url, Map.of("If-None-Match", etag)).getResponseCode());
+        assertEquals(count, opened.get());
+    }
+
+    @Test
+    void testMoreConnectionsThanThreads() throws IOException {
+        final MemoryResources resources = new MemoryResources().put("/index.html", bytes("index"));
+        start(HttpServerchen.builder().resources(resources).threads(2));
+
+        // idle keep-alive connections occupy all threads
+        final List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                final Socket socket = new Socket("localhost", mServer.getPort());
+                sockets.add(socket);
+                final OutputStream out = socket.getOutputStream();
+                out.write(bytes("GET /index.html HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n"));
+                out.flush();
+                final BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                assertEquals("HTTP/1.1 200 OK", in.readLine());
+            }
+
+            // a new client doesn't wait until the idle connections time out
+            final URL url = new URL("http://localhost:" + mServer.getPort() + "/index.html");
+            assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> assertEquals("index", HttpTestUtils.doGet(url).getBodyAsString()));
+        } finally {
+            for (final Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void testInvalid() {
+        final MemoryResources resources = new MemoryResources();
+        assertThrows(IllegalStateException.class, () -> HttpServerchen.builder().build());
+        assertThrows(IllegalStateException.class,
+                () -> HttpServerchen.builder().resources(resources).deck("one", resources).build());
+        assertThrows(IllegalStateException.class,
+                () -> HttpServerchen.builder().deck("one", resources).devMode(true).build());
+        assertThrows(IllegalArgumentException.class, () -> HttpServerchen.builder().deck("a/b", resources));
+        assertThrows(IllegalArgumentException.class,
+                () -> HttpServerchen.builder().deck("one", resources).deck("one", resources));
+        assertThrows(IllegalArgumentException.class, () -> HttpServerchen.builder().threads(-1));
+    }
+
+    private void start(final HttpServerchen.Builder builder) throws IOException {
+        Logger.instance().verbosity(0);
+        mServer = builder.build();
+        new Thread(() -> {
+            try {
+                mServer.serve();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }).start();
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,166 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.Utilities;
+import de.r3s6.jarp.server.HttpTestUtils.Response;
+
+class HttpServerchenCompressionTest {
+
+    private static final String DATA_DIR = "test-data";
+
+    private static final Map<String, String> ACCEPT_GZIP = Collections.singletonMap("Accept-Encoding", "gzip");
+
+    private static final byte[] SCRIPT = "function hello() { return 'Hello World'; }\n".repeat(100)
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static HttpServerchen sHttpd;
+    private static URL sBaseUrl;
+
+    @BeforeAll
+    static void startServer(@TempDir final Path tempDirectory) throws IOException {
+        Logger.instance().verbosity(0);
+
+        final ClassLoader testDataLoader = new URLClassLoader(new URL[] { tempDirectory.toUri().toURL() });
+
+        final Path dataDir = Files.createDirectories(tempDirectory.resolve(DATA_DIR));
+        Files.write(dataDir.resolve("precompressed.js"), SCRIPT);
+        Files.write(dataDir.resolve("precompressed.js.gz"), Utilities.gzip(SCRIPT, Deflater.BEST_COMPRESSION));
+        Files.write(dataDir.resolve("plain.js"), SCRIPT);
+        Files.write(dataDir.resolve("small.css"), "body { color: black; }".getBytes(StandardCharsets.UTF_8));
+        Files.write(dataDir.resolve("image.png"), SCRIPT);
+        Files.write(dataDir.resolve("image.png.gz"), Utilities.gzip(SCRIPT, Deflater.BEST_COMPRESSION));
+
+        try {
+            sHttpd = new HttpServerchen(0, DATA_DIR, testDataLoader);
+            sBaseUrl = new URL("http://localhost:" + sHttpd.getPort());
+
+            new Thread(() -> {
+                try {
+                    sHttpd.serve();
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                }
+            }).start();
+            // Sleep for a moment, so the server thread is started.
+            Thread.sleep(100);
+        } catch (final IOException | InterruptedException e) {
+            sHttpd.shutdown();
+            fail("Starting http Server failed", e);
+        }
+    }
+
+    @AfterAll
+    static void shutdownServer() {
+        sHttpd.shutdown();
+    }
+
+    @Test
+    void testPrecompressedVariant() throws IOException {
+        final URL url = new URL(sBaseUrl, "precompressed.js");
+
+        final Response gzResponse = HttpTestUtils.doGet(url, ACCEPT_GZIP);
+        assertEquals(200, gzResponse.getResponseCode());
+        assertEquals("application/javascript", gzResponse.getHeader("Content-Type"));
+        assertEquals("gzip", gzResponse.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzResponse.getHeader("Vary"));
+        assertArrayEquals(SCRIPT, gunzip(gzResponse.getBody()));
+
+        final Response plainResponse = HttpTestUtils.doGet(url);
+        assertEquals(200, plainResponse.getResponseCode());
+        assertNull(plainResponse.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", plainResponse.getHeader("Vary"));
+        assertArrayEquals(SCRIPT, plainResponse.getBody());
+
+        assertNotEquals(gzResponse.getHeader("ETag"), plainResponse.getHeader("ETag"));
+    }
+
+    @Test
+    void testPrecompressedVariantRejected() throws IOException {
+        final Response response = HttpTestUtils.doGet(new URL(sBaseUrl, "precompressed.js"),
+                Collections.singletonMap("Accept-Encoding", "gzip;q=0, br"));
+        assertEquals(200, response.getResponseCode());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertArrayEquals(SCRIPT, response.getBody());
+    }
+
+    @Test
+    void testNotCompressibleType() throws IOException {
+        final Response response = HttpTestUtils.doGet(new URL(sBaseUrl, "image.png"), ACCEPT_GZIP);
+        assertEquals(200, response.getResponseCode());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("Vary"));
+        assertArrayEquals(SCRIPT, response.getBody());
+    }
+
+    @Test
+    void testOnTheFlyCompression() throws IOException {
+        final URL url = new URL(sBaseUrl, "plain.js");
+
+        final Response gzResponse = HttpTestUtils.doGet(url, ACCEPT_GZIP);
+        assertEquals(200, gzResponse.getResponseCode());
+        assertEquals("application/javascript", gzResponse.getHeader("Content-Type"));
+        assertEquals("gzip", gzResponse.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzResponse.getHeader("Vary"));
+        assertArrayEquals(SCRIPT, gunzip(gzResponse.getBody()));
+
+        // second request is served from cache
+        final Response cachedResponse = HttpTestUtils.doGet(url, ACCEPT_GZIP);
+        assertEquals(200, cachedResponse.getResponseCode());
+        assertEquals(gzResponse.getHeader("ETag"), cachedResponse.getHeader("ETag"));
+        assertArrayEquals(gzResponse.getBody(), cachedResponse.getBody());
+
+        final Response notModified = HttpTestUtils.doGet(url,
+                Map.of("Accept-Encoding", "gzip", "If-None-Match", gzResponse.getHeader("ETag")));
+        assertEquals(304, notModified.getResponseCode());
+
+        final Response plainResponse = HttpTestUtils.doGet(url);
+        assertEquals(200, plainResponse.getResponseCode());
+        assertNull(plainResponse.getHeader("Content-Encoding"));
+        assertArrayEquals(SCRIPT, plainResponse.getBody());
+        assertNotEquals(gzResponse.getHeader("ETag"), plainResponse.getHeader("ETag"));
+    }
+
+    @Test
+    void testSmallFileNotCompressed() throws IOException {
+        final Response response = HttpTestUtils.doGet(new URL(sBaseUrl, "small.css"), ACCEPT_GZIP);
+        assertEquals(200, response.getResponseCode());
+        assertEquals("text/css", response.getHeader("Content-Type"));
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("body { color: black; }", response.getBodyAsString());
+    }
+
+    @Test
+    void testCompressibleNotFound() throws IOException {
+        final Response response = HttpTestUtils.doGet(new URL(sBaseUrl, "missing.js"), ACCEPT_GZIP);
+        assertEquals(404, response.getResponseCode());
+    }
+
+    static byte[] gunzip(final byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}
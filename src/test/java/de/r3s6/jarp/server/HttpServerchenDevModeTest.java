@@ -0,0 +1,179 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.server.HttpTestUtils.Response;
+
+class HttpServerchenDevModeTest {
+
+    private static final String HTML = "<html><body><p>Version %d</p></body></html>";
+
+    @TempDir
+    Path mTempDir;
+
+    private HttpServerchen mServer;
+
+    @AfterEach
+    void shutdown() {
+        if (mServer != null) {
+            mServer.shutdown();
+        }
+    }
+
+    @Test
+    void testChangedFile() throws IOException, InterruptedException {
+        Files.writeString(mTempDir.resolve("index.html"), String.format(HTML, 1));
+        Files.createDirectories(mTempDir.resolve("css"));
+        Files.writeString(mTempDir.resolve("css/theme.css"), "body { color: black; }");
+        startServer(new DirectoryResources(mTempDir), false);
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/");
+        final Response response = HttpTestUtils.doGet(url);
+        assertEquals(200, response.getResponseCode());
+        assertEquals(String.format(HTML, 1), response.getBodyAsString());
+        assertEquals("no-cache", response.getHeader("Cache-Control"));
+        final String etag = response.getHeader("ETag");
+
+        final URL cssUrl = new URL(url, "css/theme.css");
+        assertEquals("body { color: black; }", HttpTestUtils.doGet(cssUrl).getBodyAsString());
+
+        Files.writeString(mTempDir.resolve("index.html"), String.format(HTML, 2));
+        Files.writeString(mTempDir.resolve("css/theme.css"), "body { color: white; }");
+
+        final Response changed = waitForChange(url, etag);
+        assertEquals(String.format(HTML, 2), changed.getBodyAsString());
+        assertEquals("body { color: white; }", HttpTestUtils.doGet(cssUrl).getBodyAsString());
+
+        // new files in new directories are found
+        Files.createDirectories(mTempDir.resolve("img"));
+        Files.writeString(mTempDir.resolve("img/new.svg"), "<svg/>");
+        assertEquals(200, HttpTestUtils.doGet(new URL(url, "img/new.svg")).getResponseCode());
+    }
+
+    @Test
+    void testOverlay() throws IOException {
+        Files.writeString(mTempDir.resolve("index.html"), String.format(HTML, 1));
+        Files.writeString(mTempDir.resolve("mapped"), "overlay");
+        startServer(new OverlayResources(new DirectoryResources(mTempDir),
+                new ClassLoaderResources(HttpServerchenDevModeTest.class.getClassLoader(), "test-data")), false);
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/");
+        assertEquals(String.format(HTML, 1), HttpTestUtils.doGet(url).getBodyAsString());
+        // from the directory, although a alias exists in the jar
+        assertEquals("overlay", HttpTestUtils.doGet(new URL(url, "mapped")).getBodyAsString());
+        // from the "jar"
+        assertEquals(200, HttpTestUtils.doGet(new URL(url, "one-pixel.png")).getResponseCode());
+        assertEquals(200, HttpTestUtils.doGet(new URL(url, "deduplicated/copy.txt")).getResponseCode());
+        assertEquals(404, HttpTestUtils.doGet(new URL(url, "missing.txt")).getResponseCode());
+    }
+
+    @Test
+    void testLiveReload() throws IOException, InterruptedException {
+        Files.writeString(mTempDir.resolve("index.html"), String.format(HTML, 1));
+        startServer(new DirectoryResources(mTempDir), true);
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/");
+        final String html = HttpTestUtils.doGet(url).getBodyAsString();
+        assertTrue(html.matches("<html><body><p>Version 1</p><script>.*" + LiveReload.PATH + ".*</script></body></html>"),
+                html);
+
+        final HttpURLConnection con = (HttpURLConnection) new URL(url, LiveReload.PATH).openConnection();
+        try {
+            assertEquals(200, con.getResponseCode());
+            assertEquals(LiveReload.CONTENT_TYPE, con.getHeaderField("Content-Type"));
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
+                assertEquals(": ping", reader.readLine());
+                assertEquals("", reader.readLine());
+
+                Files.writeString(mTempDir.resolve("index.html"), String.format(HTML, 2));
+                assertEquals("data: reload", reader.readLine());
+            }
+        } finally {
+            con.disconnect();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void testLiveReloadWithOneThread() throws IOException {
+        Files.writeString(mTempDir.resolve("index.html"), String.format(HTML, 1));
+        mServer = HttpServerchen.builder().resources(new DirectoryResources(mTempDir)).devMode(true).threads(1)
+                .build();
+        mServer.watch(mTempDir, true);
+        startServer();
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/");
+        final HttpURLConnection con = (HttpURLConnection) new URL(url, LiveReload.PATH).openConnection();
+        try {
+            assertEquals(200, con.getResponseCode());
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
+                assertEquals(": ping", reader.readLine());
+
+                // the open live reload connection doesn't block the only thread
+                assertEquals(200, HttpTestUtils.doGet(url).getResponseCode());
+            }
+        } finally {
+            con.disconnect();
+        }
+    }
+
+    @Test
+    void testNoLiveReload() throws IOException {
+        Files.writeString(mTempDir.resolve("index.html"), String.format(HTML, 1));
+        startServer(new DirectoryResources(mTempDir), false);
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + LiveReload.PATH);
+        final Response response = HttpTestUtils.doGet(url);
+        assertEquals(404, response.getResponseCode());
+        assertNull(response.getHeader("ETag"));
+    }
+
+    private void startServer(final ResourceProvider resources, final boolean liveReload) throws IOException {
+        mServer = new HttpServerchen(0, resources, true);
+        mServer.watch(mTempDir, liveReload);
+        startServer();
+    }
+
+    private void startServer() {
+        Logger.instance().verbosity(0);
+        new Thread(() -> {
+            try {
+                mServer.serve();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }).start();
+    }
+
+    private static Response waitForChange(final URL url, final String etag) throws IOException, InterruptedException {
+        // watch services might poll for changes (e.g. on macOS)
+        for (int i = 0; i < 200; i++) {
+            final Response response = HttpTestUtils.doGet(url);
+            if (!etag.equals(response.getHeader("ETag"))) {
+                assertNotEquals(String.format(HTML, 1), response.getBodyAsString());
+                return response;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Change not detected");
+    }
+}
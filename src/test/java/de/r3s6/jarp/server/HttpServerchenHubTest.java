@@ -0,0 +1,189 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.Utilities;
+import de.r3s6.jarp.server.HttpTestUtils.Response;
+import de.r3s6.jarp.zip.ZipWriter;
+
+class HttpServerchenHubTest {
+
+    @TempDir
+    Path mTempDir;
+
+    private HttpServerchen mServer;
+
+    @AfterEach
+    void shutdown() {
+        if (mServer != null) {
+            mServer.close();
+        }
+    }
+
+    @Test
+    void testHub() throws IOException {
+        final Map<String, ResourceProvider> decks = new LinkedHashMap<>();
+        decks.put("keynote", new JarResources(createJar("keynote", "Keynote <2022>", "start.html")));
+        decks.put("my-talk", new JarResources(createJar("my-talk", null, null)));
+        startServer(decks);
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/");
+        final Response index = HttpTestUtils.doGet(url);
+        assertEquals(200, index.getResponseCode());
+        assertEquals("no-cache", index.getHeader("Cache-Control"));
+        final String html = index.getBodyAsString();
+        assertTrue(html.contains("<li><a href=\"/keynote/\">Keynote &#60;2022&#62;</a></li>"), html);
+        assertTrue(html.contains("<li><a href=\"/my-talk/\">my-talk</a></li>"), html);
+
+        assertEquals("keynote start.html", HttpTestUtils.doGet(new URL(url, "/keynote/")).getBodyAsString());
+        assertEquals("keynote index.html", HttpTestUtils.doGet(new URL(url, "/keynote/index.html")).getBodyAsString());
+        assertEquals("my-talk index.html", HttpTestUtils.doGet(new URL(url, "/my-talk/")).getBodyAsString());
+        // deduplicated file
+        assertEquals("keynote index.html", HttpTestUtils.doGet(new URL(url, "/keynote/copy.html")).getBodyAsString());
+
+        assertEquals(404, HttpTestUtils.doGet(new URL(url, "/other/index.html")).getResponseCode());
+        assertEquals(404, HttpTestUtils.doGet(new URL(url, "/keynote/missing.html")).getResponseCode());
+        assertEquals(404, HttpTestUtils.doGet(new URL(url, "/keynote/" + JarPresenter.METADATA_BASENAME))
+                .getResponseCode());
+    }
+
+    @Test
+    void testRedirect() throws IOException {
+        startServer(Map.of("keynote", new JarResources(createJar("keynote", null, null))));
+
+        final HttpURLConnection con = (HttpURLConnection) new URL(
+                "http://localhost:" + mServer.getPort() + "/keynote").openConnection();
+        con.setInstanceFollowRedirects(false);
+        try {
+            final Response response = HttpTestUtils.doGet(con, Collections.emptyMap());
+            assertEquals(302, response.getResponseCode());
+            assertEquals("/keynote/", response.getHeader("Location"));
+        } finally {
+            con.disconnect();
+        }
+    }
+
+    @Test
+    void testMultiDeckJar() throws IOException {
+        final Path jar = mTempDir.resolve("course.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("presentation/", 0);
+            for (final String deck : List.of("day1", "day2")) {
+                zip.addDirectory("presentation/" + deck + "/", 0);
+                zip.addEntry("presentation/" + deck + "/" + JarPresenter.METADATA_BASENAME, 0,
+                        ("title=" + deck + "\n").getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+                zip.addEntry("presentation/" + deck + "/index.html", 0,
+                        (deck + " index.html").getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+            }
+            // the theme is only stored in the first deck
+            zip.addEntry("presentation/day1/theme.css", 0, "shared".getBytes(StandardCharsets.UTF_8),
+                    ZipEntry.DEFLATED);
+            zip.addEntry(JarPresenter.ALIASES_PATH, 0,
+                    "/day2/theme.css=/day1/theme.css\n".getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+            zip.addEntry(JarPresenter.METADATA_PATH, 0,
+                    (JarPresenter.PROP_DECKS + "=day1, day2\n").getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+        }
+
+        final JarResources root = new JarResources(jar);
+        assertEquals(List.of("day1", "day2"), Deck.names(root));
+        final Map<String, ResourceProvider> decks = new LinkedHashMap<>();
+        for (final String deck : Deck.names(root)) {
+            decks.put(deck, new PrefixResources(root, '/' + deck));
+        }
+        startServer(decks);
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/");
+        final String html = HttpTestUtils.doGet(url).getBodyAsString();
+        assertTrue(html.contains("<li><a href=\"/day1/\">day1</a></li><li><a href=\"/day2/\">day2</a></li>"), html);
+        assertEquals("day2 index.html", HttpTestUtils.doGet(new URL(url, "/day2/")).getBodyAsString());
+        assertEquals("shared", HttpTestUtils.doGet(new URL(url, "/day2/theme.css")).getBodyAsString());
+    }
+
+    @Test
+    void testDeduplicatedGzipVariant() throws IOException {
+        final byte[] css = "body { color: black; }\n".repeat(100).getBytes(StandardCharsets.UTF_8);
+        final byte[] gzCss = Utilities.gzip(css, Deflater.NO_COMPRESSION);
+        final Path jar = mTempDir.resolve("dedup.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("presentation/", 0);
+            zip.addEntry(JarPresenter.METADATA_PATH, 0, new byte[0], ZipEntry.DEFLATED);
+            zip.addEntry("presentation/a.css", 0, css, ZipEntry.DEFLATED);
+            zip.addEntry("presentation/a.css.gz", 0, gzCss, ZipEntry.STORED);
+            zip.addEntry(JarPresenter.ALIASES_PATH, 0, "/b.css=/a.css\n".getBytes(StandardCharsets.UTF_8),
+                    ZipEntry.DEFLATED);
+        }
+        startServer(Map.of("dedup", new JarResources(jar)));
+
+        final URL url = new URL("http://localhost:" + mServer.getPort() + "/dedup/b.css");
+        final Response response = HttpTestUtils.doGet(url, Map.of("Accept-Encoding", "gzip"));
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        // the stored variant of the stored file, not compressed on the fly
+        assertArrayEquals(gzCss, response.getBody());
+    }
+
+    @Test
+    void testNoPresentation() throws IOException {
+        final Path jar = mTempDir.resolve("other.jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addEntry("a.txt", 0, "a".getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+        }
+        final IOException e = assertThrows(IOException.class, () -> new JarResources(jar));
+        assertEquals("Not a presentation jar: " + jar, e.getMessage());
+    }
+
+    private void startServer(final Map<String, ResourceProvider> decks) throws IOException {
+        Logger.instance().verbosity(0);
+        mServer = new HttpServerchen(0, decks);
+        new Thread(() -> {
+            try {
+                mServer.serve();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }).start();
+    }
+
+    private Path createJar(final String name, final String title, final String startPage) throws IOException {
+        final StringBuilder metadata = new StringBuilder();
+        if (title != null) {
+            metadata.append(JarPresenter.PROP_TITLE).append('=').append(title).append('\n');
+        }
+        if (startPage != null) {
+            metadata.append(JarPresenter.PROP_STARTPAGE).append('=').append(startPage).append('\n');
+        }
+
+        final Path jar = mTempDir.resolve(name + ".jar");
+        try (ZipWriter zip = new ZipWriter(jar)) {
+            zip.addDirectory("presentation/", 0);
+            zip.addEntry(JarPresenter.METADATA_PATH, 0, metadata.toString().getBytes(StandardCharsets.UTF_8),
+                    ZipEntry.DEFLATED);
+            zip.addEntry("presentation/" + JarPresenter.ALIASES_BASENAME, 0,
+                    "/copy.html=/index.html\n".getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+            zip.addEntry("presentation/index.html", 0, (name + " index.html").getBytes(StandardCharsets.UTF_8),
+                    ZipEntry.DEFLATED);
+            zip.addEntry("presentation/start.html", 0, (name + " start.html").getBytes(StandardCharsets.UTF_8),
+                    ZipEntry.STORED);
+        }
+        return jar;
+    }
+}
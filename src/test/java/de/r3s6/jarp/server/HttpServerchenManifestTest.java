@@ -0,0 +1,131 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.r3s6.jarp.JarPresenter;
+import de.r3s6.jarp.server.HttpTestUtils.Response;
+
+class HttpServerchenManifestTest {
+
+    private static final String DATA_DIR = "test-data";
+
+    private static final Map<String, String> ACCEPT_GZIP = Collections.singletonMap("Accept-Encoding", "gzip");
+
+    private static final byte[] SCRIPT = "function hello() { return 'Hello World'; }\n".repeat(100)
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static HttpServerchen sHttpd;
+    private static URL sBaseUrl;
+
+    @BeforeAll
+    static void startServer(@TempDir final Path tempDirectory) throws IOException {
+        Logger.instance().verbosity(0);
+
+        final ClassLoader testDataLoader = new URLClassLoader(new URL[] { tempDirectory.toUri().toURL() });
+
+        final Path dataDir = Files.createDirectories(tempDirectory.resolve(DATA_DIR));
+        Files.write(dataDir.resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+        Files.write(dataDir.resolve("listed.js"), SCRIPT);
+        Files.write(dataDir.resolve("no-variant.js"), SCRIPT);
+        // exists, but the manifest says that it is not available
+        Files.write(dataDir.resolve("no-variant.js.gz"), "invalid".getBytes(StandardCharsets.UTF_8));
+        Files.write(dataDir.resolve("unlisted.js"), SCRIPT);
+        Files.write(dataDir.resolve("listed.12345678.js"), SCRIPT);
+
+        final ResourceManifest manifest = new ResourceManifest();
+        manifest.add("/index.html", 13, "11111111", false, false);
+        manifest.add("/listed.js", SCRIPT.length, "22222222", false, false);
+        manifest.add("/no-variant.js", SCRIPT.length, "33333333", false, false);
+        manifest.add("/listed.12345678.js", SCRIPT.length, "22222222", false, true);
+        try (OutputStream out = Files.newOutputStream(dataDir.resolve(JarPresenter.RESOURCES_BASENAME))) {
+            manifest.store(out);
+        }
+
+        try {
+            sHttpd = new HttpServerchen(0, DATA_DIR, testDataLoader);
+            sBaseUrl = new URL("http://localhost:" + sHttpd.getPort());
+
+            new Thread(() -> {
+                try {
+                    sHttpd.serve();
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                }
+            }).start();
+            // Sleep for a moment, so the server thread is started.
+            Thread.sleep(100);
+        } catch (final IOException | InterruptedException e) {
+            sHttpd.shutdown();
+            fail("Starting http Server failed", e);
+        }
+    }
+
+    @AfterAll
+    static void shutdownServer() {
+        sHttpd.shutdown();
+    }
+
+    @Test
+    void testListedResource() throws IOException {
+        final Response response = HttpTestUtils.doGet(new URL(sBaseUrl, "listed.js"));
+        assertEquals(200, response.getResponseCode());
+        assertEquals("application/javascript", response.getHeader("Content-Type"));
+        assertEquals("22222222", response.getHeader("ETag"));
+        assertArrayEquals(SCRIPT, response.getBody());
+
+        final Response gzResponse = HttpTestUtils.doGet(new URL(sBaseUrl, "listed.js"), ACCEPT_GZIP);
+        assertEquals(200, gzResponse.getResponseCode());
+        assertEquals("gzip", gzResponse.getHeader("Content-Encoding"));
+        assertNotEquals("22222222", gzResponse.getHeader("ETag"));
+        assertNull(response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void testImmutableResource() throws IOException {
+        final Response response = HttpTestUtils.doGet(new URL(sBaseUrl, "listed.12345678.js"));
+        assertEquals(200, response.getResponseCode());
+        assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void testUnlistedResource() throws IOException {
+        assertEquals(404, HttpTestUtils.doGet(new URL(sBaseUrl, "unlisted.js")).getResponseCode());
+        assertEquals(404, HttpTestUtils.doGet(new URL(sBaseUrl, JarPresenter.RESOURCES_BASENAME))
+                .getResponseCode());
+    }
+
+    @Test
+    void testNoVariantProbe() throws IOException {
+        final Response response = HttpTestUtils.doGet(new URL(sBaseUrl, "no-variant.js"), ACCEPT_GZIP);
+        assertEquals(200, response.getResponseCode());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        // compressed on the fly, not the invalid file
+        assertArrayEquals(SCRIPT, HttpServerchenCompressionTest.gunzip(response.getBody()));
+    }
+
+    @Test
+    void testStartPage() throws IOException {
+        final Response response = HttpTestUtils.doGet(sBaseUrl);
+        assertEquals(200, response.getResponseCode());
+        assertEquals("11111111", response.getHeader("ETag"));
+    }
+}
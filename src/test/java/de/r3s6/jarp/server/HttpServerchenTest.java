@@ -161,6 +161,16 @@ class HttpServerchenTest {
                 "Does not contain request URL: " + response.getBodyAsString());
     }
 
+    @Test
+    void testAlias() throws IOException, InterruptedException {
+        final Response response = HttpTestUtils.doGet(new URL(sBaseUrl, "deduplicated/copy.txt"));
+        assertEquals(200, response.getResponseCode());
+        assertEquals("text/plain", response.getHeader("Content-Type"));
+        assertEquals("Map-Target", response.getBodyAsString());
+
+        assertEquals(404, HttpTestUtils.doGet(new URL(sBaseUrl, "jarp-aliases.properties")).getResponseCode());
+    }
+
     @Test
     void testHeadRequest() throws IOException, InterruptedException {
         final URL url = new URL(sBaseUrl, "map-target.txt");
@@ -0,0 +1,55 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class ResourceCacheTest {
+
+    @Test
+    void testMaxSize() {
+        final ResourceCache cache = new ResourceCache(250);
+        cache.put("/a", new byte[100]);
+        cache.put("/b", new byte[100]);
+        cache.get("/a");
+        cache.put("/c", new byte[100]);
+
+        // least recently used is removed
+        assertNotNull(cache.get("/a"));
+        assertNull(cache.get("/b"));
+        assertNotNull(cache.get("/c"));
+    }
+
+    @Test
+    void testReplaceAndRemove() {
+        final ResourceCache cache = new ResourceCache(250);
+        cache.put("/a", new byte[100]);
+        cache.put("/a", new byte[100]);
+        cache.put("/b", new byte[100]);
+
+        // the replaced entry doesn't count anymore
+        assertNotNull(cache.get("/a"));
+        assertNotNull(cache.get("/b"));
+
+        cache.remove("/a");
+        cache.put("/c", new byte[100]);
+        assertNotNull(cache.get("/b"));
+        assertNotNull(cache.get("/c"));
+    }
+
+    @Test
+    void testGroupQuota() {
+        final ResourceCache cache = new ResourceCache(1000, 250);
+        cache.put("/one", "/one/a", new byte[100]);
+        cache.put("/two", "/two/a", new byte[100]);
+        cache.put("/one", "/one/b", new byte[100]);
+        cache.put("/one", "/one/c", new byte[100]);
+
+        // the cache has space left, but group "/one" exceeds its quota
+        assertNull(cache.get("/one/a"));
+        assertNotNull(cache.get("/one/b"));
+        assertNotNull(cache.get("/one/c"));
+        assertNotNull(cache.get("/two/a"));
+    }
+}
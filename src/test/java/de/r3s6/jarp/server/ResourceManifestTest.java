@@ -0,0 +1,72 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class ResourceManifestTest {
+
+    @Test
+    void testStoreAndLoad() throws IOException {
+        final ResourceManifest manifest = new ResourceManifest();
+        manifest.add("/index.html", 1234, "ABCD", true, false);
+        manifest.add("/dist/data.txt.gz", 42, "EF01", false, false);
+        manifest.add("/image.12345678.png", 4711, "2345", false, true);
+        manifest.add("/style.12345678.css", 4711, "6789", true, true);
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        manifest.store(bos);
+        final ResourceManifest loaded = ResourceManifest.load(new ByteArrayInputStream(bos.toByteArray()));
+
+        final ResourceManifest.Entry html = loaded.get("/index.html");
+        assertEquals(1234, html.getSize());
+        assertEquals("text/html", html.getContentType());
+        assertNull(html.getContentEncoding());
+        assertEquals("ABCD", html.getEtag());
+        assertTrue(html.hasGzipVariant());
+        assertTrue(html.isCompressible());
+        assertFalse(html.isImmutable());
+
+        final ResourceManifest.Entry gz = loaded.get("/dist/data.txt.gz");
+        assertEquals("text/plain", gz.getContentType());
+        assertEquals("gzip", gz.getContentEncoding());
+        assertFalse(gz.hasGzipVariant());
+        assertFalse(gz.isCompressible());
+
+        assertFalse(loaded.get("/image.12345678.png").isCompressible());
+        assertTrue(loaded.get("/image.12345678.png").isImmutable());
+        assertFalse(loaded.get("/image.12345678.png").hasGzipVariant());
+        assertTrue(loaded.get("/style.12345678.css").isImmutable());
+        assertTrue(loaded.get("/style.12345678.css").hasGzipVariant());
+        assertNull(loaded.get("/unknown.html"));
+    }
+
+    @Test
+    void testStoreIsStable() throws IOException {
+        final ResourceManifest manifest = new ResourceManifest();
+        manifest.add("/b.html", 2, "B", false, false);
+        manifest.add("/a.css", 1, "A", true, true);
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        manifest.store(bos);
+        assertEquals("/a.css=1,text/css,,A,gz immutable\n/b.html=2,text/html,,B,\n",
+                new String(bos.toByteArray(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void testLoadInvalid() {
+        assertThrows(IOException.class, () -> ResourceManifest
+                .load(new ByteArrayInputStream("/index.html=12,text/html".getBytes(StandardCharsets.ISO_8859_1))));
+        assertThrows(IOException.class, () -> ResourceManifest
+                .load(new ByteArrayInputStream("/a.html=x,text/html,,AB,".getBytes(StandardCharsets.ISO_8859_1))));
+    }
+}
@@ -0,0 +1,89 @@
+package de.r3s6.jarp.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.r3s6.jarp.JarPresenter;
+
+class WarmUpTest {
+
+    private HttpServerchen mServer;
+
+    @AfterEach
+    void shutdown() {
+        if (mServer != null) {
+            mServer.close();
+        }
+    }
+
+    @Test
+    void testStartPage() throws Exception {
+        start(createResources());
+
+        // index.html, css/theme.css, img/bg.png, img/my photo.png -- but not unused.html or the external link
+        assertEquals(4, warmUp(false));
+    }
+
+    @Test
+    void testAll() throws Exception {
+        final MemoryResources resources = createResources();
+        final ResourceManifest manifest = new ResourceManifest();
+        for (final String path : new String[] { "/img/my photo.png", "/missing.html", "/index.html",
+                "/css/theme.css", "/img/bg.png", "/unused.html" }) {
+            manifest.add(path, 0, "etag", false, false);
+        }
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        manifest.store(bos);
+        resources.put("/" + JarPresenter.RESOURCES_BASENAME, bos.toByteArray());
+        start(resources);
+
+        // a failing request doesn't end the warm-up
+        assertEquals(5, warmUp(true));
+    }
+
+    @Test
+    void testAllWithoutManifest() throws Exception {
+        start(createResources());
+
+        // falls back to following the references
+        assertEquals(4, warmUp(true));
+    }
+
+    private int warmUp(final boolean all) throws InterruptedException, ExecutionException {
+        return mServer.warmUp(all).get();
+    }
+
+    private void start(final ResourceProvider resources) throws IOException {
+        Logger.instance().verbosity(0);
+        mServer = HttpServerchen.builder().resources(resources).build();
+        new Thread(() -> {
+            try {
+                mServer.serve();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }).start();
+    }
+
+    private static MemoryResources createResources() {
+        return new MemoryResources()
+                .put("/index.html", bytes("<html><head><link rel=\"stylesheet\" href=\"css/theme.css\"></head>"
+                        + "<body><a href=\"https://example.com/\">x</a><a href='#top'>top</a>"
+                        + "<img src=\"img/my%20photo.png\"></body></html>"))
+                .put("/css/theme.css", bytes("body { background: url(../img/bg.png); }".repeat(100)))
+                .put("/img/bg.png", new byte[10])
+                .put("/img/my photo.png", new byte[10])
+                .put("/unused.html", bytes("unused"));
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,162 @@
+package de.r3s6.jarp.zip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZipWriterTest {
+
+    private static final byte[] TEXT = "Hello World, Hello World, Hello World\n".repeat(50)
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final long TIME = 1_650_000_000_000L;
+
+    @TempDir
+    Path mTempDir;
+
+    @Test
+    void testWriteAndRead() throws IOException {
+        final Path zip = mTempDir.resolve("test.zip");
+        try (ZipWriter writer = new ZipWriter(zip)) {
+            writer.addDirectory("dir/", TIME);
+            writer.addEntry("dir/stored.txt", TIME, TEXT, ZipEntry.STORED);
+            writer.addEntry("dir/deflated.txt", TIME, TEXT, ZipEntry.DEFLATED);
+            writer.addEntry("dir/streamed.txt", TIME, new ByteArrayInputStream(TEXT), ZipEntry.DEFLATED);
+        }
+
+        try (ZipFile zf = new ZipFile(zip.toFile())) {
+            assertTrue(zf.getEntry("dir/").isDirectory());
+            assertEquals(ZipEntry.STORED, zf.getEntry("dir/stored.txt").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zf.getEntry("dir/deflated.txt").getMethod());
+            for (final String name : new String[] { "dir/stored.txt", "dir/deflated.txt", "dir/streamed.txt" }) {
+                final ZipEntry entry = zf.getEntry(name);
+                assertEquals(TEXT.length, entry.getSize());
+                try (InputStream in = zf.getInputStream(entry)) {
+                    assertArrayEquals(TEXT, in.readAllBytes(), name);
+                }
+            }
+        }
+
+        try (ZipIndex index = ZipIndex.open(zip)) {
+            assertEquals(4, index.entries().size());
+            final ZipIndex.Entry entry = index.getEntry("dir/streamed.txt");
+            assertNotNull(entry);
+            assertTrue(entry.isSameTime(TIME));
+            assertTrue(entry.getCompressedSize() < entry.getSize());
+            try (InputStream in = index.getInputStream(entry)) {
+                assertArrayEquals(TEXT, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testCopyEntry() throws IOException {
+        final Path source = mTempDir.resolve("source.zip");
+        try (ZipWriter writer = new ZipWriter(source)) {
+            writer.addEntry("a.txt", TIME, TEXT, ZipEntry.DEFLATED);
+            writer.addEntry("b.txt", TIME, TEXT, ZipEntry.STORED);
+        }
+
+        final Path target = mTempDir.resolve("target.zip");
+        try (ZipIndex index = ZipIndex.open(source); ZipWriter writer = new ZipWriter(target)) {
+            writer.copyEntry(index, index.getEntry("a.txt"));
+            writer.copyEntry(index, index.getEntry("b.txt"), "renamed.txt");
+        }
+
+        try (ZipFile zf = new ZipFile(target.toFile())) {
+            assertEquals(2, zf.size());
+            try (InputStream in = zf.getInputStream(zf.getEntry("a.txt"))) {
+                assertArrayEquals(TEXT, in.readAllBytes());
+            }
+            try (InputStream in = zf.getInputStream(zf.getEntry("renamed.txt"))) {
+                assertArrayEquals(TEXT, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testTransferTo() throws IOException {
+        // larger than the buffers used for inflating
+        final byte[] large = new byte[1024 * 1024];
+        new Random(42).nextBytes(large);
+        System.arraycopy(TEXT, 0, large, 0, TEXT.length);
+
+        final Path zip = mTempDir.resolve("test.zip");
+        try (ZipWriter writer = new ZipWriter(zip)) {
+            writer.addEntry("stored.bin", TIME, large, ZipEntry.STORED);
+            writer.addEntry("deflated.bin", TIME, large, ZipEntry.DEFLATED);
+            writer.addEntry("text.txt", TIME, TEXT, ZipEntry.DEFLATED);
+            writer.addEntry("empty.txt", TIME, new byte[0], ZipEntry.DEFLATED);
+        }
+
+        try (ZipIndex index = ZipIndex.open(zip)) {
+            assertArrayEquals(large, transfer(index, "stored.bin"));
+            assertArrayEquals(large, transfer(index, "deflated.bin"));
+            assertArrayEquals(TEXT, transfer(index, "text.txt"));
+            assertArrayEquals(new byte[0], transfer(index, "empty.txt"));
+        }
+    }
+
+    @Test
+    void testDuplicateEntry() throws IOException {
+        try (ZipWriter writer = new ZipWriter(mTempDir.resolve("dup.zip"))) {
+            writer.addEntry("a.txt", TIME, TEXT, ZipEntry.STORED);
+            assertThrows(IOException.class, () -> writer.addEntry("a.txt", TIME, TEXT, ZipEntry.STORED));
+        }
+    }
+
+    @Test
+    void testCorruptCentralDirectory() throws IOException {
+        final Path zip = mTempDir.resolve("test.zip");
+        try (ZipWriter writer = new ZipWriter(zip)) {
+            writer.addEntry("a.txt", TIME, TEXT, ZipEntry.STORED);
+        }
+        final byte[] data = Files.readAllBytes(zip);
+        final int endPos = data.length - ZipIndex.END_HEADER_SIZE;
+        final int cenPos = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getInt(endPos + 16);
+
+        // more entries than in the central directory
+        assertCorrupt(data, endPos + 10, 5);
+        // name longer than the central directory
+        assertCorrupt(data, cenPos + 28, 0xFFFF);
+        // extra field longer than the central directory
+        assertCorrupt(data, cenPos + 30, 100);
+    }
+
+    /**
+     * Sets a 16 bit value in a copy of the zip and checks that opening it
+     * fails with a ZipException.
+     */
+    private void assertCorrupt(final byte[] data, final int pos, final int value) throws IOException {
+        final byte[] corrupt = data.clone();
+        ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putShort(pos, (short) value);
+        final Path zip = Files.write(mTempDir.resolve("corrupt.zip"), corrupt);
+        assertThrows(ZipException.class, () -> ZipIndex.open(zip).close());
+    }
+
+    private static byte[] transfer(final ZipIndex index, final String name) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.transferTo(index.getEntry(name), Channels.newChannel(out));
+        return out.toByteArray();
+    }
+}